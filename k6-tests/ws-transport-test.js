@@ -0,0 +1,130 @@
+import http from "k6/http";
+import ws from "k6/ws";
+import { check } from "k6";
+import { Counter, Trend } from "k6/metrics";
+
+// Compara el canal de juego por STOMP (/ws-game) con el endpoint crudo (/ws-game-raw)
+// con 7 rooms × 4 jugadores = 28 conexiones por transporte.
+//   k6 run -e BACKEND=http://localhost:8080 ws-transport-test.js
+export const options = {
+    scenarios: {
+        stomp: {
+            executor: "per-vu-iterations",
+            vus: 28, iterations: 1, maxDuration: "60s",
+            exec: "stomp",
+            env: { TRANSPORT: "stomp" },
+        },
+        raw: {
+            executor: "per-vu-iterations",
+            vus: 28, iterations: 1, maxDuration: "60s",
+            exec: "raw",
+            startTime: "35s",
+            env: { TRANSPORT: "raw" },
+        },
+    },
+};
+
+const BACKEND = __ENV.BACKEND || "http://localhost:8080";
+const WS_BACKEND = BACKEND.replace(/^http/, "ws");
+const DURATION_MS = 25000;
+const INPUT_EVERY_MS = 100;
+
+const frames = new Counter("state_frames");
+const bytes = new Counter("state_bytes");
+const gap = new Trend("state_interarrival_ms", true);
+
+const headers = (name) => ({
+    "Content-Type": "application/json",
+    "X-MS-CLIENT-PRINCIPAL-ID": "k6-" + name,
+    "X-MS-CLIENT-PRINCIPAL-NAME": name + "@k6.test",
+});
+
+// Cada escenario usa sus propias 7 rooms para no mezclar transportes en una misma partida
+function createRooms(prefix) {
+    const rooms = [];
+    for (let r = 0; r < 7; r++) {
+        const players = [1, 2, 3, 4].map((n) => `${prefix}${r}P${n}`);
+        players.forEach((p) => http.post(`${BACKEND}/api/auth/register`, JSON.stringify({ playerName: p }), { headers: headers(p) }));
+
+        const res = http.post(`${BACKEND}/api/rooms/create`,
+            JSON.stringify({ roomName: `${prefix}-${r}`, maxPlayers: 4, hostName: players[0] }),
+            { headers: headers(players[0]) });
+        const code = res.json("roomCode");
+        players.slice(1).forEach((p) => http.post(`${BACKEND}/api/rooms/${code}/join?playerName=${p}`));
+        http.put(`${BACKEND}/api/rooms/${code}/start`);
+        rooms.push({ code, players });
+    }
+    return rooms;
+}
+
+export function setup() {
+    return { stomp: createRooms("S"), raw: createRooms("R") };
+}
+
+function slot(rooms) {
+    const vu = (__VU - 1) % 28;
+    const room = rooms[Math.floor(vu / 4)];
+    return { code: room.code, player: room.players[vu % 4] };
+}
+
+function record(size, last) {
+    const now = Date.now();
+    frames.add(1, { transport: __ENV.TRANSPORT });
+    bytes.add(size, { transport: __ENV.TRANSPORT });
+    if (last > 0) gap.add(now - last, { transport: __ENV.TRANSPORT });
+    return now;
+}
+
+function stompFrame(command, hdrs, body) {
+    let f = command + "\n";
+    Object.keys(hdrs).forEach((k) => { f += `${k}:${hdrs[k]}\n`; });
+    return f + "\n" + (body || "") + "\0";
+}
+
+export function stomp(data) {
+    const { code, player } = slot(data.stomp);
+    let last = 0;
+
+    const res = ws.connect(`${WS_BACKEND}/ws-game/websocket`, { headers: { Origin: "http://localhost:3000" } }, (socket) => {
+        socket.on("open", () => {
+            socket.send(stompFrame("CONNECT", { "accept-version": "1.2", "heart-beat": "0,0" }));
+        });
+        socket.on("message", (msg) => {
+            if (msg.startsWith("CONNECTED")) {
+                socket.send(stompFrame("SUBSCRIBE", { id: "s0", destination: `/topic/game/${code}/state.bin`, playerName: player }));
+                let dir = 0;
+                socket.setInterval(() => {
+                    dir = (dir + 1) % 4;
+                    const body = JSON.stringify({ playerName: player, arriba: dir === 0, abajo: dir === 1, izquierda: dir === 2, derecha: dir === 3 });
+                    socket.send(stompFrame("SEND", { destination: `/app/game/${code}/input`, "content-type": "application/json" }, body));
+                }, INPUT_EVERY_MS);
+            } else if (msg.startsWith("MESSAGE")) {
+                last = record(msg.length, last);
+            }
+        });
+        socket.setTimeout(() => socket.close(), DURATION_MS);
+    });
+    check(res, { "stomp conectado": (r) => r && r.status === 101 });
+}
+
+export function raw(data) {
+    const { code, player } = slot(data.raw);
+    let last = 0;
+
+    const url = `${WS_BACKEND}/ws-game-raw?room=${code}&player=${player}&format=bin`;
+    const res = ws.connect(url, { headers: { Origin: "http://localhost:3000" } }, (socket) => {
+        socket.on("open", () => {
+            // Máscara de dirección: 1 arriba, 2 abajo, 4 izquierda, 8 derecha
+            let dir = 0;
+            socket.setInterval(() => {
+                dir = (dir + 1) % 4;
+                socket.send((1 << dir).toString(16));
+            }, INPUT_EVERY_MS);
+        });
+        socket.on("binaryMessage", (msg) => {
+            last = record(msg.byteLength, last);
+        });
+        socket.setTimeout(() => socket.close(), DURATION_MS);
+    });
+    check(res, { "raw conectado": (r) => r && r.status === 101 });
+}
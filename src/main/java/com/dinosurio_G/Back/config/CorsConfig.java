@@ -23,7 +23,8 @@ public class CorsConfig {
                         .exposedHeaders(
                                 "X-MS-CLIENT-PRINCIPAL-ID",
                                 "X-MS-CLIENT-PRINCIPAL-NAME",
-                                "X-MS-CLIENT-PRINCIPAL"
+                                "X-MS-CLIENT-PRINCIPAL",
+                                "X-Has-Next"
                         )
                         .allowCredentials(true)
                         .maxAge(3600);
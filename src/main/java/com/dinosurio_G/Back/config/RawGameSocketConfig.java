@@ -0,0 +1,26 @@
+package com.dinosurio_G.Back.config;
+
+import com.dinosurio_G.Back.websocket.RawGameSocketHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * Endpoint WebSocket crudo para el canal caliente de la partida (inputs, estado y eventos).
+ * Convive con el endpoint STOMP de WebSocketConfig, que se sigue usando para el lobby.
+ */
+@Configuration
+@EnableWebSocket
+public class RawGameSocketConfig implements WebSocketConfigurer {
+
+    @Autowired
+    private RawGameSocketHandler rawGameSocketHandler;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(rawGameSocketHandler, "/ws-game-raw")
+                .setAllowedOrigins(WebSocketConfig.ALLOWED_ORIGINS);
+    }
+}
@@ -1,20 +1,35 @@
 package com.dinosurio_G.Back.config;
 
+import com.dinosurio_G.Back.websocket.OutboundSessionQueues;
+import com.dinosurio_G.Back.websocket.RawEventBridge;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    public static final String[] ALLOWED_ORIGINS = {
+            "https://vampire-multiple-survivor.vercel.app",
+            "http://localhost:3000"
+    };
+
+    @Autowired
+    private OutboundSessionQueues outboundSessionQueues;
+
+    @Autowired
+    private RawEventBridge rawEventBridge;
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws-game")
-                .setAllowedOrigins("https://vampire-multiple-survivor.vercel.app",
-                        "http://localhost:3000")
+                .setAllowedOrigins(ALLOWED_ORIGINS)
                 .withSockJS();
     }
 
@@ -22,6 +37,18 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     public void configureMessageBroker(MessageBrokerRegistry registry) {
         registry.enableSimpleBroker("/topic", "/queue");
         registry.setApplicationDestinationPrefixes("/app");
+        // Copia de los eventos de partida para las sesiones del endpoint crudo
+        registry.configureBrokerChannel().interceptors(rawEventBridge);
+    }
+
+    // Cola de salida por sesión: los frames de estado atrasados se sustituyen por el último
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(outboundSessionQueues);
     }
-}
 
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.addDecoratorFactory(outboundSessionQueues);
+    }
+}
@@ -0,0 +1,162 @@
+package com.dinosurio_G.Back.controller;
+
+import com.dinosurio_G.Back.service.ChestSpawner;
+import com.dinosurio_G.Back.service.ExperienceService;
+import com.dinosurio_G.Back.service.GameEndPipeline;
+import com.dinosurio_G.Back.service.broadcast.LobbyBroadcaster;
+import com.dinosurio_G.Back.service.broadcast.RoomEventBatcher;
+import com.dinosurio_G.Back.service.broadcast.RoomStateBroadcaster;
+import com.dinosurio_G.Back.service.core.AsyncExecutor;
+import com.dinosurio_G.Back.service.core.LockManager;
+import com.dinosurio_G.Back.service.core.PlayerStateWriteBehind;
+import com.dinosurio_G.Back.service.core.RoomTickEngine;
+import com.dinosurio_G.Back.service.pipeline.CombatStage;
+import com.dinosurio_G.Back.service.pipeline.RoomTickPipeline;
+import com.dinosurio_G.Back.websocket.OutboundSessionQueues;
+import com.dinosurio_G.Back.websocket.RawGameSessions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Controlador de solo lectura con métricas del motor de juego.
+ */
+@RestController
+@RequestMapping("/api/engine")
+public class EngineMetricsController {
+
+    @Autowired
+    private RoomTickEngine roomTickEngine;
+
+    @Autowired
+    private PlayerStateWriteBehind playerStateWriteBehind;
+
+    @Autowired
+    private RoomTickPipeline roomTickPipeline;
+
+    @Autowired
+    private RoomStateBroadcaster roomStateBroadcaster;
+
+    @Autowired
+    private CombatStage combatStage;
+
+    @Autowired
+    private RoomEventBatcher roomEventBatcher;
+
+    @Autowired
+    private OutboundSessionQueues outboundSessionQueues;
+
+    @Autowired
+    private RawGameSessions rawGameSessions;
+
+    @Autowired
+    private ChestSpawner chestSpawner;
+
+    @Autowired
+    private LobbyBroadcaster lobbyBroadcaster;
+
+    @Autowired
+    private ExperienceService experienceService;
+
+    @Autowired
+    private GameEndPipeline gameEndPipeline;
+
+    @Autowired
+    private LockManager lockManager;
+
+    @Autowired
+    private AsyncExecutor asyncExecutor;
+
+    // Ticks por sala: duración, sobrecargas y fallos
+    @GetMapping("/ticks")
+    public Map<String, Object> getTickStats() {
+        return roomTickEngine.getStats();
+    }
+
+    // Persistencia diferida: lotes escritos, pendientes y frescura
+    @GetMapping("/persistence")
+    public Map<String, Object> getPersistenceStats() {
+        return playerStateWriteBehind.getStats();
+    }
+
+    // Tiempo de cada etapa del tick (inputs, movimiento, NPCs, combate, cofres...)
+    @GetMapping("/pipeline")
+    public Map<String, Object> getPipelineStats() {
+        return roomTickPipeline.getStats();
+    }
+
+    // Reloj de paso fijo por sala: tick actual, recuperación y deriva del planificador
+    @GetMapping("/clock")
+    public Map<String, Object> getClockStats() {
+        return roomTickPipeline.getClockStats();
+    }
+
+    // Frames de estado enviados por formato (JSON / binario) y tamaño medio del binario
+    @GetMapping("/broadcast")
+    public Map<String, Object> getBroadcastStats() {
+        return roomStateBroadcaster.getStats();
+    }
+
+    // Colas de salida WebSocket por sesión: profundidad, frames de estado descartados y desconexiones
+    @GetMapping("/outbound")
+    public Map<String, Object> getOutboundStats() {
+        return outboundSessionQueues.getStats();
+    }
+
+    // Endpoint WebSocket crudo: sesiones, frames de estado/eventos, bytes y frames saltados
+    @GetMapping("/raw")
+    public Map<String, Object> getRawSocketStats() {
+        return rawGameSessions.getStats();
+    }
+
+    // Resolución de ataques por sala: ataques y tiempo por tick
+    @GetMapping("/combat")
+    public Map<String, Object> getCombatStats() {
+        return combatStage.getStats();
+    }
+
+    // Eventos de partida: frames sueltos, lotes por tick y eventos por lote
+    @GetMapping("/events")
+    public Map<String, Object> getEventStats() {
+        return roomEventBatcher.getStats();
+    }
+
+    // Limpieza de cofres abiertos antiguos: filas borradas y duración
+    @GetMapping("/chests")
+    public Map<String, Object> getChestCleanupStats() {
+        return chestSpawner.getCleanupStats();
+    }
+
+    // Lobby por push: cambios enviados a /topic/lobby y fotos servidas al suscribirse
+    @GetMapping("/lobby")
+    public Map<String, Object> getLobbyStats() {
+        return lobbyBroadcaster.getStats();
+    }
+
+    // XP por sala: sumas recibidas frente a frames /xp enviados
+    @GetMapping("/xp")
+    public Map<String, Object> getXpStats() {
+        return experienceService.getStats();
+    }
+
+    // Fin de partida: congelados en el tick y persistencia en segundo plano con reintentos
+    @GetMapping("/game-end")
+    public Map<String, Object> getGameEndStats() {
+        return gameEndPipeline.getStats();
+    }
+
+    // Locks por clave: esperas, timeouts y tiempo retenido por clase de clave
+    @GetMapping("/locks")
+    public Map<String, Object> getLockStats() {
+        return lockManager.getStats();
+    }
+
+    // Pool de BD en segundo plano: cola, tareas activas, fallos y rechazos
+    @GetMapping("/async")
+    public Map<String, Object> getAsyncStats() {
+        return asyncExecutor.getStats();
+    }
+}
@@ -9,12 +9,13 @@ import com.dinosurio_G.Back.model.Player;
 import com.dinosurio_G.Back.service.GameRoomService;
 import com.dinosurio_G.Back.service.PlayerService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/rooms")
@@ -48,20 +49,31 @@ public class GameRoomController {
         return GameRoomMapper.toDTO(updatedRoom);
     }
 
-    // Obtener todas las salas
+    // Lobby paginado: GET /api/rooms?page=0&size=50&joinable=true&sort=newest
+    // joinable = sin empezar y con plazas; started y freeSlots filtran por separado.
+    // La respuesta sigue siendo la lista de salas; X-Has-Next indica si hay más páginas
     @GetMapping
-    public List<GameRoomDTO> getAllRooms() {
-        return gameRoomService.getAllRooms()
-                .stream()
-                .map(GameRoomMapper::toDTO)
-                .collect(Collectors.toList());
+    public ResponseEntity<List<GameRoomDTO>> getAllRooms(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) Boolean started,
+            @RequestParam(defaultValue = "false") boolean freeSlots,
+            @RequestParam(defaultValue = "false") boolean joinable,
+            @RequestParam(defaultValue = "newest") String sort) {
+        if (joinable) {
+            started = false;
+            freeSlots = true;
+        }
+        Slice<GameRoomDTO> rooms = gameRoomService.getLobby(started, freeSlots, sort, page, size);
+        return ResponseEntity.ok()
+                .header("X-Has-Next", String.valueOf(rooms.hasNext()))
+                .body(rooms.getContent());
     }
 
     // Obtener una sala por código
     @GetMapping("/{roomCode}")
     public GameRoomDTO getRoomByCode(@PathVariable String roomCode) {
-        GameRoom room = gameRoomService.getRoomByCode(roomCode);
-        return GameRoomMapper.toDTO(room);
+        return gameRoomService.getRoomDTO(roomCode);
     }
 
     // Iniciar el juego (solo host)
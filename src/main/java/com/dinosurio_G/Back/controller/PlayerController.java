@@ -80,15 +80,19 @@ public class PlayerController {
         return GameRoomMapper.toDTO(updatedRoom);
     }
 
-    // Actualizar movimiento del jugador
+    // Actualizar movimiento del jugador.
+    // Por defecto solo toca la sala en memoria y responde un ack con el tick en curso;
+    // view=none responde 204 sin cuerpo y view=full devuelve la sala completa (lee la BD).
     @PutMapping("/{roomCode}/move")
-    public GameRoomDTO movePlayer(
+    public ResponseEntity<?> movePlayer(
             @PathVariable String roomCode,
             @RequestParam String playerName,
             @RequestParam boolean arriba,
             @RequestParam boolean abajo,
             @RequestParam boolean izquierda,
             @RequestParam boolean derecha,
+            @RequestParam(defaultValue = "0") long seq,
+            @RequestParam(defaultValue = "ack") String view,
             @RequestHeader(value = "X-MS-CLIENT-PRINCIPAL-ID", required = false) String azureUserId) {
 
         // Verificar autenticación (en producción)
@@ -96,8 +100,21 @@ public class PlayerController {
             azureUserId = "dev-user";
         }
 
-        gamePlayServices.updatePlayerInput(roomCode, playerName, arriba, abajo, izquierda, derecha);
-        return GameRoomMapper.toDTO(gameRoomService.getRoomByCode(roomCode));
+        int input = Player.inputMask(arriba, abajo, izquierda, derecha);
+        if ("full".equals(view)) {
+            gamePlayServices.updatePlayerInput(roomCode, playerName, input, seq);
+            return ResponseEntity.ok(gameRoomService.getRoomDTO(roomCode));
+        }
+
+        long tick = gamePlayServices.postInput(roomCode, playerName, input, seq);
+        if ("none".equals(view)) {
+            return ResponseEntity.noContent().build();
+        }
+
+        Map<String, Object> ack = new HashMap<>();
+        ack.put("accepted", tick >= 0);
+        ack.put("tick", tick);
+        return ResponseEntity.ok(ack);
     }
 
     // Obtener vida actual de los jugadores
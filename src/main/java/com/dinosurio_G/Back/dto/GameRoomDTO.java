@@ -1,5 +1,6 @@
 package com.dinosurio_G.Back.dto;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class GameRoomDTO {
@@ -13,6 +14,11 @@ public class GameRoomDTO {
 
     public GameRoomDTO() {}
 
+    // Proyección JPQL de la sala sin jugadores; se añaden después con otra consulta
+    public GameRoomDTO(Long id, String roomCode, String name, boolean gameStarted, int maxPlayers) {
+        this(id, roomCode, name, gameStarted, maxPlayers, new ArrayList<>());
+    }
+
     public GameRoomDTO(Long id, String roomCode, String name, boolean gameStarted, int maxPlayers, List<PlayerDTO> players) {
         this.id = id;
         this.roomCode = roomCode;
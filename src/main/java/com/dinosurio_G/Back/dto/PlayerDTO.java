@@ -1,5 +1,7 @@
 package com.dinosurio_G.Back.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class PlayerDTO {
 
     private Long id;
@@ -7,6 +9,9 @@ public class PlayerDTO {
     private boolean ready;
     private boolean host;
 
+    // Sala del jugador; solo sirve para agrupar las proyecciones, no se serializa
+    @JsonIgnore
+    private Long roomId;
 
     public PlayerDTO() {}
 
@@ -18,6 +23,12 @@ public class PlayerDTO {
 
     }
 
+    // Proyección JPQL (ver PlayerRepository)
+    public PlayerDTO(Long id, String playerName, boolean ready, boolean host, Long roomId) {
+        this(id, playerName, ready, host);
+        this.roomId = roomId;
+    }
+
     // Getters y Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -31,6 +42,9 @@ public class PlayerDTO {
     public boolean isHost() { return host; }
     public void setHost(boolean host) { this.host = host; }
 
+    public Long getRoomId() { return roomId; }
+    public void setRoomId(Long roomId) { this.roomId = roomId; }
+
 
 
 }
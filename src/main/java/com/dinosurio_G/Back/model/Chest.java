@@ -8,7 +8,12 @@ import java.time.LocalDateTime;
  * Compatible con controladores REST y servicios asincrónicos.
  */
 @Entity
-@Table(name = "chests")
+@Table(name = "chests", indexes = {
+        // Carga de cofres por mapa
+        @Index(name = "idx_chests_map_active_generated", columnList = "map_id, active, generated_at"),
+        // Limpieza de cofres abiertos antiguos de todos los mapas (sin filtro por map_id)
+        @Index(name = "idx_chests_active_generated", columnList = "active, generated_at")
+})
 public class Chest {
 
     @Id
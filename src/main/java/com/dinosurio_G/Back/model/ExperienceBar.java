@@ -2,19 +2,35 @@ package com.dinosurio_G.Back.model;
 
 import jakarta.persistence.*;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Barra de XP compartida de una sala. Las sumas son lock-free (CAS sobre currentXp)
+ * y solo la suma que lleva la barra al objetivo devuelve true, así la victoria se
+ * dispara una única vez aunque varias muertes lleguen en el mismo tick.
+ */
 @Entity
 public class ExperienceBar {
+
+    private static final AtomicIntegerFieldUpdater<ExperienceBar> XP =
+            AtomicIntegerFieldUpdater.newUpdater(ExperienceBar.class, "currentXp");
+    private static final AtomicIntegerFieldUpdater<ExperienceBar> SENT_XP =
+            AtomicIntegerFieldUpdater.newUpdater(ExperienceBar.class, "sentXp");
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
-    private int currentXp;
+    private volatile int currentXp;
     private int goalXp;
     private boolean completed;
 
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "game_room_id")
     private GameRoom gameRoom;
 
+    // Última XP enviada a los clientes (para agrupar los envíos por tick)
+    @Transient
+    private volatile int sentXp;
 
     protected ExperienceBar() {}
 
@@ -24,14 +40,37 @@ public class ExperienceBar {
         this.completed = false;
     }
 
-    public synchronized void addXp(int amount) {
-        if (completed) return;
+    /**
+     * Suma XP sin pasar del objetivo. Devuelve true solo para la suma que completa la barra;
+     * las que llegan después no cambian nada.
+     */
+    public boolean addXp(int amount) {
+        while (true) {
+            int current = currentXp;
+            if (current >= goalXp) {
+                return false;
+            }
+            int next = (int) Math.min((long) current + amount, goalXp);
+            if (XP.compareAndSet(this, current, next)) {
+                if (next >= goalXp) {
+                    completed = true;
+                    return true;
+                }
+                return false;
+            }
+        }
+    }
 
-        currentXp += amount;
-        if (currentXp >= goalXp) {
-            currentXp = goalXp;
-            completed = true;
+    /**
+     * Devuelve la XP actual si cambió desde el último envío (y la da por enviada), o -1.
+     */
+    public int takeUnsentXp() {
+        int current = currentXp;
+        int sent = sentXp;
+        if (current == sent || !SENT_XP.compareAndSet(this, sent, current)) {
+            return -1;
         }
+        return current;
     }
 
     public double getProgress() {
@@ -39,7 +78,7 @@ public class ExperienceBar {
     }
 
     public boolean isCompleted() {
-        return completed;
+        return currentXp >= goalXp;
     }
 
     public int getCurrentXp() {
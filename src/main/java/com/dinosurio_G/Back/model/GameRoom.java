@@ -1,11 +1,16 @@
 package com.dinosurio_G.Back.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
 @Entity
+@Table(indexes = {
+        // Lobby: filtra por partida empezada y plazas libres
+        @Index(name = "idx_game_room_lobby", columnList = "gameStarted, playerCount")
+})
 public class GameRoom {
 
     @Id
@@ -17,14 +22,22 @@ public class GameRoom {
     private boolean gameStarted = false;
     private int maxPlayers = 4;
 
-    @ManyToOne
+    // Copia de players.size() para filtrar el lobby por plazas libres sin contar filas;
+    // se mantiene en addPlayer/removePlayer/clearPlayers. Las salas anteriores a la columna
+    // la reciben a 0 y GameRoomService.backfillPlayerCounts la recalcula al arrancar
+    @ColumnDefault("0")
+    private int playerCount = 0;
+
+    // Las asociaciones son LAZY: cada caso de uso (tick, unirse, lobby) declara
+    // en GameRoomRepository qué necesita cargar
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "map_id")
     private GameMap map;
 
     @OneToMany(mappedBy = "gameRoom",
             cascade = CascadeType.ALL,
             orphanRemoval = false,
-            fetch = FetchType.EAGER)
+            fetch = FetchType.LAZY)
     private List<Player> players = new ArrayList<>();
 
     // Constructor por defecto que genera un código aleatorio
@@ -83,15 +96,26 @@ public class GameRoom {
     public void setPlayers(List<Player> players) {
         this.players = players;
     }
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
     // ----- Métodos auxiliares -----
     public void addPlayer(Player player) {
         players.add(player);
         player.setGameRoom(this);
+        playerCount = players.size();
     }
 
     public void removePlayer(Player player) {
         players.remove(player);
         player.setGameRoom(null);
+        playerCount = players.size();
+    }
+
+    public void clearPlayers() {
+        players.clear();
+        playerCount = 0;
     }
 
     public GameMap getMap() {
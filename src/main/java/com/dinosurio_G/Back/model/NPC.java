@@ -5,7 +5,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 
 public class NPC {
-    private final String id = UUID.randomUUID().toString();
+    private final String id;
     private volatile double x;
     private volatile double y;
 
@@ -29,6 +29,12 @@ public class NPC {
 
 
     public NPC(double startX, double startY, int health, double speed) {
+        this(UUID.randomUUID().toString(), startX, startY, health, speed);
+    }
+
+    // Copia de un NPC del store de su sala, con su id estable
+    public NPC(String id, double startX, double startY, int health, double speed) {
+        this.id = id;
         this.x = startX;
         this.y = startY;
         this.health = health;
@@ -2,6 +2,8 @@ package com.dinosurio_G.Back.model;
 
 import jakarta.persistence.*;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 @Entity
 public class Player {
 
@@ -13,7 +15,7 @@ public class Player {
     private String playerName;
 
     // Relación con UserAccount
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_account_id", nullable = true)
     private UserAccount userAccount;
 
@@ -25,22 +27,34 @@ public class Player {
     public static final int DEFAULT_HEALTH = 100;
     public static final double DEFAULT_SPEED = 5;
 
+    // Bits de la máscara de input
+    public static final int INPUT_ARRIBA = 1;
+    public static final int INPUT_ABAJO = 2;
+    public static final int INPUT_IZQUIERDA = 4;
+    public static final int INPUT_DERECHA = 8;
+
     @Transient
     private long lastAttackTime = 0;
     @Transient
     private boolean facingRight = true;
 
-    private boolean arriba = false;
-    private boolean abajo = false;
-    private boolean izquierda = false;
-    private boolean derecha = false;
+    // Último input recibido: secuencia del cliente en los 32 bits altos y máscara en los bajos.
+    // Lo publican los hilos de red sin locks; el tick lo lee una vez con latchInput()
+    @Transient
+    private final AtomicLong pendingInput = new AtomicLong();
+
+    // Input que aplica el tick y última secuencia procesada (solo los toca el hilo de tick)
+    @Transient
+    private int inputMask;
+    @Transient
+    private long lastInputSeq;
 
     private boolean isAlive = true;
 
     private double x;
     private double y;
 
-    @ManyToOne(optional = true)
+    @ManyToOne(optional = true, fetch = FetchType.LAZY)
     @JoinColumn(name = "game_room_id", nullable = true)
     private GameRoom gameRoom;
 
@@ -58,19 +72,55 @@ public class Player {
         this.health = DEFAULT_HEALTH;
     }
 
+    public static int inputMask(boolean arriba, boolean abajo, boolean izquierda, boolean derecha) {
+        return (arriba ? INPUT_ARRIBA : 0) | (abajo ? INPUT_ABAJO : 0)
+                | (izquierda ? INPUT_IZQUIERDA : 0) | (derecha ? INPUT_DERECHA : 0);
+    }
+
+    /**
+     * Publica el input del cliente; gana el último. No bloquea: se puede llamar
+     * desde cualquier hilo mientras el tick mueve al jugador.
+     */
+    public void submitInput(int mask, long seq) {
+        pendingInput.set(((seq & 0xFFFFFFFFL) << 32) | (mask & 0xF));
+    }
+
+    /**
+     * Toma el último input publicado para este tick. Devuelve true si cambió.
+     */
+    public boolean latchInput() {
+        long packed = pendingInput.get();
+        int mask = (int) (packed & 0xF);
+        long seq = packed >>> 32;
+        boolean changed = mask != inputMask || seq != lastInputSeq;
+        inputMask = mask;
+        lastInputSeq = seq;
+        return changed;
+    }
+
+    // Aplica el input de inmediato, sin secuencia (fuera del tick)
     public void setInput(boolean arriba, boolean abajo, boolean izquierda, boolean derecha) {
-        this.arriba = arriba;
-        this.abajo = abajo;
-        this.izquierda = izquierda;
-        this.derecha = derecha;
+        submitInput(inputMask(arriba, abajo, izquierda, derecha), lastInputSeq);
+        latchInput();
     }
 
-    public synchronized void actualizar() {
+    public int getInputMask() { return inputMask; }
+    public long getLastInputSeq() { return lastInputSeq; }
+
+    // Movimiento y daño los aplica solo el hilo de tick de la sala (un único escritor),
+    // así que no llevan monitor; los hilos de red solo publican en pendingInput
+    public void actualizar() {
         if (gameRoom == null || gameRoom.getMap() == null) return;
 
         double newX = x;
         double newY = y;
 
+        int input = inputMask;
+        boolean arriba = (input & INPUT_ARRIBA) != 0;
+        boolean abajo = (input & INPUT_ABAJO) != 0;
+        boolean izquierda = (input & INPUT_IZQUIERDA) != 0;
+        boolean derecha = (input & INPUT_DERECHA) != 0;
+
         if (arriba && !abajo) newY -= speed;
         if (abajo && !arriba) newY += speed;
 
@@ -101,7 +151,7 @@ public class Player {
         return false;
     }
 
-    public synchronized void receiveDamage(int damage) {
+    public void receiveDamage(int damage) {
         if (!isAlive() || damage <= 0) return;
 
         this.health -= damage;
@@ -124,6 +174,10 @@ public class Player {
         return lastAttackTime;
     }
 
+    public void setLastAttackTime(long lastAttackTime) {
+        this.lastAttackTime = lastAttackTime;
+    }
+
     public void updateLastAttackTime() {
         this.lastAttackTime = System.currentTimeMillis();
     }
@@ -163,6 +217,7 @@ public class Player {
     public double getY() { return y; }
     public void setY(double y) { this.y = y; }
 
-    public void setId(long l) {
+    public void setId(long id) {
+        this.id = id;
     }
 }
\ No newline at end of file
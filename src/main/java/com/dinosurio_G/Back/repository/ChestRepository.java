@@ -2,11 +2,29 @@ package com.dinosurio_G.Back.repository;
 
 import com.dinosurio_G.Back.model.Chest;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface ChestRepository extends JpaRepository<Chest, Long> {
     List<Chest> findByMapId(Long mapId);
+
+    // Marca el cofre como abierto sin cargarlo; 0 si ya estaba abierto
+    @Transactional
+    @Modifying
+    @Query("UPDATE Chest c SET c.active = false WHERE c.id = :id AND c.active = true")
+    int markOpened(@Param("id") Long id);
+
+    // Borra en una sola sentencia los cofres abiertos generados antes del corte, de todos los
+    // mapas; lo sirve idx_chests_active_generated (el índice por mapa empieza por map_id)
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Chest c WHERE c.active = false AND c.generatedAt < :cutoff")
+    int deleteInactiveGeneratedBefore(@Param("cutoff") LocalDateTime cutoff);
 }
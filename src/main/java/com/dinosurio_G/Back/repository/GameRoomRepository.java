@@ -1,11 +1,17 @@
 package com.dinosurio_G.Back.repository;
 
+import com.dinosurio_G.Back.dto.GameRoomDTO;
 import com.dinosurio_G.Back.model.GameRoom;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -13,6 +19,41 @@ public interface GameRoomRepository extends JpaRepository<GameRoom, Long> {
     // se encarga de buscar una sala por su código (por ejemplo, cuando un jugador quiere unirse)
     Optional<GameRoom> findByRoomCode(String roomCode);
 
+    // Unirse, empezar, salir o terminar: la sala con sus jugadores y cuentas en una sola consulta
+    @EntityGraph(attributePaths = {"players", "players.userAccount"})
+    Optional<GameRoom> findWithPlayersByRoomCode(String roomCode);
+
+    // Sala que pasa a memoria para el tick: además de jugadores y cuentas, el mapa
+    // (el hilo de tick trabaja sin sesión de JPA, así que no puede quedar nada por cargar)
+    @EntityGraph(attributePaths = {"players", "players.userAccount", "map"})
+    Optional<GameRoom> findForTickByRoomCode(String roomCode);
+
+    // Salas con partida en curso (solo se usa al arrancar para restaurar el registro en memoria)
+    @EntityGraph(attributePaths = {"players", "players.userAccount", "map"})
+    List<GameRoom> findForTickByGameStartedTrue();
+
+    // Lobby: una página de salas proyectada directamente al DTO (los jugadores van aparte).
+    // started == null no filtra; freeSlots deja solo salas con plazas (índice idx_game_room_lobby).
+    // Slice pide size + 1 filas y no lanza COUNT, así el coste no depende del total de salas
+    @Query("SELECT new com.dinosurio_G.Back.dto.GameRoomDTO(r.id, r.roomCode, r.roomName, r.gameStarted, r.maxPlayers) " +
+            "FROM GameRoom r " +
+            "WHERE (:started IS NULL OR r.gameStarted = :started) " +
+            "AND (:freeSlots = false OR r.playerCount < r.maxPlayers)")
+    Slice<GameRoomDTO> findLobbyPage(@Param("started") Boolean started,
+                                     @Param("freeSlots") boolean freeSlots,
+                                     Pageable pageable);
+
+    @Query("SELECT new com.dinosurio_G.Back.dto.GameRoomDTO(r.id, r.roomCode, r.roomName, r.gameStarted, r.maxPlayers) " +
+            "FROM GameRoom r WHERE r.roomCode = :roomCode")
+    Optional<GameRoomDTO> findSummaryByRoomCode(@Param("roomCode") String roomCode);
+
+    // Recalcula playerCount desde las filas de player en las salas donde no cuadra.
+    // Devuelve cuántas salas se corrigieron
+    @Modifying
+    @Query("UPDATE GameRoom r SET r.playerCount = (SELECT COUNT(p) FROM Player p WHERE p.gameRoom = r) " +
+            "WHERE r.playerCount <> (SELECT COUNT(p) FROM Player p WHERE p.gameRoom = r)")
+    int recountPlayers();
+
     // Buscar sala activa de un jugador específico
     @Query("SELECT gr FROM GameRoom gr JOIN gr.players p " +
             "WHERE p.playerName = :playerName AND gr.gameStarted = true")
@@ -1,12 +1,22 @@
 package com.dinosurio_G.Back.repository;
 
+import com.dinosurio_G.Back.dto.PlayerDTO;
 import com.dinosurio_G.Back.model.GameRoom;
 import com.dinosurio_G.Back.model.Player;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface PlayerRepository extends JpaRepository<Player, Long> {
     Optional<Player> findByPlayerNameAndGameRoom(String playerName, GameRoom gameRoom);
     Optional<Player> findByPlayerName(String playerName);
+
+    // Jugadores de varias salas proyectados al DTO, con el id de su sala para agruparlos
+    @Query("SELECT new com.dinosurio_G.Back.dto.PlayerDTO(p.id, p.playerName, p.ready, p.host, p.gameRoom.id) " +
+            "FROM Player p WHERE p.gameRoom.id IN :roomIds ORDER BY p.id")
+    List<PlayerDTO> findDtosByRoomIds(@Param("roomIds") Collection<Long> roomIds);
 }
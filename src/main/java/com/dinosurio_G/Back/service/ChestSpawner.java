@@ -5,15 +5,18 @@ import com.dinosurio_G.Back.model.GameMap;
 import com.dinosurio_G.Back.model.GameRoom;
 import com.dinosurio_G.Back.model.Position;
 import com.dinosurio_G.Back.repository.GameRoomRepository;
+import com.dinosurio_G.Back.service.broadcast.RoomEventBatcher;
+import com.dinosurio_G.Back.service.core.ActiveRoomRegistry;
+import com.dinosurio_G.Back.service.core.RoomRuntime;
 import com.dinosurio_G.Back.service.impl.ChestService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Servicio que maneja el spawn periódico de cofres en las salas activas
@@ -34,31 +37,41 @@ public class ChestSpawner {
     private ChestService chestService;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private RoomEventBatcher roomEvents;
+
+    @Autowired
+    private ActiveRoomRegistry activeRooms;
+
+    // Minutos que se conservan los cofres ya abiertos antes de borrarlos
+    @Value("${game.chests.retention-minutes:5}")
+    private long retentionMinutes;
 
-    // Track de cofres spawneados por sala
-    private final Map<String, List<Long>> chestsByRoom = new ConcurrentHashMap<>();
     private final Random random = new Random();
 
+    // Métricas de la limpieza
+    private final AtomicLong cleanupRuns = new AtomicLong();
+    private final AtomicLong cleanupFailures = new AtomicLong();
+    private final AtomicLong chestsDeleted = new AtomicLong();
+    private volatile int lastCleanupDeleted;
+    private volatile long lastCleanupNanos;
+
     /**
      * Ejecuta el spawn de cofres cada cierto tiempo
      */
-    @Transactional
     @Scheduled(fixedRate = SPAWN_INTERVAL_MS)
     public void spawnChestsInActiveRooms() {
-        List<GameRoom> activeRooms = gameRoomRepository.findAll().stream()
-                .filter(GameRoom::isGameStarted)
-                .toList();
-
-        for (GameRoom room : activeRooms) {
-            trySpawnChest(room);
+        for (RoomRuntime runtime : activeRooms.getActiveRooms()) {
+            trySpawnChest(runtime);
         }
     }
 
     /**
-     * Intenta spawnear un cofre si hay espacio disponible
+     * Intenta spawnear un cofre si hay espacio disponible.
+     * El conteo sale de los cofres en memoria de la sala; el guardado va en segundo
+     * plano y el cofre entra en la sala (y se notifica) cuando ya tiene id.
      */
-    private void trySpawnChest(GameRoom room) {
+    private void trySpawnChest(RoomRuntime runtime) {
+        GameRoom room = runtime.getRoom();
         String roomCode = room.getRoomCode();
         GameMap map = room.getMap();
 
@@ -66,12 +79,7 @@ public class ChestSpawner {
             return;
         }
 
-        // Contar cofres activos en la sala
-        List<Chest> activeChests = chestService.findByMapId(map.getId()).stream()
-                .filter(Chest::isActive)
-                .toList();
-
-        if (activeChests.size() >= MAX_CHESTS_PER_ROOM) {
+        if (runtime.getChests().size() >= MAX_CHESTS_PER_ROOM) {
             return; // Ya hay suficientes cofres
         }
 
@@ -84,17 +92,20 @@ public class ChestSpawner {
         newChest.setMap(map);
         newChest.setActive(true);
 
-        // Guardar en BD
-        Chest savedChest = chestService.save(newChest);
+        chestService.saveAsync(newChest)
+                .thenRun(() -> {
+                    runtime.getChests().add(newChest);
 
-        // Registrar en tracking
-        chestsByRoom.computeIfAbsent(roomCode, k -> new ArrayList<>()).add(savedChest.getId());
+                    System.out.println("📦 COFRE SPAWNEADO en sala " + roomCode +
+                            " en (" + (int)position.getX() + ", " + (int)position.getY() + ")");
 
-        System.out.println("📦 COFRE SPAWNEADO en sala " + roomCode +
-                " en (" + (int)position.getX() + ", " + (int)position.getY() + ")");
-
-        // Notificar al frontend por WebSocket
-        notifyChestSpawned(roomCode, savedChest);
+                    // Notificar al frontend por WebSocket
+                    notifyChestSpawned(roomCode, newChest);
+                })
+                .exceptionally(e -> {
+                    System.err.println("❌ Error guardando cofre en sala " + roomCode + ": " + e.getMessage());
+                    return null;
+                });
     }
 
     /**
@@ -116,42 +127,60 @@ public class ChestSpawner {
         event.put("x", chest.getPosition().getX());
         event.put("y", chest.getPosition().getY());
 
-        messagingTemplate.convertAndSend("/topic/game/" + roomCode + "/event", event);
+        roomEvents.publish(roomCode, event);
     }
 
     /**
-     * Limpia cofres inactivos antiguos (opcional, para liberar memoria)
+     * Borra de una vez los cofres abiertos más antiguos que la retención,
+     * de todas las salas (también de partidas ya terminadas).
      */
-    @Transactional
     @Scheduled(fixedRate = 60000) // Cada minuto
     public void cleanupOldChests() {
-        List<GameRoom> activeRooms = gameRoomRepository.findAll().stream()
-                .filter(GameRoom::isGameStarted)
-                .toList();
-
-        for (GameRoom room : activeRooms) {
-            if (room.getMap() == null) continue;
-
-            List<Chest> inactiveChests = chestService.findByMapId(room.getMap().getId()).stream()
-                    .filter(chest -> !chest.isActive())
-                    .toList();
-
-            // Eliminar cofres inactivos después de cierto tiempo
-            for (Chest chest : inactiveChests) {
-                if (chest.getGeneratedAt() != null &&
-                        java.time.Duration.between(chest.getGeneratedAt(),
-                                java.time.LocalDateTime.now()).toMinutes() > 5) {
-                    chestService.deleteById(chest.getId());
-                    System.out.println("🗑️ Cofre antiguo " + chest.getId() + " eliminado");
-                }
-            }
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        long start = System.nanoTime();
+        int deleted;
+        try {
+            deleted = chestService.deleteInactiveGeneratedBefore(cutoff);
+        } catch (Exception e) {
+            cleanupFailures.incrementAndGet();
+            System.err.println("❌ Error limpiando cofres antiguos: " + e.getMessage());
+            return;
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        cleanupRuns.incrementAndGet();
+        chestsDeleted.addAndGet(deleted);
+        lastCleanupDeleted = deleted;
+        lastCleanupNanos = elapsedNanos;
+        if (deleted > 0) {
+            System.out.println("🗑️ " + deleted + " cofre(s) antiguo(s) eliminado(s) en " +
+                    String.format("%.1f", elapsedNanos / 1_000_000.0) + " ms");
         }
     }
 
+    /**
+     * Métricas de la limpieza: ejecuciones, filas borradas y duración.
+     */
+    public Map<String, Object> getCleanupStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("retentionMinutes", retentionMinutes);
+        stats.put("runs", cleanupRuns.get());
+        stats.put("failures", cleanupFailures.get());
+        stats.put("rowsDeleted", chestsDeleted.get());
+        stats.put("lastRowsDeleted", lastCleanupDeleted);
+        stats.put("lastMs", lastCleanupNanos / 1_000_000.0);
+        return stats;
+    }
+
     /**
      * Obtiene todos los cofres activos de una sala (para el frontend)
      */
     public List<Chest> getActiveChests(String roomCode) {
+        RoomRuntime runtime = activeRooms.get(roomCode);
+        if (runtime != null) {
+            return List.copyOf(runtime.getChests().getActive());
+        }
+
         GameRoom room = gameRoomRepository.findByRoomCode(roomCode).orElse(null);
         if (room == null || room.getMap() == null) {
             return Collections.emptyList();
@@ -161,11 +190,4 @@ public class ChestSpawner {
                 .filter(Chest::isActive)
                 .toList();
     }
-
-    /**
-     * Limpia el tracking de una sala (llamar cuando termine el juego)
-     */
-    public void clearRoomChests(String roomCode) {
-        chestsByRoom.remove(roomCode);
-    }
 }
@@ -1,62 +1,112 @@
 package com.dinosurio_G.Back.service;
 
+import com.dinosurio_G.Back.model.ExperienceBar;
+import com.dinosurio_G.Back.service.core.ActiveRoomRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * XP compartida por sala. Cada sala tiene su ExperienceBar en memoria; sumar XP es
+ * lock-free y la victoria se dispara una sola vez. El progreso no se envía en cada
+ * muerte o cofre: en salas con tick sale como mucho un /xp por tick (flushProgress,
+ * desde la etapa de broadcast); sin tick se envía en el momento.
+ */
 @Service
 public class ExperienceService {
 
     private static final int GOAL_XP = 1000;
-    private final Map<String, Integer> experienceByRoom = new ConcurrentHashMap<>();
+    private final Map<String, ExperienceBar> experienceByRoom = new ConcurrentHashMap<>();
 
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Autowired
+    private ActiveRoomRegistry activeRooms;
+
     // INYECTAR GamePlayServices para limpiar sesiones
     @Autowired
     @Lazy
     private GamePlayServices gamePlayServices;
 
+    // Métricas
+    private final AtomicLong xpAdds = new AtomicLong();
+    private final AtomicLong xpFrames = new AtomicLong();
+    private final AtomicLong victories = new AtomicLong();
+
     public void addExperience(String roomCode, int amount) {
-        experienceByRoom.merge(roomCode, amount, Integer::sum);
-        int currentXp = experienceByRoom.get(roomCode);
+        ExperienceBar bar = experienceByRoom.computeIfAbsent(roomCode, k -> new ExperienceBar(GOAL_XP));
+        xpAdds.incrementAndGet();
 
-        if (currentXp >= GOAL_XP) {
-            experienceByRoom.put(roomCode, GOAL_XP);
+        if (bar.addXp(amount)) {
+            victories.incrementAndGet();
+            // El progreso completo sale antes de que la victoria reinicie la barra
+            flushProgress(roomCode);
 
             System.out.println("🎉 ¡La partida en " + roomCode + " se ha GANADO! Procesando victoria...");
 
-            // LLAMAR al método que limpia sesiones
+            // LLAMAR al método que limpia sesiones (onGameWon también notifica)
             gamePlayServices.onGameWon(roomCode);
+            return;
+        }
 
-            // Ya no necesitas notificar aquí porque onGameWon() lo hace
-            // messagingTemplate.convertAndSend(...) <- Esto lo hace gamePlayServices.onGameWon()
+        // Sin tick que lo agrupe: enviar ya
+        if (!activeRooms.isActive(roomCode)) {
+            flushProgress(roomCode);
         }
+    }
 
-        // Enviar progreso a frontend
-        double progress = getProgress(roomCode);
-        messagingTemplate.convertAndSend(
-                "/topic/game/" + roomCode + "/xp",
-                Map.of("progress", progress, "currentXp", currentXp)
-        );
+    /**
+     * Envía el progreso de la sala si cambió desde el último envío.
+     * Lo llama el hilo de tick una vez por tick.
+     */
+    public void flushProgress(String roomCode) {
+        ExperienceBar bar = experienceByRoom.get(roomCode);
+        if (bar == null) {
+            return;
+        }
+        int currentXp = bar.takeUnsentXp();
+        if (currentXp < 0) {
+            return;
+        }
+        sendProgress(roomCode, bar.getProgress(), currentXp);
     }
 
     public double getProgress(String roomCode) {
-        return experienceByRoom.getOrDefault(roomCode, 0) / (double) GOAL_XP;
+        ExperienceBar bar = experienceByRoom.get(roomCode);
+        return bar == null ? 0.0 : bar.getProgress();
     }
 
     public void resetRoomXp(String roomCode) {
-        experienceByRoom.put(roomCode, 0);
+        // Barra nueva: las sumas que lleguen tarde a la anterior se pierden con ella
+        experienceByRoom.put(roomCode, new ExperienceBar(GOAL_XP));
+        sendProgress(roomCode, 0.0, 0);
+        System.out.println("🔄 XP reseteado para sala " + roomCode);
+    }
+
+    private void sendProgress(String roomCode, double progress, int currentXp) {
         messagingTemplate.convertAndSend(
                 "/topic/game/" + roomCode + "/xp",
-                Map.of("progress", 0.0, "currentXp", 0)
+                Map.of("progress", progress, "currentXp", currentXp)
         );
-        System.out.println("🔄 XP reseteado para sala " + roomCode);
+        xpFrames.incrementAndGet();
     }
 
+    public Map<String, Object> getStats() {
+        long adds = xpAdds.get();
+        long frames = xpFrames.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("xpAdds", adds);
+        stats.put("xpFrames", frames);
+        stats.put("addsPerFrame", frames == 0 ? 0.0 : adds / (double) frames);
+        stats.put("victories", victories.get());
+        stats.put("rooms", experienceByRoom.size());
+        return stats;
+    }
 }
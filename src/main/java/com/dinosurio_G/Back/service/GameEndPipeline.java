@@ -0,0 +1,251 @@
+package com.dinosurio_G.Back.service;
+
+import com.dinosurio_G.Back.model.GameRoom;
+import com.dinosurio_G.Back.model.Player;
+import com.dinosurio_G.Back.model.UserAccount;
+import com.dinosurio_G.Back.repository.GameRoomRepository;
+import com.dinosurio_G.Back.repository.PlayerRepository;
+import com.dinosurio_G.Back.service.broadcast.LobbyEvent;
+import com.dinosurio_G.Back.service.broadcast.RoomEventBatcher;
+import com.dinosurio_G.Back.service.broadcast.RoomStateBroadcaster;
+import com.dinosurio_G.Back.service.core.ActiveRoomRegistry;
+import com.dinosurio_G.Back.service.core.AsyncExecutor;
+import com.dinosurio_G.Back.service.core.PlayerStateWriteBehind;
+import com.dinosurio_G.Back.service.core.RoomLifecycleEvent;
+import com.dinosurio_G.Back.service.core.RoomRuntime;
+import com.dinosurio_G.Back.service.core.RoomTickEngine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fin de partida (victoria o derrota) en tres fases, para que el hilo de tick no haga I/O:
+ * <ol>
+ *   <li>Congelar (en el hilo que detecta el fin): la sala sale del motor de ticks y del
+ *       registro de salas activas, y se liberan sus NPCs.</li>
+ *   <li>Notificar (en el mismo hilo): se vacían los eventos pendientes del último tick y
+ *       se envía GAME_OVER / GAME_WON y la XP a cero.</li>
+ *   <li>Persistir (en segundo plano, con reintentos): se cierran las sesiones, se reinician
+ *       los jugadores y la sala se marca terminada (victoria) o se borra (derrota).
+ *       Tras el commit se publican los eventos de ciclo de vida y de lobby.</li>
+ * </ol>
+ * Cada sala termina una sola vez aunque el fin se detecte varias veces.
+ */
+@Component
+public class GameEndPipeline {
+
+    public enum Outcome { WON, LOST }
+
+    private final ActiveRoomRegistry activeRooms;
+    private final RoomTickEngine roomTickEngine;
+    private final RoomStateBroadcaster roomStateBroadcaster;
+    private final RoomEventBatcher roomEvents;
+    private final PlayerStateWriteBehind playerStateWriteBehind;
+    private final ExperienceService experienceService;
+    private final NPCManager npcManager;
+    private final GameRoomRepository gameRoomRepository;
+    private final PlayerRepository playerRepository;
+    private final AsyncExecutor asyncExecutor;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transaction;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+
+    // Salas cuyo fin está en curso
+    private final Set<String> ending = ConcurrentHashMap.newKeySet();
+
+    // Métricas
+    private final AtomicLong won = new AtomicLong();
+    private final AtomicLong lost = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong persistRetries = new AtomicLong();
+    private final AtomicLong persistFailures = new AtomicLong();
+    private volatile long lastFreezeNanos;
+    private volatile long lastPersistNanos;
+
+    public GameEndPipeline(ActiveRoomRegistry activeRooms,
+                           RoomTickEngine roomTickEngine,
+                           RoomStateBroadcaster roomStateBroadcaster,
+                           RoomEventBatcher roomEvents,
+                           PlayerStateWriteBehind playerStateWriteBehind,
+                           ExperienceService experienceService,
+                           NPCManager npcManager,
+                           GameRoomRepository gameRoomRepository,
+                           PlayerRepository playerRepository,
+                           AsyncExecutor asyncExecutor,
+                           ApplicationEventPublisher eventPublisher,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${game.end.max-attempts:3}") int maxAttempts,
+                           @Value("${game.end.retry-backoff-ms:200}") long retryBackoffMs) {
+        this.activeRooms = activeRooms;
+        this.roomTickEngine = roomTickEngine;
+        this.roomStateBroadcaster = roomStateBroadcaster;
+        this.roomEvents = roomEvents;
+        this.playerStateWriteBehind = playerStateWriteBehind;
+        this.experienceService = experienceService;
+        this.npcManager = npcManager;
+        this.gameRoomRepository = gameRoomRepository;
+        this.playerRepository = playerRepository;
+        this.asyncExecutor = asyncExecutor;
+        this.eventPublisher = eventPublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMs = retryBackoffMs;
+    }
+
+    /**
+     * Termina la partida de la sala. Devuelve false si ya estaba terminando.
+     * Solo trabaja en memoria; la persistencia queda en segundo plano.
+     */
+    public boolean end(String roomCode, Outcome outcome) {
+        if (!ending.add(roomCode)) {
+            duplicates.incrementAndGet();
+            return false;
+        }
+        long start = System.nanoTime();
+        System.out.println((outcome == Outcome.WON ? "🎉 VICTORIA" : "💀 GAME OVER") + " en sala " + roomCode);
+
+        RoomRuntime runtime = freeze(roomCode);
+        notifyClients(roomCode, runtime, outcome);
+        lastFreezeNanos = System.nanoTime() - start;
+        (outcome == Outcome.WON ? won : lost).incrementAndGet();
+
+        asyncExecutor.runAsync(() -> persistWithRetries(roomCode, outcome))
+                .exceptionally(e -> {
+                    // La tarea no llegó a ejecutarse (cola llena o apagado)
+                    persistFailures.incrementAndGet();
+                    ending.remove(roomCode);
+                    System.err.println("❌ No se pudo programar el guardado del fin de partida de " + roomCode);
+                    return null;
+                });
+        return true;
+    }
+
+    // ---- 1. Congelar ----
+
+    private RoomRuntime freeze(String roomCode) {
+        roomTickEngine.unregister(roomCode);
+        RoomRuntime runtime = activeRooms.deactivate(roomCode);
+        roomStateBroadcaster.forget(roomCode);
+        npcManager.cleanupRoom(roomCode);
+        if (runtime != null) {
+            // El guardado final sustituye a los cambios diferidos
+            playerStateWriteBehind.discard(runtime.getRoom().getPlayers());
+        }
+        return runtime;
+    }
+
+    // ---- 2. Notificar ----
+
+    private void notifyClients(String roomCode, RoomRuntime runtime, Outcome outcome) {
+        // Primero lo que quedó del último tick, para que el fin llegue el último
+        roomEvents.flushAndForget(roomCode, runtime);
+
+        experienceService.resetRoomXp(roomCode);
+
+        Map<String, Object> event = new HashMap<>();
+        event.put("type", outcome == Outcome.WON ? "GAME_WON" : "GAME_OVER");
+        event.put("roomCode", roomCode);
+        roomEvents.publish(roomCode, event);
+    }
+
+    // ---- 3. Persistir ----
+
+    private void persistWithRetries(String roomCode, Outcome outcome) {
+        long start = System.nanoTime();
+        try {
+            for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+                try {
+                    transaction.executeWithoutResult(status -> persist(roomCode, outcome));
+                    lastPersistNanos = System.nanoTime() - start;
+                    System.out.println("✅ Fin de partida persistido en sala " + roomCode);
+                    return;
+                } catch (Exception e) {
+                    if (attempt == maxAttempts) {
+                        persistFailures.incrementAndGet();
+                        System.err.println("❌ No se pudo persistir el fin de partida de " + roomCode
+                                + " tras " + attempt + " intentos: " + e.getMessage());
+                        return;
+                    }
+                    persistRetries.incrementAndGet();
+                    System.err.println("⚠️ Reintentando fin de partida de " + roomCode
+                            + " (intento " + attempt + "): " + e.getMessage());
+                    if (!sleep(retryBackoffMs * attempt)) {
+                        return;
+                    }
+                }
+            }
+        } finally {
+            ending.remove(roomCode);
+        }
+    }
+
+    private void persist(String roomCode, Outcome outcome) {
+        GameRoom room = gameRoomRepository.findWithPlayersByRoomCode(roomCode).orElse(null);
+        if (room == null) {
+            System.out.println("ℹ️ Sala " + roomCode + " ya no existe, nada que persistir");
+            return;
+        }
+
+        for (Player p : room.getPlayers()) {
+            UserAccount account = p.getUserAccount();
+            if (account != null) {
+                account.endSession();
+            }
+            p.setReady(false);
+            p.setHealth(Player.DEFAULT_HEALTH);
+            p.setX(0);
+            p.setY(0);
+            if (outcome == Outcome.LOST) {
+                // Derrota: los jugadores quedan libres y la sala desaparece
+                p.setHost(false);
+                p.setGameRoom(null);
+            }
+            playerRepository.save(p);
+        }
+
+        if (outcome == Outcome.WON) {
+            room.setGameStarted(false);
+            gameRoomRepository.save(room);
+            eventPublisher.publishEvent(RoomLifecycleEvent.ended(roomCode));
+            eventPublisher.publishEvent(LobbyEvent.gameEnded(room));
+        } else {
+            room.clearPlayers();
+            gameRoomRepository.delete(room);
+            eventPublisher.publishEvent(RoomLifecycleEvent.deleted(roomCode));
+            eventPublisher.publishEvent(LobbyEvent.roomDeleted(roomCode));
+        }
+    }
+
+    private static boolean sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("won", won.get());
+        stats.put("lost", lost.get());
+        stats.put("duplicateEnds", duplicates.get());
+        stats.put("ending", ending.size());
+        stats.put("persistRetries", persistRetries.get());
+        stats.put("persistFailures", persistFailures.get());
+        stats.put("lastFreezeMs", lastFreezeNanos / 1_000_000.0);
+        stats.put("lastPersistMs", lastPersistNanos / 1_000_000.0);
+        return stats;
+    }
+}
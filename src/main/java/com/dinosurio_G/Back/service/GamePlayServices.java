@@ -4,23 +4,28 @@ import com.dinosurio_G.Back.dto.PlayerHealthDTO;
 import com.dinosurio_G.Back.model.*;
 import com.dinosurio_G.Back.repository.GameRoomRepository;
 import com.dinosurio_G.Back.repository.PlayerRepository;
-import com.dinosurio_G.Back.service.core.LockManager;
+import com.dinosurio_G.Back.service.broadcast.RoomEventBatcher;
+import com.dinosurio_G.Back.service.broadcast.RoomSnapshot;
+import com.dinosurio_G.Back.service.broadcast.RoomStateBroadcaster;
+import com.dinosurio_G.Back.service.core.ActiveRoomRegistry;
+import com.dinosurio_G.Back.service.core.GameClock;
+import com.dinosurio_G.Back.service.core.PlayerIndex;
+import com.dinosurio_G.Back.service.core.PlayerStateWriteBehind;
+import com.dinosurio_G.Back.service.core.RoomChests;
+import com.dinosurio_G.Back.service.core.RoomRuntime;
 import com.dinosurio_G.Back.service.impl.ChestService;
 import com.dinosurio_G.Back.service.impl.GameMapService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Service
 public class GamePlayServices {
     private static final int CHEST_REWARD_XP = 150;
     private static final double CHEST_INTERACT_RADIUS = 50.0;
+    private static final long WHIP_COOLDOWN_MS = 1500;
 
     @Autowired
     private GameRoomRepository gameRoomRepository;
@@ -41,181 +46,144 @@ public class GamePlayServices {
     private ExperienceService experienceService;
 
     @Autowired
-    private LockManager lockManager;
+    private RoomStateBroadcaster roomStateBroadcaster;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private RoomEventBatcher roomEvents;
 
+    @Autowired
+    private ActiveRoomRegistry activeRooms;
+
+    @Autowired
+    private PlayerStateWriteBehind playerStateWriteBehind;
+
+    @Autowired
+    private GameEndPipeline gameEndPipeline;
 
-    // Caché de salas en memoria para mantener el estado de inputs
-    public final Map<String, GameRoom> roomCache = new ConcurrentHashMap<>();
 
     // Actualizar input del jugador (desde frontend)
     public void updatePlayerInput(String roomCode, String playerName,
                                   boolean arriba, boolean abajo,
                                   boolean izquierda, boolean derecha) {
-        GameRoom room = getOrLoadRoom(roomCode);
-        room.getPlayers().stream()
-                .filter(p -> p.getPlayerName().equals(playerName))
-                .findFirst()
-                .ifPresent(player -> {
-                    player.setInput(arriba, abajo, izquierda, derecha);
-                    System.out.println("✓ Input actualizado para " + playerName + ": " +
-                            (arriba?"↑":"") + (abajo?"↓":"") +
-                            (izquierda?"←":"") + (derecha?"→":""));
-                });
+        updatePlayerInput(roomCode, playerName, Player.inputMask(arriba, abajo, izquierda, derecha), 0);
     }
 
-    // Obtener o cargar sala en caché
-    private GameRoom getOrLoadRoom(String roomCode) {
-        return roomCache.computeIfAbsent(roomCode, code -> {
-            GameRoom room = gameRoomRepository.findByRoomCode(code)
-                    .orElseThrow(() -> new RuntimeException("La sala con código " + code + " no existe"));
-            System.out.println("✓ Sala " + roomCode + " cargada en memoria");
-            return room;
-        });
+    // Igual, con la máscara de input y la secuencia del cliente (0 si no la envía)
+    public void updatePlayerInput(String roomCode, String playerName, int inputMask, long seq) {
+        if (activeRooms.isActive(roomCode)) {
+            // Partida en curso: el input se aplica al inicio del próximo tick
+            postInput(roomCode, playerName, inputMask, seq);
+            return;
+        }
+
+        Player player = findPlayer(getOrLoadRoom(roomCode), playerName);
+        if (player != null) {
+            player.submitInput(inputMask, seq);
+            applyInput(player);
+        }
     }
 
-    // Loop global del juego (cada 50 ms) - CORREGIDO
-    @Transactional
-    @Scheduled(fixedRate = 50)
-    public void updateAllRooms() {
-        // Recargar salas activas desde DB
-        List<GameRoom> activeRooms = gameRoomRepository.findAll().stream()
-                .filter(GameRoom::isGameStarted)
-                .collect(Collectors.toList());
+    /**
+     * Camino rápido del input: solo toca la sala en memoria, nunca la BD.
+     * Devuelve el id del tick en curso, o -1 si la sala no está activa o el jugador no es de la sala.
+     */
+    public long postInput(String roomCode, String playerName, int inputMask, long seq) {
+        RoomRuntime runtime = activeRooms.get(roomCode);
+        Player player = runtime != null ? runtime.getPlayer(playerName) : null;
+        if (player == null) {
+            return -1;
+        }
+        player.submitInput(inputMask, seq);
+        GameClock clock = runtime.getClock();
+        return clock != null ? clock.getTickId() : 0;
+    }
 
-        // Actualizar caché con salas activas
-        activeRooms.forEach(room -> {
-            String roomCode = room.getRoomCode();
-            GameRoom cachedRoom = roomCache.get(roomCode);
+    private void applyInput(Player player) {
+        if (!player.latchInput()) return;
+        int input = player.getInputMask();
+        System.out.println("✓ Input actualizado para " + player.getPlayerName() + ": " +
+                ((input & Player.INPUT_ARRIBA) != 0 ? "↑" : "") + ((input & Player.INPUT_ABAJO) != 0 ? "↓" : "") +
+                ((input & Player.INPUT_IZQUIERDA) != 0 ? "←" : "") + ((input & Player.INPUT_DERECHA) != 0 ? "→" : ""));
+    }
 
-            if (cachedRoom != null) {
-                // Mantener inputs de la caché, actualizar resto desde DB
-                syncRoomFromDb(cachedRoom, room);
-            } else {
-                roomCache.put(roomCode, room);
+    // Jugador por nombre en una sala que no está en memoria (recorrido del roster)
+    private static Player findPlayer(GameRoom room, String playerName) {
+        for (Player p : room.getPlayers()) {
+            if (p.getPlayerName().equals(playerName)) {
+                return p;
             }
-        });
-
-        // Procesar cada sala en caché
-        roomCache.values().forEach(room -> {
-            if (!room.isGameStarted()) return;
+        }
+        return null;
+    }
 
-            // 1. Actualizar movimiento (usa inputs en memoria)
-            for (Player player : room.getPlayers()) {
-                if (player.isAlive()) {
-                    player.actualizar();
-                }
-            }
+    // Obtener la sala en memoria si está activa, o cargarla de la BD si no lo está
+    private GameRoom getOrLoadRoom(String roomCode) {
+        GameRoom room = activeRooms.getRoom(roomCode);
+        if (room != null) {
+            return room;
+        }
+        return gameRoomRepository.findWithPlayersByRoomCode(roomCode)
+                .orElseThrow(() -> new RuntimeException("La sala con código " + roomCode + " no existe"));
+    }
 
-            // 2. Persistir posiciones actualizadas
-            for (Player player : room.getPlayers()) {
-                if (player.isAlive()) {
-                    playerRepository.save(player);
-                }
-            }
+    // ===== Etapas del tick (las invoca RoomTickPipeline) =====
 
-            // 3. Revisar interacción con cofres
-            for (Player player : room.getPlayers()) {
-                if (player.isAlive()) {
-                    checkChestInteraction(room, player);
-                }
-            }
+    // Tomar el último input publicado por cada jugador (una lectura por jugador y tick)
+    public void applyPendingInputs(RoomRuntime runtime) {
+        PlayerIndex players = runtime.getPlayerIndex();
+        for (int slot = 0; slot < players.size(); slot++) {
+            applyInput(players.get(slot));
+        }
+    }
 
-            // 4. Ejecutar ataques automáticos por jugador
-            for (Player player : room.getPlayers()) {
-                if (player.isAlive()) {
-                    long now = System.currentTimeMillis();
-                    if (now - player.getLastAttackTime() >= 1500) {
-                        playerWhipAttack(room.getRoomCode(), player.getPlayerName());
-                    }
+    // Mover a los jugadores vivos y marcar para persistencia diferida solo a quien se movió
+    public void movePlayers(RoomRuntime runtime) {
+        for (Player player : runtime.getRoom().getPlayers()) {
+            if (player.isAlive()) {
+                double oldX = player.getX();
+                double oldY = player.getY();
+                player.actualizar();
+                if (player.getX() != oldX || player.getY() != oldY) {
+                    playerStateWriteBehind.markDirty(player);
                 }
             }
-
-            // 5. Verificar si la partida se ha perdido
-            checkGameOver(room.getRoomCode());
-
-            // 6. Enviar estado actualizado al frontend
-            broadcastGameState(room.getRoomCode());
-        });
-
-        // Limpiar salas inactivas del caché
-        roomCache.entrySet().removeIf(entry -> !entry.getValue().isGameStarted());
+        }
+        runtime.syncPlayerGrid();
     }
 
-    // Sincronizar datos de DB manteniendo inputs
-    private void syncRoomFromDb(GameRoom cachedRoom, GameRoom dbRoom) {
-        // Actualizar propiedades de la sala
-        cachedRoom.setGameStarted(dbRoom.isGameStarted());
-        cachedRoom.setMap(dbRoom.getMap());
-
-        // Sincronizar jugadores manteniendo inputs
-        for (Player dbPlayer : dbRoom.getPlayers()) {
-            cachedRoom.getPlayers().stream()
-                    .filter(p -> p.getId().equals(dbPlayer.getId()))
-                    .findFirst()
-                    .ifPresent(cachedPlayer -> {
-                        // Actualizar propiedades persistidas
-                        cachedPlayer.setHealth(dbPlayer.getHealth());
-                        // NO actualizar x, y ni inputs (se mantienen en memoria)
-                    });
+    // Ataques automáticos de látigo de cada jugador según su cooldown (tiempo simulado del tick).
+    // Se resuelven en el hilo de tick de la sala: salas distintas no comparten ningún lock.
+    public void runAutoAttacks(RoomRuntime runtime, long now) {
+        long start = System.nanoTime();
+        int attacks = 0;
+        PlayerIndex players = runtime.getPlayerIndex();
+        for (int slot = 0; slot < players.size(); slot++) {
+            Player player = players.get(slot);
+            if (player.isAlive() && now - player.getLastAttackTime() >= WHIP_COOLDOWN_MS) {
+                player.setLastAttackTime(now);
+                whipAttack(runtime.getRoomCode(), player);
+                attacks++;
+            }
         }
+        runtime.getCombatStats().record(System.nanoTime() - start, attacks);
     }
 
-    // Enviar estado del juego al frontend vía WebSocket
-    private void broadcastGameState(String roomCode) {
+    // Enviar estado del juego al frontend vía WebSocket (con el id del tick que lo produjo)
+    public void broadcastGameState(String roomCode, long tickId) {
         try {
             GameRoom room = getOrLoadRoom(roomCode);
 
-            // Preparar datos de jugadores
-            List<Map<String, Object>> playersData = room.getPlayers().stream()
-                    .map(p -> {
-                        Map<String, Object> playerData = new HashMap<>();
-                        playerData.put("playerName", p.getPlayerName());
-                        playerData.put("x", p.getX());
-                        playerData.put("y", p.getY());
-                        playerData.put("health", p.getHealth());
-                        playerData.put("maxHealth", Player.DEFAULT_HEALTH);
-                        playerData.put("alive", p.isAlive());
-                        playerData.put("direction", determineDirection(p));
-                        return playerData;
-                    })
-                    .collect(Collectors.toList());
-
-            // Preparar datos de NPCs
-            List<NPC> npcs = npcManager.getNpcsForRoom(roomCode);
-            List<Map<String, Object>> npcsData = npcs.stream()
-                    .filter(npc -> !npc.isDead())
-                    .map(npc -> {
-                        Map<String, Object> npcData = new HashMap<>();
-                        npcData.put("id", npc.getId());
-                        npcData.put("x", npc.getX());
-                        npcData.put("y", npc.getY());
-                        npcData.put("health", npc.getHealth());
-                        return npcData;
-                    })
-                    .collect(Collectors.toList());
+            // Foto del tick: una sola lectura de jugadores y NPCs para todos los formatos
+            RoomSnapshot snapshot = npcManager.readNpcs(roomCode,
+                    npcs -> RoomSnapshot.capture(room, tickId, npcs));
 
-            // Crear payload
-            Map<String, Object> gameState = new HashMap<>();
-            gameState.put("players", playersData);
-            gameState.put("npcs", npcsData);
-            gameState.put("timestamp", System.currentTimeMillis());
-
-            // Enviar por WebSocket
-            messagingTemplate.convertAndSend("/topic/game/" + roomCode + "/state", gameState);
+            roomStateBroadcaster.publish(snapshot);
 
         } catch (Exception e) {
             System.err.println("Error broadcasting game state: " + e.getMessage());
         }
     }
 
-    // Determinar dirección del jugador
-    private String determineDirection(Player player) {
-        return player.isFacingRight() ? "right" : "left";
-    }
-
     // Obtener vida actual de los jugadores
     public List<PlayerHealthDTO> getPlayersHealth(String roomCode) {
         GameRoom room = getOrLoadRoom(roomCode);
@@ -231,7 +199,7 @@ public class GamePlayServices {
 
     // Utilidad interna
     private GameRoom getRoomByCode(String roomCode) {
-        return gameRoomRepository.findByRoomCode(roomCode)
+        return gameRoomRepository.findWithPlayersByRoomCode(roomCode)
                 .orElseThrow(() -> new RuntimeException("La sala con código " + roomCode + " no existe"));
     }
 
@@ -284,9 +252,6 @@ public class GamePlayServices {
                     " en (" + (int)player.getX() + ", " + (int)player.getY() + ")");
         }
 
-        // Cargar sala en caché después del spawn
-        roomCache.put(roomCode, room);
-
         // Spawnear NPCs después
         npcManager.spawnInitialNpcs(roomCode);
         gameRoomRepository.save(room);
@@ -307,18 +272,13 @@ public class GamePlayServices {
         return getOrLoadRoom(roomCode);
     }
 
-    public synchronized void playerWhipAttack(String roomCode, String playerName) {
-        System.out.println(" Ejecutando ataque de " + playerName + " en sala " + roomCode);
-        GameRoom room = getOrLoadRoom(roomCode);
-        Player player = room.getPlayers().stream()
-                .filter(p -> p.getPlayerName().equals(playerName))
-                .findFirst()
-                .orElse(null);
-
+    private void whipAttack(String roomCode, Player player) {
         if (player == null || !player.isAlive()) {
             System.out.println(" Jugador no válido para atacar");
             return;
         }
+        String playerName = player.getPlayerName();
+        System.out.println(" Ejecutando ataque de " + playerName + " en sala " + roomCode);
 
         final double RANGE = 80.0;
         final double HEIGHT = 100.0;
@@ -327,54 +287,25 @@ public class GamePlayServices {
         double px = player.getX();
         double py = player.getY();
 
-        List<NPC> npcs = npcManager.getNpcsForRoom(roomCode);
-
-        if (npcs == null || npcs.isEmpty()) {
-            System.out.println(" No hay NPCs en la sala " + roomCode);
-            return;
-        }
-
-        boolean hitSomething = false;
-        int npcsHit = 0;
-
-        for (NPC npc : npcs) {
-            if (npc.isDead()) continue;
-
-            double nx = npc.getX();
-            double ny = npc.getY();
-
-            // Calcular hitbox según dirección
-            boolean inRange;
-            if (player.isFacingRight()) {
-                // Atacando hacia la derecha: de px hasta px+RANGE
-                inRange = nx >= px && nx <= (px + RANGE) &&
-                        ny >= (py - HEIGHT / 2) && ny <= (py + HEIGHT / 2);
-            } else {
-                // Atacando hacia la izquierda: de px-RANGE hasta px
-                inRange = nx <= px && nx >= (px - RANGE) &&
-                        ny >= (py - HEIGHT / 2) && ny <= (py + HEIGHT / 2);
-            }
-
-            if (inRange) {
-                hitSomething = true;
-                npcsHit++;
-
-                boolean killed = npc.receiveDamage(DAMAGE, player.getPlayerName());
+        // Hitbox del látigo según dirección: de px hasta px±RANGE
+        double minX = player.isFacingRight() ? px : px - RANGE;
+        double maxX = player.isFacingRight() ? px + RANGE : px;
+        int npcsHit = npcManager.hitNpcsInRect(roomCode, minX, py - HEIGHT / 2, maxX, py + HEIGHT / 2,
+                DAMAGE, playerName, (npcId, health, killed) -> {
+                    if (killed) {
+                        System.out.println(" " + playerName + " MATÓ un NPC #" + npcId);
 
-                if (killed) {
-                    System.out.println(" " + playerName + " MATÓ un NPC #" + npc.getId());
-
-                    Map<String, Object> event = new HashMap<>();
-                    event.put("type", "NPC_KILLED");
-                    event.put("npcId", npc.getId());
-                    event.put("killedBy", playerName);
-                    messagingTemplate.convertAndSend("/topic/game/" + roomCode + "/event", event);
-                } else {
-                    System.out.println(" " + playerName + " golpeó NPC #" + npc.getId() +
-                            " (HP: " + npc.getHealth() + "/" + DAMAGE + " daño)");
-                }
-            }
-        }
+                        Map<String, Object> event = new HashMap<>();
+                        event.put("type", "NPC_KILLED");
+                        event.put("npcId", npcId);
+                        event.put("killedBy", playerName);
+                        roomEvents.publish(roomCode, event);
+                    } else {
+                        System.out.println(" " + playerName + " golpeó NPC #" + npcId +
+                                " (HP: " + health + "/" + DAMAGE + " daño)");
+                    }
+                });
+        boolean hitSomething = npcsHit > 0;
 
         if (hitSomething) {
             System.out.println(" " + playerName + " impactó " + npcsHit + " NPC(s)");
@@ -385,137 +316,49 @@ public class GamePlayServices {
         }
     }
 
-    private void checkChestInteraction(GameRoom room, Player player) {
-        if (!player.isAlive()) return;
-
-        GameMap map = room.getMap();
-        if (map == null) return;
-
-        List<Chest> chests = chestService.findByMapId(map.getId());
-        for (Chest chest : chests) {
-            if (!chest.isActive()) continue;
-
-            double dx = chest.getPosition().getX() - player.getX();
-            double dy = chest.getPosition().getY() - player.getY();
-            double distance = Math.sqrt(dx * dx + dy * dy);
-
-            if (distance <= CHEST_INTERACT_RADIUS) {
-                lockManager.withLock("CHEST_" + chest.getId(), () -> {
-                    if (!chest.isActive()) return;
-                    boolean opened = chestService.tryOpenChest(chest.getId());
-                    if (opened) {
-                        addExperience(room.getRoomCode(), CHEST_REWARD_XP);
-                        System.out.println("📦 " + player.getPlayerName() + " abrió un cofre!");
-
-                        Map<String, Object> event = new HashMap<>();
-                        event.put("type", "CHEST_OPENED");
-                        event.put("chestId", chest.getId());
-                        event.put("openedBy", player.getPlayerName());
-                        messagingTemplate.convertAndSend("/topic/game/" + room.getRoomCode() + "/event", event);
-                    }
-                });
+    // Revisar interacción de los jugadores vivos con los cofres de la sala (en memoria, sin BD).
+    // Para cada cofre activo se busca en el grid el jugador vivo más cercano dentro del radio.
+    public void checkChestInteractions(RoomRuntime runtime) {
+        RoomChests chests = runtime.getChests();
+        if (chests.size() == 0) return;
+
+        for (Chest chest : chests.getActive()) {
+            int handle = runtime.getPlayerGrid().nearest(chest.getPosition().getX(), chest.getPosition().getY(),
+                    CHEST_INTERACT_RADIUS, h -> runtime.getPlayer(h).isAlive());
+            if (handle >= 0) {
+                openChest(runtime, runtime.getPlayer(handle), chest);
             }
         }
     }
 
-    private void onGameLost(String roomCode) {
-        GameRoom room = getOrLoadRoom(roomCode);
-
-        System.out.println("💀 GAME OVER en sala " + roomCode);
-
-        // 1. PRIMERO: Desactivar sesiones (esto es crítico)
-        for (Player p : room.getPlayers()) {
-            if (p.getUserAccount() != null) {
-                UserAccount account = p.getUserAccount();
-                account.endSession(); // Esto pone hasActiveSession = false
-                System.out.println("🔓 Sesión desactivada para " + p.getPlayerName() +
-                        " (hasActiveSession: " + account.isHasActiveSession() + ")");
-            }
-
-            // 2. Resetear propiedades del jugador
-            p.setReady(false);
-            p.setHealth(Player.DEFAULT_HEALTH);
-            p.setX(0);
-            p.setY(0);
-            p.setHost(false);
-            p.setGameRoom(null);
+    private void openChest(RoomRuntime runtime, Player player, Chest chest) {
+        if (!runtime.getChests().claim(chest)) return;
 
-            // 3. Guardar DESPUÉS de modificar UserAccount
-            playerRepository.save(p);
-        }
-
-        // 4. Limpiar lista de jugadores
-        room.getPlayers().clear();
+        String roomCode = runtime.getRoomCode();
+        addExperience(roomCode, CHEST_REWARD_XP);
+        System.out.println("📦 " + player.getPlayerName() + " abrió un cofre!");
 
-        // 5. Resetear XP
-        experienceService.resetRoomXp(roomCode);
-
-        // 6. Notificar Game Over
         Map<String, Object> event = new HashMap<>();
-        event.put("type", "GAME_OVER");
-        event.put("roomCode", roomCode);
-        messagingTemplate.convertAndSend("/topic/game/" + roomCode + "/event", event);
-
-        System.out.println("✅ GAME OVER procesado - Jugadores desvinculados");
+        event.put("type", "CHEST_OPENED");
+        event.put("chestId", chest.getId());
+        event.put("openedBy", player.getPlayerName());
+        roomEvents.publish(roomCode, event);
 
-        // 7. Limpiar sala del caché
-        roomCache.remove(roomCode);
+        chestService.markOpenedAsync(chest.getId());
+    }
 
-        // 8. Eliminar la sala de la base de datos
-        try {
-            gameRoomRepository.delete(room);
-            System.out.println("🗑️ Sala " + roomCode + " eliminada de la base de datos");
-        } catch (Exception e) {
-            System.err.println("❌ Error eliminando sala: " + e.getMessage());
-        }
+    // Derrota: la sala se congela y se notifica ya; la limpieza en BD va en segundo plano
+    private void onGameLost(String roomCode) {
+        gameEndPipeline.end(roomCode, GameEndPipeline.Outcome.LOST);
     }
 
     // AGREGAR método para victoria (cuando ganas)
-    @Transactional
     public void onGameWon(String roomCode) {
-        GameRoom room = getOrLoadRoom(roomCode);
-
-        System.out.println("🎉 VICTORIA en sala " + roomCode);
-
-        // 1. PRIMERO: Desactivar sesiones
-        for (Player p : room.getPlayers()) {
-            if (p.getUserAccount() != null) {
-                UserAccount account = p.getUserAccount();
-                account.endSession();
-                System.out.println("🔓 Sesión desactivada para " + p.getPlayerName() +
-                        " (hasActiveSession: " + account.isHasActiveSession() + ")");
-            }
-
-            // 2. Resetear jugador pero mantenerlo en sala
-            p.setReady(false);
-            p.setHealth(Player.DEFAULT_HEALTH);
-            p.setX(0);
-            p.setY(0);
-
-            playerRepository.save(p);
-        }
-
-        // 3. Marcar partida como terminada
-        room.setGameStarted(false);
-        gameRoomRepository.save(room);
-
-        // 4. Resetear XP
-        experienceService.resetRoomXp(roomCode);
-
-        // 5. Notificar victoria
-        Map<String, Object> event = new HashMap<>();
-        event.put("type", "GAME_WON");
-        event.put("roomCode", roomCode);
-        messagingTemplate.convertAndSend("/topic/game/" + roomCode + "/event", event);
-
-        // 6. Limpiar sala del caché
-        roomCache.remove(roomCode);
-
-        System.out.println("✅ Victoria procesada - Jugadores liberados");
+        gameEndPipeline.end(roomCode, GameEndPipeline.Outcome.WON);
     }
 
     // AGREGAR verificación en checkGameOver
-    private void checkGameOver(String roomCode) {
+    public void checkGameOver(String roomCode) {
         GameRoom room = getOrLoadRoom(roomCode);
 
         boolean allDead = room.getPlayers().stream()
@@ -531,20 +374,30 @@ public class GamePlayServices {
      * Obtiene los cofres activos de una sala (para el frontend)
      */
     public List<Map<String, Object>> getChestsForRoom(String roomCode) {
+        RoomRuntime runtime = activeRooms.get(roomCode);
+        if (runtime != null) {
+            // Partida en curso: los cofres activos están en memoria
+            return runtime.getChests().getActive().stream()
+                    .map(this::toChestData)
+                    .collect(Collectors.toList());
+        }
+
         GameRoom room = getRoomByCode(roomCode);
         if (room.getMap() == null) {
             return Collections.emptyList();
         }
 
         return chestService.findByMapId(room.getMap().getId()).stream()
-                .map(chest -> {
-                    Map<String, Object> chestData = new HashMap<>();
-                    chestData.put("id", chest.getId());
-                    chestData.put("x", chest.getPosition().getX());
-                    chestData.put("y", chest.getPosition().getY());
-                    chestData.put("active", chest.isActive());
-                    return chestData;
-                })
+                .map(this::toChestData)
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    private Map<String, Object> toChestData(Chest chest) {
+        Map<String, Object> chestData = new HashMap<>();
+        chestData.put("id", chest.getId());
+        chestData.put("x", chest.getPosition().getX());
+        chestData.put("y", chest.getPosition().getY());
+        chestData.put("active", chest.isActive());
+        return chestData;
+    }
+}
@@ -1,17 +1,30 @@
 package com.dinosurio_G.Back.service;
 
+import com.dinosurio_G.Back.dto.GameRoomDTO;
+import com.dinosurio_G.Back.dto.PlayerDTO;
 import com.dinosurio_G.Back.exception.GameConflictException;
 import com.dinosurio_G.Back.model.*;
 import com.dinosurio_G.Back.repository.GameRoomRepository;
 import com.dinosurio_G.Back.repository.PlayerRepository;
 import com.dinosurio_G.Back.repository.UserAccountRepository;
+import com.dinosurio_G.Back.service.broadcast.LobbyEvent;
+import com.dinosurio_G.Back.service.broadcast.RoomEventBatcher;
+import com.dinosurio_G.Back.service.core.RoomLifecycleEvent;
 import com.dinosurio_G.Back.service.impl.GameMapService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import com.dinosurio_G.Back.dto.GameRoomMapper;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -19,6 +32,8 @@ import java.util.UUID;
 @Service
 public class GameRoomService {
 
+    private static final int MAX_LOBBY_PAGE_SIZE = 100;
+
     @Autowired
     private GameRoomRepository gameRoomRepository;
 
@@ -34,12 +49,32 @@ public class GameRoomService {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Autowired
+    private RoomEventBatcher roomEvents;
+
     @Autowired
     private GamePlayServices gamePlayServices;
 
     @Autowired
     private ExperienceService experienceService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Al arrancar, corrige el contador de jugadores de las salas que ya existían
+     * antes de la columna player_count (o que quedaron descuadradas), para que el
+     * filtro de plazas libres del lobby y su índice den resultados correctos.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillPlayerCounts() {
+        int fixed = gameRoomRepository.recountPlayers();
+        if (fixed > 0) {
+            System.out.println("🔧 Contador de jugadores recalculado en " + fixed + " salas");
+        }
+    }
+
     /**
      * Crear una nueva sala
      * Ahora requiere que el host tenga una cuenta de usuario
@@ -64,12 +99,14 @@ public class GameRoomService {
 
             // Si la sala no está iniciada, limpiar automáticamente
             System.out.println(" Limpiando sala anterior (no iniciada) para " + playerName);
-            existingPlayer.setGameRoom(null);
+            currentRoom.removePlayer(existingPlayer);
             existingPlayer.setReady(false);
             existingPlayer.setHost(false);
             existingPlayer.setX(0);
             existingPlayer.setY(0);
             playerRepository.save(existingPlayer);
+            gameRoomRepository.save(currentRoom);
+            eventPublisher.publishEvent(LobbyEvent.playerLeft(currentRoom, playerName));
         }
 
         // Crear la sala
@@ -96,31 +133,70 @@ public class GameRoomService {
         }
 
         host.setHost(true);
-        host.setGameRoom(savedRoom);
         host.setReady(false);
+        savedRoom.addPlayer(host);
         playerRepository.save(host);
 
-        savedRoom.getPlayers().add(host);
-
         // ACTIVAR SESIÓN al crear sala
         hostAccount.startSession();
         userAccountRepository.save(hostAccount);
         System.out.println(" Sesión activada para " + playerName);
 
-        return gameRoomRepository.save(savedRoom);
+        GameRoom created = gameRoomRepository.save(savedRoom);
+        eventPublisher.publishEvent(LobbyEvent.roomCreated(created));
+        return created;
     }
 
-    // Listar todas las salas
-    public List<GameRoom> getAllRooms() {
-        return gameRoomRepository.findAll();
+    /**
+     * Página del lobby: dos consultas de proyección (salas de la página y sus jugadores),
+     * sin cargar entidades. started == null no filtra por estado; freeSlots deja
+     * solo salas con plazas libres. sort: newest (por defecto), oldest o players.
+     */
+    public Slice<GameRoomDTO> getLobby(Boolean started, boolean freeSlots, String sort, int page, int size) {
+        Pageable pageable = PageRequest.of(Math.max(page, 0),
+                Math.min(Math.max(size, 1), MAX_LOBBY_PAGE_SIZE), lobbySort(sort));
+        Slice<GameRoomDTO> rooms = gameRoomRepository.findLobbyPage(started, freeSlots, pageable);
+        attachPlayers(rooms.getContent());
+        return rooms;
     }
 
-    // Buscar sala por código
+    private static Sort lobbySort(String sort) {
+        if ("oldest".equalsIgnoreCase(sort)) {
+            return Sort.by(Sort.Direction.ASC, "id");
+        }
+        if ("players".equalsIgnoreCase(sort)) {
+            return Sort.by(Sort.Order.desc("playerCount"), Sort.Order.desc("id"));
+        }
+        return Sort.by(Sort.Direction.DESC, "id");
+    }
+
+    // Vista de una sala para el cliente, también por proyección
+    public GameRoomDTO getRoomDTO(String roomCode) {
+        GameRoomDTO room = gameRoomRepository.findSummaryByRoomCode(roomCode)
+                .orElseThrow(() -> new RuntimeException("La sala con código " + roomCode + " no existe"));
+        attachPlayers(List.of(room));
+        return room;
+    }
+
+    // Buscar sala por código (con jugadores y cuentas, para modificarla)
     public GameRoom getRoomByCode(String roomCode) {
-        return gameRoomRepository.findByRoomCode(roomCode)
+        return gameRoomRepository.findWithPlayersByRoomCode(roomCode)
                 .orElseThrow(() -> new RuntimeException("La sala con código " + roomCode + " no existe"));
     }
 
+    // Reparte entre las salas sus jugadores, leídos con una sola consulta
+    private void attachPlayers(List<GameRoomDTO> rooms) {
+        if (rooms.isEmpty()) return;
+
+        Map<Long, GameRoomDTO> byId = new HashMap<>();
+        for (GameRoomDTO room : rooms) {
+            byId.put(room.getId(), room);
+        }
+        for (PlayerDTO player : playerRepository.findDtosByRoomIds(byId.keySet())) {
+            byId.get(player.getRoomId()).getPlayers().add(player);
+        }
+    }
+
     /**
      * Unirse a una sala
      * Ahora requiere que el jugador tenga una cuenta de usuario
@@ -163,8 +239,9 @@ public class GameRoomService {
 
             // Si está en otra sala que NO ha empezado, limpiar automáticamente
             System.out.println(" Limpiando sala anterior (no iniciada) para " + playerName);
-            currentRoom.getPlayers().remove(player);
+            currentRoom.removePlayer(player);
             gameRoomRepository.save(currentRoom);
+            eventPublisher.publishEvent(LobbyEvent.playerLeft(currentRoom, playerName));
         }
 
         // VALIDACIÓN ANTI-SUPLANTACIÓN: Verificar si tiene sesión activa
@@ -190,6 +267,7 @@ public class GameRoomService {
             userAccount.startSession();
             userAccountRepository.save(userAccount);
             System.out.println(" Sesión activada para " + playerName);
+            eventPublisher.publishEvent(LobbyEvent.playerJoined(room, playerName));
         }
 
         return gameRoomRepository.save(room);
@@ -223,9 +301,12 @@ public class GameRoomService {
         GameRoom saved = gameRoomRepository.saveAndFlush(room);
         System.out.println(" GAME STARTED? -> " + saved.isGameStarted());
 
+        // Registrar la sala como activa (se aplica tras el commit)
+        eventPublisher.publishEvent(RoomLifecycleEvent.started(saved));
+        eventPublisher.publishEvent(LobbyEvent.gameStarted(saved));
+
         // 4) Notificar a todos los clientes que la partida empezó
-        messagingTemplate.convertAndSend("/topic/game/" + roomCode + "/event",
-                Map.of("type", "GAME_STARTED", "roomCode", roomCode));
+        roomEvents.publish(roomCode, Map.of("type", "GAME_STARTED", "roomCode", roomCode));
 
         // 5) Enviar estado completo inmediatamente
         messagingTemplate.convertAndSend("/topic/game/" + roomCode + "/state",
@@ -255,10 +336,11 @@ public class GameRoomService {
         }
 
         gameRoomRepository.save(room);
+        eventPublisher.publishEvent(RoomLifecycleEvent.ended(roomCode));
+        eventPublisher.publishEvent(LobbyEvent.gameEnded(room));
 
         // Notificar a los clientes
-        messagingTemplate.convertAndSend("/topic/game/" + roomCode + "/event",
-                Map.of("type", "GAME_ENDED", "roomCode", roomCode));
+        roomEvents.publish(roomCode, Map.of("type", "GAME_ENDED", "roomCode", roomCode));
     }
 
     /**
@@ -278,8 +360,7 @@ public class GameRoomService {
                 .orElseThrow(() -> new RuntimeException("Jugador no encontrado"));
 
         if (player.getGameRoom() != null && player.getGameRoom().getId().equals(room.getId())) {
-            room.getPlayers().remove(player);
-            player.setGameRoom(null);
+            room.removePlayer(player);
             player.setReady(false);
             player.setHost(false);
 
@@ -292,6 +373,7 @@ public class GameRoomService {
 
             playerRepository.save(player);
             gameRoomRepository.save(room);
+            eventPublisher.publishEvent(LobbyEvent.playerLeft(room, playerName));
 
             System.out.println(" " + playerName + " salió de la sala " + roomCode);
         }
@@ -314,6 +396,8 @@ public class GameRoomService {
         }
 
         gameRoomRepository.delete(room);
+        eventPublisher.publishEvent(RoomLifecycleEvent.deleted(roomCode));
+        eventPublisher.publishEvent(LobbyEvent.roomDeleted(roomCode));
         System.out.println(" Sala " + roomCode + " eliminada");
     }
 }
\ No newline at end of file
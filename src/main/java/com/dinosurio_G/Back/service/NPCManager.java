@@ -5,17 +5,18 @@ import com.dinosurio_G.Back.model.Player;
 import com.dinosurio_G.Back.model.Position;
 import com.dinosurio_G.Back.model.GameRoom;
 import com.dinosurio_G.Back.repository.GameRoomRepository;
-import com.dinosurio_G.Back.repository.PlayerRepository;
-import com.dinosurio_G.Back.service.core.LockManager;
+import com.dinosurio_G.Back.service.core.ActiveRoomRegistry;
+import com.dinosurio_G.Back.service.core.GameClock;
+import com.dinosurio_G.Back.service.core.NpcStore;
+import com.dinosurio_G.Back.service.core.NpcView;
+import com.dinosurio_G.Back.service.core.PlayerStateWriteBehind;
+import com.dinosurio_G.Back.service.core.RoomRuntime;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
 @Service
 public class NPCManager {
@@ -29,53 +30,103 @@ public class NPCManager {
     private static final int NPC_DAMAGE = 10;
     private static final double MELEE_RANGE = 10.0;
     private static final int XP_PER_KILL = 50;
+    private static final long NPC_ATTACK_COOLDOWN_MS = 800; // 0.8s entre ataques
 
     // Distancia de spawn aumentada y delay de inicio
     private static final double MIN_DIST_FROM_PLAYERS = 250.0; // Aumentado de 140 a 250
     private static final long GAME_START_GRACE_PERIOD_MS = 3000; // 3 segundos de gracia
 
-    private final Map<String, CopyOnWriteArrayList<NPC>> npcsByRoom = new ConcurrentHashMap<>();
-    private final Map<String, Long> gameStartTimes = new ConcurrentHashMap<>();
+    // NPCs por sala en formato SoA; todo acceso se sincroniza sobre el store
+    private final Map<String, NpcStore> npcsByRoom = new ConcurrentHashMap<>();
+    // Vista vacía para salas sin NPCs todavía (nunca se modifica)
+    private static final NpcView NO_NPCS = new NpcStore(NPC_SPEED, NPC_ATTACK_COOLDOWN_MS, RoomRuntime.GRID_CELL_SIZE);
     private final Random random = new Random();
 
     private final GameRoomRepository gameRoomRepository;
-    private final PlayerRepository playerRepository;
-    private final LockManager lockManager;
     private final ExperienceService experienceService;
+    private final ActiveRoomRegistry activeRooms;
+    private final PlayerStateWriteBehind playerStateWriteBehind;
 
     @Autowired
     public NPCManager(GameRoomRepository gameRoomRepository,
-                      PlayerRepository playerRepository,
                       ExperienceService experienceService,
-                      LockManager lockManager) {
+                      ActiveRoomRegistry activeRooms,
+                      PlayerStateWriteBehind playerStateWriteBehind) {
         this.gameRoomRepository = gameRoomRepository;
-        this.playerRepository = playerRepository;
-        this.lockManager = lockManager;
         this.experienceService = experienceService;
+        this.activeRooms = activeRooms;
+        this.playerStateWriteBehind = playerStateWriteBehind;
     }
 
+    /**
+     * Copia de los NPCs vivos de la sala (para endpoints HTTP, no para el tick).
+     */
     public List<NPC> getNpcsForRoom(String roomCode) {
-        return npcsByRoom.computeIfAbsent(roomCode, k -> new CopyOnWriteArrayList<>());
+        NpcStore store = getStore(roomCode);
+        synchronized (store) {
+            List<NPC> npcs = new ArrayList<>(store.size());
+            for (int i = 0; i < store.size(); i++) {
+                if (!store.isDead(i)) {
+                    npcs.add(new NPC(String.valueOf(store.getId(i)), store.getX(i), store.getY(i),
+                            store.getHealth(i), NPC_SPEED));
+                }
+            }
+            return npcs;
+        }
+    }
+
+    /**
+     * Acceso de solo lectura a los NPCs de la sala sin copiarlos (snapshot del tick).
+     * Si la sala no tiene NPCs el lector recibe una vista vacía.
+     */
+    public <T> T readNpcs(String roomCode, Function<NpcView, T> reader) {
+        NpcStore store = npcsByRoom.get(roomCode);
+        if (store == null) return reader.apply(NO_NPCS);
+        synchronized (store) {
+            return reader.apply(store);
+        }
+    }
+
+    /**
+     * Daña a los NPCs vivos cuya posición cae dentro del rectángulo (consulta sobre el grid).
+     * Devuelve cuántos fueron golpeados.
+     */
+    public int hitNpcsInRect(String roomCode, double minX, double minY, double maxX, double maxY,
+                             int damage, String playerName, NpcHitListener listener) {
+        NpcStore store = npcsByRoom.get(roomCode);
+        if (store == null) return 0;
+        int[] hits = {0};
+        synchronized (store) {
+            store.getGrid().queryRect(minX, minY, maxX, maxY, id -> {
+                int index = store.indexOf(id);
+                if (index < 0 || store.isDead(index)) return;
+                boolean killed = store.damage(index, damage, playerName);
+                hits[0]++;
+                listener.onHit(id, store.getHealth(index), killed);
+            });
+        }
+        return hits[0];
+    }
+
+    @FunctionalInterface
+    public interface NpcHitListener {
+        void onHit(int npcId, int remainingHealth, boolean killed);
     }
 
     public void spawnInitialNpcs(String roomCode) {
         GameRoom room = gameRoomRepository.findByRoomCode(roomCode).orElse(null);
         if (room == null || room.getMap() == null) return;
 
-        CopyOnWriteArrayList<NPC> list = getMutableList(roomCode);
+        NpcStore store = getStore(roomCode);
 
         // VERIFICAR SI YA HAY NPCs SPAWNEADOS
-        if (!list.isEmpty()) {
-            System.out.println("Ya hay " + list.size() + " NPCs en la sala " + roomCode);
+        if (store.size() > 0) {
+            System.out.println("Ya hay " + store.size() + " NPCs en la sala " + roomCode);
             return;
         }
 
-        // Registrar el tiempo de inicio del juego
-        gameStartTimes.put(roomCode, System.currentTimeMillis());
-        System.out.println("Período de gracia iniciado para sala " + roomCode);
-
-        synchronized (list) {
-            int toSpawn = Math.min(NPC_INITIAL, NPC_MAX - list.size());
+        synchronized (store) {
+            int toSpawn = Math.min(NPC_INITIAL, NPC_MAX - store.size());
             int attemptsLimit = 50;
 
             for (int i = 0; i < toSpawn; i++) {
@@ -93,13 +144,12 @@ public class NPCManager {
                     pos = getEdgePosition(room.getMap());
                 }
 
-                NPC npc = new NPC(pos.getX(), pos.getY(), NPC_HEALTH, NPC_SPEED);
-                list.add(npc);
+                store.spawn(pos.getX(), pos.getY(), NPC_HEALTH);
                 System.out.println("NPC " + (i+1) + "/" + toSpawn + " spawneado en (" +
                         (int)pos.getX() + ", " + (int)pos.getY() + ")");
             }
         }
-        System.out.println("Total NPCs en sala " + roomCode + ": " + list.size());
+        System.out.println("Total NPCs en sala " + roomCode + ": " + store.size());
     }
 
     // Método para spawnear en los bordes del mapa (zona segura)
@@ -130,12 +180,13 @@ public class NPCManager {
     }
 
     public void trySpawnBatch(String roomCode) {
-        CopyOnWriteArrayList<NPC> list = getMutableList(roomCode);
-        GameRoom room = gameRoomRepository.findByRoomCode(roomCode).orElse(null);
-        if (room == null || room.getMap() == null) return;
+        NpcStore store = getStore(roomCode);
+        RoomRuntime runtime = activeRooms.get(roomCode);
+        if (runtime == null || runtime.getRoom().getMap() == null) return;
+        GameRoom room = runtime.getRoom();
 
-        synchronized (list) {
-            int space = NPC_MAX - list.size();
+        synchronized (store) {
+            int space = NPC_MAX - store.size();
             if (space <= 0) return;
             int toSpawn = Math.min(NPC_BATCH, space);
             int attemptsLimit = 50;
@@ -145,19 +196,19 @@ public class NPCManager {
                 int attempts = 0;
                 while (attempts++ < attemptsLimit) {
                     Position candidate = room.getMap().randomValidPosition(random);
-                    if (isFarFromPlayers(candidate, room)) {
+                    if (!runtime.getPlayerGrid().anyWithin(candidate.getX(), candidate.getY(), MIN_DIST_FROM_PLAYERS)) {
                         pos = candidate;
                         break;
                     }
                 }
                 if (pos == null) pos = getEdgePosition(room.getMap());
 
-                NPC npc = new NPC(pos.getX(), pos.getY(), NPC_HEALTH, NPC_SPEED);
-                list.add(npc);
+                store.spawn(pos.getX(), pos.getY(), NPC_HEALTH);
             }
         }
     }
 
+    // Solo para el spawn inicial, antes de que la sala tenga grid de jugadores en uso
     private boolean isFarFromPlayers(Position p, GameRoom room) {
         double px = p.getX();
         double py = p.getY();
@@ -170,120 +221,104 @@ public class NPCManager {
         return true;
     }
 
-    private CopyOnWriteArrayList<NPC> getMutableList(String roomCode) {
-        return npcsByRoom.computeIfAbsent(roomCode, k -> new CopyOnWriteArrayList<>());
+    private NpcStore getStore(String roomCode) {
+        return npcsByRoom.computeIfAbsent(roomCode,
+                k -> new NpcStore(NPC_SPEED, NPC_ATTACK_COOLDOWN_MS, RoomRuntime.GRID_CELL_SIZE));
     }
 
-    @Transactional
-    @Scheduled(fixedRate = 50)
-    public void updateAllRoomsNpcs() {
-        List<String> roomCodes = new ArrayList<>(npcsByRoom.keySet());
-
-        for (String roomCode : roomCodes) {
-            GameRoom room = gameRoomRepository.findByRoomCode(roomCode).orElse(null);
-            if (room == null) {
-                npcsByRoom.remove(roomCode);
-                gameStartTimes.remove(roomCode);
-                continue;
-            }
-            if (!room.isGameStarted()) continue;
-
-            // Verificar período de gracia
-            Long startTime = gameStartTimes.get(roomCode);
-            if (startTime != null) {
-                long elapsedTime = System.currentTimeMillis() - startTime;
-                if (elapsedTime < GAME_START_GRACE_PERIOD_MS) {
-                    // Durante el período de gracia, solo mover NPCs, NO atacar
-                    updateNpcsMovementOnly(roomCode, room);
-                    continue;
+    /**
+     * IA de los NPCs de una sala para un tick: persiguen al jugador vivo más cercano
+     * y, pasado el período de gracia, le atacan cuerpo a cuerpo.
+     */
+    public void updateRoomNpcs(RoomRuntime runtime, long now) {
+        String roomCode = runtime.getRoomCode();
+        NpcStore store = npcsByRoom.get(roomCode);
+        if (store == null) return;
+
+        // Durante el período de gracia, solo mover NPCs, NO atacar. Se mide en tiempo
+        // simulado desde el primer tick de la sala, el mismo reloj que usa "now"
+        GameClock clock = runtime.getClock();
+        boolean gracePeriod = clock != null
+                && clock.getTickId() * clock.getPeriodMs() < GAME_START_GRACE_PERIOD_MS;
+
+        synchronized (store) {
+            for (int i = 0; i < store.size(); i++) {
+                if (store.isDead(i)) continue;
+                Player target = findNearestPlayer(store.getX(i), store.getY(i), runtime);
+                if (target == null) continue;
+
+                store.moveTowards(i, target.getX(), target.getY());
+                if (gracePeriod) continue;
+
+                boolean attacked = store.tryAttack(i, target, NPC_DAMAGE, MELEE_RANGE, now);
+                if (attacked) {
+                    playerStateWriteBehind.markDirty(target);
+                    System.out.println("⚔️ NPC atacó a " + target.getPlayerName() +
+                            " - Vida restante: " + target.getHealth());
                 }
             }
+        }
+    }
 
-            // Después del período de gracia, comportamiento normal
-            CopyOnWriteArrayList<NPC> list = getMutableList(roomCode);
-            if (list.isEmpty()) continue;
-
-            List<Player> players = room.getPlayers().stream()
-                    .filter(Player::isAlive)
-                    .collect(Collectors.toList());
-
-            for (NPC npc : list) {
-                if (npc.isDead()) continue;
-                Player target = findNearestPlayer(npc, players);
-                if (target != null) {
-                    npc.moveTowards(target.getX(), target.getY());
-                    boolean attacked = npc.tryAttack(target, NPC_DAMAGE, MELEE_RANGE);
-                    if (attacked) {
-                        playerRepository.save(target);
-                        System.out.println("⚔️ NPC atacó a " + target.getPlayerName() +
-                                " - Vida restante: " + target.getHealth());
+    /**
+     * Retira los NPCs muertos de una sala, otorga su XP y repone si quedan pocos.
+     */
+    public void removeDeadNpcs(String roomCode) {
+        NpcStore store = npcsByRoom.get(roomCode);
+        if (store == null) return;
+
+        // Limpiar NPCs muertos (hacia atrás: el borrado mueve el último al hueco)
+        List<String> killers = new ArrayList<>();
+        int remaining;
+        synchronized (store) {
+            for (int i = store.size() - 1; i >= 0; i--) {
+                if (store.isDead(i)) {
+                    String killer = store.getLastHitBy(i);
+                    if (killer != null) {
+                        killers.add(killer);
                     }
+                    store.removeAt(i);
                 }
             }
+            remaining = store.size();
+        }
 
-            // Limpiar NPCs muertos y dar XP
-            List<NPC> toRemove = new ArrayList<>();
-            for (NPC npc : list) {
-                if (npc.isDead()) {
-                    String killer = npc.getLastHitBy();
-                    if (npc.markXpAwarded() && killer != null) {
-                        lockManager.withLock("room_" + roomCode, () -> {
-                            experienceService.addExperience(roomCode, XP_PER_KILL);
-                            System.out.println(" " + killer + " ganó " + XP_PER_KILL + " XP");
-                        });
-                    }
-                    toRemove.add(npc);
-                }
-            }
-            if (!toRemove.isEmpty()) {
-                list.removeAll(toRemove);
+        // Dar XP fuera del lock del store: puede terminar la partida.
+        // Una sola suma por tick con todas las muertes (la barra es lock-free)
+        if (!killers.isEmpty()) {
+            for (String killer : killers) {
+                System.out.println(" " + killer + " ganó " + XP_PER_KILL + " XP");
             }
+            experienceService.addExperience(roomCode, XP_PER_KILL * killers.size());
+        }
 
-            // Respawnear NPCs si hay pocos
-            if (list.size() < NPC_INITIAL) {
-                trySpawnBatch(roomCode);
-            }
+        // Respawnear NPCs si hay pocos (la partida pudo terminar al sumar la XP)
+        if (remaining < NPC_INITIAL && activeRooms.isActive(roomCode)) {
+            trySpawnBatch(roomCode);
         }
     }
 
-    // Método para mover NPCs sin atacar (período de gracia)
-    private void updateNpcsMovementOnly(String roomCode, GameRoom room) {
-        CopyOnWriteArrayList<NPC> list = getMutableList(roomCode);
-        if (list.isEmpty()) return;
-
-        List<Player> players = room.getPlayers().stream()
-                .filter(Player::isAlive)
-                .collect(Collectors.toList());
-
-        for (NPC npc : list) {
-            if (npc.isDead()) continue;
-            Player target = findNearestPlayer(npc, players);
-            if (target != null) {
-                // Solo mover, NO atacar
-                npc.moveTowards(target.getX(), target.getY());
-            }
+    /**
+     * Libera los ids de los NPCs retirados; solo después de que el frame del tick haya salido.
+     */
+    public void recycleNpcIds(String roomCode) {
+        NpcStore store = npcsByRoom.get(roomCode);
+        if (store == null) return;
+        synchronized (store) {
+            store.recycleRetiredIds();
         }
     }
 
-    private Player findNearestPlayer(NPC npc, List<Player> players) {
-        Player best = null;
-        double bestDist = Double.MAX_VALUE;
-        for (Player p : players) {
-            double dx = p.getX() - npc.getX();
-            double dy = p.getY() - npc.getY();
-            double d = Math.sqrt(dx*dx + dy*dy);
-            if (d < bestDist) {
-                bestDist = d;
-                best = p;
-            }
-        }
-        return best;
+    // Jugador vivo más cercano según el grid de jugadores de la sala
+    private Player findNearestPlayer(double x, double y, RoomRuntime runtime) {
+        int handle = runtime.getPlayerGrid().nearest(x, y, Double.POSITIVE_INFINITY,
+                h -> runtime.getPlayer(h).isAlive());
+        return handle >= 0 ? runtime.getPlayer(handle) : null;
     }
 
     // Método para limpiar sala cuando termina el juego
     public void cleanupRoom(String roomCode) {
         npcsByRoom.remove(roomCode);
-        gameStartTimes.remove(roomCode);
         System.out.println("Sala " + roomCode + " limpiada");
     }
-}
\ No newline at end of file
+}
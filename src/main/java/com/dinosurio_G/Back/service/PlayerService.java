@@ -4,7 +4,9 @@ import com.dinosurio_G.Back.model.GameRoom;
 import com.dinosurio_G.Back.model.Player;
 import com.dinosurio_G.Back.repository.GameRoomRepository;
 import com.dinosurio_G.Back.repository.PlayerRepository;
+import com.dinosurio_G.Back.service.broadcast.LobbyEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -15,11 +17,14 @@ public class PlayerService {
 
     private final PlayerRepository playerRepository;
     private final GameRoomRepository gameRoomRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public PlayerService(PlayerRepository playerRepository, GameRoomRepository gameRoomRepository) {
+    public PlayerService(PlayerRepository playerRepository, GameRoomRepository gameRoomRepository,
+                         ApplicationEventPublisher eventPublisher) {
         this.playerRepository = playerRepository;
         this.gameRoomRepository = gameRoomRepository;
+        this.eventPublisher = eventPublisher;
     }
 
 
@@ -55,7 +60,9 @@ public class PlayerService {
                 .orElseThrow(() -> new RuntimeException("Jugador no encontrado en la sala"));
 
         player.setReady(!player.isReady()); // Cambia el estado
-        return playerRepository.save(player);
+        Player saved = playerRepository.save(player);
+        eventPublisher.publishEvent(LobbyEvent.readyToggled(roomCode, playerName, saved.isReady()));
+        return saved;
     }
 
     // Se encarga de eliminar jugador de una sala (opcional para futuro)
@@ -0,0 +1,137 @@
+package com.dinosurio_G.Back.service;
+
+import com.dinosurio_G.Back.model.Chest;
+import com.dinosurio_G.Back.model.GameRoom;
+import com.dinosurio_G.Back.repository.GameRoomRepository;
+import com.dinosurio_G.Back.service.broadcast.RoomEventBatcher;
+import com.dinosurio_G.Back.service.broadcast.RoomStateBroadcaster;
+import com.dinosurio_G.Back.service.core.ActiveRoomRegistry;
+import com.dinosurio_G.Back.service.core.PlayerStateWriteBehind;
+import com.dinosurio_G.Back.service.core.RoomLifecycleEvent;
+import com.dinosurio_G.Back.service.core.RoomRuntime;
+import com.dinosurio_G.Back.service.core.RoomTickEngine;
+import com.dinosurio_G.Back.service.impl.ChestService;
+import com.dinosurio_G.Back.service.pipeline.RoomTickPipeline;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Mantiene el registro de salas activas y el motor de ticks sincronizados
+ * con los eventos de ciclo de vida de las salas.
+ */
+@Component
+public class RoomLifecycleListener {
+
+    @Autowired
+    private ActiveRoomRegistry activeRooms;
+
+    @Autowired
+    private RoomTickEngine roomTickEngine;
+
+    @Autowired
+    private RoomTickPipeline roomTickPipeline;
+
+    @Autowired
+    private NPCManager npcManager;
+
+    @Autowired
+    private GameRoomRepository gameRoomRepository;
+
+    @Autowired
+    private PlayerStateWriteBehind playerStateWriteBehind;
+
+    @Autowired
+    private RoomStateBroadcaster roomStateBroadcaster;
+
+    @Autowired
+    private RoomEventBatcher roomEventBatcher;
+
+    @Autowired
+    private ChestService chestService;
+
+    private final TransactionTemplate freshRead;
+
+    @Autowired
+    public RoomLifecycleListener(PlatformTransactionManager transactionManager) {
+        // Lectura en un EntityManager propio: la sala en memoria no debe quedar ligada
+        // al contexto de persistencia de la petición que inició la partida
+        this.freshRead = new TransactionTemplate(transactionManager);
+        this.freshRead.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.freshRead.setReadOnly(true);
+    }
+
+    /**
+     * Se ejecuta tras el commit de la transacción que publicó el evento
+     * (o de inmediato si no había transacción, p. ej. desde el tick).
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRoomLifecycle(RoomLifecycleEvent event) {
+        String roomCode = event.getRoomCode();
+
+        switch (event.getType()) {
+            case STARTED -> {
+                GameRoom room = freshRead.execute(status ->
+                        gameRoomRepository.findForTickByRoomCode(roomCode).orElse(null));
+                if (room != null && room.isGameStarted()) {
+                    activate(room);
+                }
+            }
+            case ENDED, DELETED -> {
+                deactivate(roomCode);
+                npcManager.cleanupRoom(roomCode);
+            }
+        }
+    }
+
+    /**
+     * Al arrancar, recupera las partidas que quedaron en curso (única consulta a BD).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreActiveRooms() {
+        List<GameRoom> started = gameRoomRepository.findForTickByGameStartedTrue();
+        started.forEach(this::activate);
+        if (!started.isEmpty()) {
+            System.out.println("✓ " + started.size() + " sala(s) en curso restauradas en memoria");
+        }
+    }
+
+    private void activate(GameRoom room) {
+        String roomCode = room.getRoomCode();
+        RoomRuntime runtime = activeRooms.activate(room);
+        loadChests(runtime);
+        roomTickEngine.register(roomCode, () -> roomTickPipeline.tick(roomCode));
+    }
+
+    /**
+     * Carga una sola vez los cofres activos de la sala; a partir de aquí
+     * el spawner y el tick trabajan sobre el conjunto en memoria.
+     */
+    private void loadChests(RoomRuntime runtime) {
+        GameRoom room = runtime.getRoom();
+        if (room.getMap() == null) return;
+
+        Long mapId = room.getMap().getId();
+        List<Chest> chests = freshRead.execute(status -> chestService.findByMapId(mapId));
+        runtime.getChests().load(chests);
+    }
+
+    private void deactivate(String roomCode) {
+        roomTickEngine.unregister(roomCode);
+        RoomRuntime runtime = activeRooms.deactivate(roomCode);
+        roomStateBroadcaster.forget(roomCode);
+        // Los eventos del último tick (p. ej. GAME_OVER) no llegan a la etapa de broadcast
+        roomEventBatcher.flushAndForget(roomCode, runtime);
+        if (runtime != null) {
+            // Volcar lo que quede pendiente de la partida
+            playerStateWriteBehind.flush(runtime.getRoom().getPlayers());
+        }
+    }
+}
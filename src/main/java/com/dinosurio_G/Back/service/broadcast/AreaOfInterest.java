@@ -0,0 +1,55 @@
+package com.dinosurio_G.Back.service.broadcast;
+
+import com.dinosurio_G.Back.service.core.SpatialHashGrid;
+
+import java.util.BitSet;
+
+/**
+ * Filtro de área de interés con histéresis: un NPC entra en la vista de un
+ * jugador al acercarse a enterRadius y no sale hasta alejarse más de exitRadius,
+ * para que un NPC en el borde no aparezca y desaparezca en cada frame.
+ */
+public final class AreaOfInterest {
+
+    private final double enterRadius;
+    private final double exitRadius;
+
+    public AreaOfInterest(double enterRadius, double hysteresis) {
+        this.enterRadius = enterRadius;
+        this.exitRadius = enterRadius + Math.max(0, hysteresis);
+    }
+
+    /**
+     * Si el radio cubre todo el mapa no hace falta filtrar.
+     */
+    public boolean coversMap(int mapWidth, int mapHeight) {
+        if (mapWidth <= 0 || mapHeight <= 0) return false;
+        return enterRadius >= Math.hypot(mapWidth, mapHeight);
+    }
+
+    /**
+     * Marca en el resultado los índices de NPC del snapshot visibles desde (x, y)
+     * y actualiza visibleIds (ids vistos en el frame anterior) para el siguiente.
+     */
+    public BitSet select(RoomSnapshot s, double x, double y, BitSet visibleIds) {
+        BitSet mask = new BitSet(s.npcCount);
+        SpatialHashGrid grid = s.npcGrid();
+        double enter2 = enterRadius * enterRadius;
+
+        grid.queryRadius(x, y, exitRadius, i -> {
+            double dx = s.npcX[i] - x, dy = s.npcY[i] - y;
+            if (dx * dx + dy * dy <= enter2 || visibleIds.get(s.npcId[i])) {
+                mask.set(i);
+            }
+        });
+
+        visibleIds.clear();
+        for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
+            visibleIds.set(s.npcId[i]);
+        }
+        return mask;
+    }
+
+    public double getEnterRadius() { return enterRadius; }
+    public double getExitRadius() { return exitRadius; }
+}
@@ -0,0 +1,138 @@
+package com.dinosurio_G.Back.service.broadcast;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+
+/**
+ * Recuerda lo último transmitido de cada entidad de una sala y calcula el delta
+ * del siguiente snapshot. Compara valores cuantizados (los mismos que viajan en
+ * el frame binario), así un movimiento menor que la resolución no genera tráfico
+ * y uno lento acaba enviándose en cuanto acumula un cuarto de píxel.
+ * La línea base solo avanza con lo que se envía. No es thread-safe: lo usa el
+ * hilo de tick de la sala.
+ */
+public final class DeltaTracker {
+
+    private static final int INITIAL_CAPACITY = 32;
+
+    // Jugadores por slot
+    private String[] names = new String[0];
+    private int[] playerQx = new int[0];
+    private int[] playerQy = new int[0];
+    private int[] playerHealth = new int[0];
+    private int[] playerFlags = new int[0];
+    private int[] playerAck = new int[0];
+
+    // NPCs por id (los ids se reutilizan, así que los arrays están acotados)
+    private final BitSet npcKnown = new BitSet();
+    private int[] npcQx = new int[INITIAL_CAPACITY];
+    private int[] npcQy = new int[INITIAL_CAPACITY];
+    private int[] npcHealth = new int[INITIAL_CAPACITY];
+    private final BitSet npcSeen = new BitSet();
+
+    private boolean hasBaseline;
+
+    /**
+     * Calcula qué enviar del snapshot y avanza la línea base. Si el roster de
+     * jugadores cambió o aún no hay base, se convierte en keyframe.
+     */
+    public StateDelta diff(RoomSnapshot s, boolean forceKeyframe) {
+        return diff(s, forceKeyframe, null);
+    }
+
+    /**
+     * Igual que diff, pero solo con los NPCs del snapshot marcados en npcMask
+     * (null = todos). Un NPC que sale de la máscara se notifica como eliminado.
+     */
+    public StateDelta diff(RoomSnapshot s, boolean forceKeyframe, BitSet npcMask) {
+        boolean keyframe = forceKeyframe || !hasBaseline || rosterChanged(s);
+        if (keyframe) {
+            resetBaseline(s.playerCount);
+        }
+
+        int[] changedPlayers = new int[s.playerCount];
+        int changedPlayerCount = 0;
+        for (int i = 0; i < s.playerCount; i++) {
+            int slot = s.playerSlot[i];
+            int qx = StateFrameEncoder.quantize(s.playerX[i]) & 0xFFFF;
+            int qy = StateFrameEncoder.quantize(s.playerY[i]) & 0xFFFF;
+            int hp = StateFrameEncoder.clampByte(s.playerHealth[i]) & 0xFF;
+            int flags = StateFrameEncoder.playerFlags(s.playerAlive[i], s.playerFacingRight[i]);
+            int ack = (int) (s.playerInputSeq[i] & 0xFFFF);
+            if (keyframe || qx != playerQx[slot] || qy != playerQy[slot]
+                    || hp != playerHealth[slot] || flags != playerFlags[slot] || ack != playerAck[slot]) {
+                names[slot] = s.playerName[i];
+                playerQx[slot] = qx;
+                playerQy[slot] = qy;
+                playerHealth[slot] = hp;
+                playerFlags[slot] = flags;
+                playerAck[slot] = ack;
+                changedPlayers[changedPlayerCount++] = i;
+            }
+        }
+
+        int[] changedNpcs = new int[s.npcCount];
+        int changedNpcCount = 0;
+        npcSeen.clear();
+        for (int i = 0; i < s.npcCount; i++) {
+            if (npcMask != null && !npcMask.get(i)) continue;
+            int id = s.npcId[i];
+            ensureNpcCapacity(id);
+            int qx = StateFrameEncoder.quantize(s.npcX[i]) & 0xFFFF;
+            int qy = StateFrameEncoder.quantize(s.npcY[i]) & 0xFFFF;
+            int hp = StateFrameEncoder.clampByte(s.npcHealth[i]) & 0xFF;
+            npcSeen.set(id);
+            if (keyframe || !npcKnown.get(id) || qx != npcQx[id] || qy != npcQy[id] || hp != npcHealth[id]) {
+                npcKnown.set(id);
+                npcQx[id] = qx;
+                npcQy[id] = qy;
+                npcHealth[id] = hp;
+                changedNpcs[changedNpcCount++] = i;
+            }
+        }
+
+        // Los que conocía el cliente y ya no están
+        int[] removed = new int[0];
+        int removedCount = 0;
+        if (!keyframe) {
+            BitSet gone = (BitSet) npcKnown.clone();
+            gone.andNot(npcSeen);
+            removed = new int[gone.cardinality()];
+            for (int id = gone.nextSetBit(0); id >= 0; id = gone.nextSetBit(id + 1)) {
+                removed[removedCount++] = id;
+                npcKnown.clear(id);
+            }
+        }
+
+        hasBaseline = true;
+        return new StateDelta(keyframe, changedPlayers, changedPlayerCount,
+                changedNpcs, changedNpcCount, removed, removedCount);
+    }
+
+    private boolean rosterChanged(RoomSnapshot s) {
+        if (s.playerCount != names.length) return true;
+        for (int i = 0; i < s.playerCount; i++) {
+            if (!Objects.equals(names[s.playerSlot[i]], s.playerName[i])) return true;
+        }
+        return false;
+    }
+
+    private void resetBaseline(int players) {
+        names = new String[players];
+        playerQx = new int[players];
+        playerQy = new int[players];
+        playerHealth = new int[players];
+        playerFlags = new int[players];
+        playerAck = new int[players];
+        npcKnown.clear();
+    }
+
+    private void ensureNpcCapacity(int id) {
+        if (id < npcQx.length) return;
+        int capacity = Math.max(npcQx.length * 2, id + 1);
+        npcQx = Arrays.copyOf(npcQx, capacity);
+        npcQy = Arrays.copyOf(npcQy, capacity);
+        npcHealth = Arrays.copyOf(npcHealth, capacity);
+    }
+}
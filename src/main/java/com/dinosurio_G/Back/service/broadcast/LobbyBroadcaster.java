@@ -0,0 +1,93 @@
+package com.dinosurio_G.Back.service.broadcast;
+
+import com.dinosurio_G.Back.service.GameRoomService;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lobby por push en lugar de sondear /api/rooms.
+ * <pre>
+ *   SUBSCRIBE /topic/lobby       → {"type":"PLAYER_JOINED","seq":N+1,"roomCode":..,"room":{...}}, ...
+ *   SUBSCRIBE /user/queue/lobby  → recibe la foto {"type":"LOBBY_SNAPSHOT","seq":N,"rooms":[...]}
+ *   SUBSCRIBE /app/lobby         → pide la foto
+ * </pre>
+ * Cada cambio lleva un número de secuencia creciente: el cliente se suscribe primero a
+ * /topic/lobby, pide la foto y descarta los cambios con seq menor o igual que el de la foto.
+ * Los cambios con "room" sustituyen la sala entera; READY_TOGGLED solo trae jugador y flag.
+ */
+@Component
+public class LobbyBroadcaster {
+
+    public static final String LOBBY_TOPIC = "/topic/lobby";
+    public static final String SNAPSHOT_QUEUE = "/queue/lobby";
+    private static final int SNAPSHOT_MAX_ROOMS = 100;
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final GameRoomService gameRoomService;
+
+    private final AtomicLong seq = new AtomicLong();
+    private final AtomicLong snapshots = new AtomicLong();
+
+    public LobbyBroadcaster(SimpMessagingTemplate messagingTemplate, GameRoomService gameRoomService) {
+        this.messagingTemplate = messagingTemplate;
+        this.gameRoomService = gameRoomService;
+    }
+
+    /**
+     * Se envía tras el commit de la transacción que produjo el cambio; si la transacción
+     * se deshace el cambio no llega a los clientes.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLobbyEvent(LobbyEvent event) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("type", event.getType().name());
+        message.put("seq", seq.incrementAndGet());
+        message.put("roomCode", event.getRoomCode());
+        if (event.getPlayerName() != null) message.put("playerName", event.getPlayerName());
+        if (event.getReady() != null) message.put("ready", event.getReady());
+        if (event.getRoom() != null) message.put("room", event.getRoom());
+        messagingTemplate.convertAndSend(LOBBY_TOPIC, message);
+    }
+
+    /**
+     * Foto del lobby para un cliente que se acaba de suscribir. El seq se toma antes de
+     * leer: un cambio posterior puede llegar repetido, pero ninguno se pierde.
+     */
+    public Map<String, Object> snapshot() {
+        long current = seq.get();
+        snapshots.incrementAndGet();
+
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("type", "LOBBY_SNAPSHOT");
+        message.put("seq", current);
+        message.put("rooms", gameRoomService.getLobby(null, false, "newest", 0, SNAPSHOT_MAX_ROOMS).getContent());
+        return message;
+    }
+
+    /**
+     * Envía la foto solo a la sesión que la pidió.
+     */
+    public void sendSnapshot(String sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(sessionId);
+        headers.setLeaveMutable(true);
+        messagingTemplate.convertAndSendToUser(sessionId, SNAPSHOT_QUEUE, snapshot(), headers.getMessageHeaders());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("changesSent", seq.get());
+        stats.put("snapshots", snapshots.get());
+        return stats;
+    }
+}
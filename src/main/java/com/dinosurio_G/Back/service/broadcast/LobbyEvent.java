@@ -0,0 +1,82 @@
+package com.dinosurio_G.Back.service.broadcast;
+
+import com.dinosurio_G.Back.dto.GameRoomDTO;
+import com.dinosurio_G.Back.dto.GameRoomMapper;
+import com.dinosurio_G.Back.model.GameRoom;
+
+/**
+ * Cambio en la lista de salas del lobby. Lo publican GameRoomService, PlayerService
+ * y GamePlayServices dentro de su transacción; LobbyBroadcaster lo envía a /topic/lobby
+ * tras el commit. La vista de la sala se construye al publicar, con la sala ya cargada,
+ * para no volver a leerla de la BD al enviar.
+ */
+public class LobbyEvent {
+
+    public enum Type {
+        ROOM_CREATED,
+        PLAYER_JOINED,
+        PLAYER_LEFT,
+        READY_TOGGLED,
+        GAME_STARTED,
+        GAME_ENDED,
+        ROOM_DELETED
+    }
+
+    private final Type type;
+    private final String roomCode;
+    private final String playerName;
+    private final Boolean ready;
+    private final GameRoomDTO room;
+
+    private LobbyEvent(Type type, String roomCode, String playerName, Boolean ready, GameRoomDTO room) {
+        this.type = type;
+        this.roomCode = roomCode;
+        this.playerName = playerName;
+        this.ready = ready;
+        this.room = room;
+    }
+
+    public static LobbyEvent roomCreated(GameRoom room) {
+        return withRoom(Type.ROOM_CREATED, room, null);
+    }
+
+    public static LobbyEvent playerJoined(GameRoom room, String playerName) {
+        return withRoom(Type.PLAYER_JOINED, room, playerName);
+    }
+
+    public static LobbyEvent playerLeft(GameRoom room, String playerName) {
+        return withRoom(Type.PLAYER_LEFT, room, playerName);
+    }
+
+    public static LobbyEvent gameStarted(GameRoom room) {
+        return withRoom(Type.GAME_STARTED, room, null);
+    }
+
+    public static LobbyEvent gameEnded(GameRoom room) {
+        return withRoom(Type.GAME_ENDED, room, null);
+    }
+
+    // Solo cambia un flag de un jugador: no hace falta enviar la sala entera
+    public static LobbyEvent readyToggled(String roomCode, String playerName, boolean ready) {
+        return new LobbyEvent(Type.READY_TOGGLED, roomCode, playerName, ready, null);
+    }
+
+    public static LobbyEvent roomDeleted(String roomCode) {
+        return new LobbyEvent(Type.ROOM_DELETED, roomCode, null, null, null);
+    }
+
+    private static LobbyEvent withRoom(Type type, GameRoom room, String playerName) {
+        return new LobbyEvent(type, room.getRoomCode(), playerName, null, GameRoomMapper.toDTO(room));
+    }
+
+    public Type getType() { return type; }
+    public String getRoomCode() { return roomCode; }
+    public String getPlayerName() { return playerName; }
+    public Boolean getReady() { return ready; }
+    public GameRoomDTO getRoom() { return room; }
+
+    @Override
+    public String toString() {
+        return "LobbyEvent{" + type + ", " + roomCode + '}';
+    }
+}
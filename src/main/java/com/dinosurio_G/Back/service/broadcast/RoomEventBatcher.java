@@ -0,0 +1,131 @@
+package com.dinosurio_G.Back.service.broadcast;
+
+import com.dinosurio_G.Back.service.core.ActiveRoomRegistry;
+import com.dinosurio_G.Back.service.core.GameClock;
+import com.dinosurio_G.Back.service.core.RoomRuntime;
+import com.dinosurio_G.Back.websocket.RawGameSessions;
+import com.dinosurio_G.Back.websocket.StateSubscriptionRegistry;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Eventos de partida (NPC_KILLED, CHEST_OPENED, CHEST_SPAWNED, GAME_OVER...) de una sala.
+ *
+ * Cada evento se sigue enviando suelto a /topic/game/{roomCode}/event como siempre.
+ * Además, si alguien lo escucha (suscriptores de /events o sesiones del endpoint crudo),
+ * se acumula y al final del tick se envía un único frame ordenado:
+ * <pre>
+ *   /topic/game/{roomCode}/events   {"type":"EVENT_BATCH","roomCode":..,"tick":N,"events":[...]}
+ * </pre>
+ * Los eventos que llegan fuera del tick (p. ej. del spawner de cofres) salen con el
+ * siguiente tick; si la sala no tiene tick en curso, se envían en el momento.
+ */
+@Component
+public class RoomEventBatcher {
+
+    private static final String TOPIC_PREFIX = "/topic/game/";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final StateSubscriptionRegistry subscriptions;
+    private final RawGameSessions rawSessions;
+    private final ActiveRoomRegistry activeRooms;
+
+    private final Map<String, Queue<Object>> pending = new ConcurrentHashMap<>();
+
+    // Métricas
+    private final AtomicLong singleFrames = new AtomicLong();
+    private final AtomicLong batchedEvents = new AtomicLong();
+    private final AtomicLong batchFrames = new AtomicLong();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+
+    public RoomEventBatcher(SimpMessagingTemplate messagingTemplate,
+                            StateSubscriptionRegistry subscriptions,
+                            RawGameSessions rawSessions,
+                            ActiveRoomRegistry activeRooms) {
+        this.messagingTemplate = messagingTemplate;
+        this.subscriptions = subscriptions;
+        this.rawSessions = rawSessions;
+        this.activeRooms = activeRooms;
+    }
+
+    public void publish(String roomCode, Object event) {
+        messagingTemplate.convertAndSend(TOPIC_PREFIX + roomCode + "/event", event);
+        singleFrames.incrementAndGet();
+
+        if (!wantsBatches(roomCode)) {
+            return;
+        }
+        RoomRuntime runtime = activeRooms.get(roomCode);
+        if (runtime == null) {
+            // Sin tick que lo recoja: lote de un solo evento
+            sendBatch(roomCode, 0, List.of(event));
+            return;
+        }
+        pending.computeIfAbsent(roomCode, k -> new ConcurrentLinkedQueue<>()).add(event);
+    }
+
+    /**
+     * Envía en un solo frame los eventos acumulados de la sala, con el id del tick.
+     * Lo llama el hilo de tick al final de cada tick (y al desactivar la sala).
+     */
+    public void flush(String roomCode, long tick) {
+        Queue<Object> queue = pending.get(roomCode);
+        if (queue == null || queue.isEmpty()) {
+            return;
+        }
+        List<Object> events = new ArrayList<>(queue.size());
+        Object event;
+        while ((event = queue.poll()) != null) {
+            events.add(event);
+        }
+        sendBatch(roomCode, tick, events);
+    }
+
+    /**
+     * Envía lo que quede pendiente de una sala que deja de estar activa y la olvida.
+     */
+    public void flushAndForget(String roomCode, RoomRuntime runtime) {
+        GameClock clock = runtime != null ? runtime.getClock() : null;
+        flush(roomCode, clock != null ? clock.getTickId() : 0);
+        pending.remove(roomCode);
+    }
+
+    private boolean wantsBatches(String roomCode) {
+        return subscriptions.hasSubscribers(TOPIC_PREFIX + roomCode + "/events")
+                || !rawSessions.getSessions(roomCode).isEmpty();
+    }
+
+    private void sendBatch(String roomCode, long tick, List<Object> events) {
+        Map<String, Object> batch = new LinkedHashMap<>();
+        batch.put("type", "EVENT_BATCH");
+        batch.put("roomCode", roomCode);
+        batch.put("tick", tick);
+        batch.put("events", events);
+        messagingTemplate.convertAndSend(TOPIC_PREFIX + roomCode + "/events", batch);
+
+        batchFrames.incrementAndGet();
+        batchedEvents.addAndGet(events.size());
+        maxBatchSize.accumulateAndGet(events.size(), Math::max);
+    }
+
+    public Map<String, Object> getStats() {
+        long batches = batchFrames.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("singleEventFrames", singleFrames.get());
+        stats.put("batchFrames", batches);
+        stats.put("batchedEvents", batchedEvents.get());
+        stats.put("avgEventsPerBatch", batches == 0 ? 0.0 : batchedEvents.get() / (double) batches);
+        stats.put("maxBatchSize", maxBatchSize.get());
+        stats.put("roomsWithPendingEvents", pending.values().stream().filter(q -> !q.isEmpty()).count());
+        return stats;
+    }
+}
@@ -0,0 +1,127 @@
+package com.dinosurio_G.Back.service.broadcast;
+
+import com.dinosurio_G.Back.model.GameMap;
+import com.dinosurio_G.Back.model.GameRoom;
+import com.dinosurio_G.Back.model.Player;
+import com.dinosurio_G.Back.service.core.NpcView;
+import com.dinosurio_G.Back.service.core.RoomRuntime;
+import com.dinosurio_G.Back.service.core.SpatialHashGrid;
+
+import java.util.List;
+
+/**
+ * Foto del estado de una sala al final de un tick, en arrays planos.
+ * Se construye una sola vez por tick y todos los formatos (JSON, binario)
+ * se codifican a partir de ella.
+ */
+public final class RoomSnapshot {
+
+    final String roomCode;
+    final long tick;
+    final long timestamp;
+    final int mapWidth;
+    final int mapHeight;
+
+    // Jugadores; el slot es su posición en la lista de jugadores de la sala
+    final int playerCount;
+    final int[] playerSlot;
+    final String[] playerName;
+    final double[] playerX;
+    final double[] playerY;
+    final int[] playerHealth;
+    final boolean[] playerAlive;
+    final boolean[] playerFacingRight;
+    // Última secuencia de input del cliente aplicada en este tick (reconciliación)
+    final long[] playerInputSeq;
+
+    // NPCs vivos
+    final int npcCount;
+    final int[] npcId;
+    final double[] npcX;
+    final double[] npcY;
+    final int[] npcHealth;
+
+    // Índices de NPC del snapshot por posición; se construye al primer uso (filtro de interés)
+    private SpatialHashGrid npcGrid;
+
+    private RoomSnapshot(String roomCode, long tick, int mapWidth, int mapHeight, int players, int npcs) {
+        this.roomCode = roomCode;
+        this.tick = tick;
+        this.timestamp = System.currentTimeMillis();
+        this.mapWidth = mapWidth;
+        this.mapHeight = mapHeight;
+        this.playerCount = players;
+        this.playerSlot = new int[players];
+        this.playerName = new String[players];
+        this.playerX = new double[players];
+        this.playerY = new double[players];
+        this.playerHealth = new int[players];
+        this.playerAlive = new boolean[players];
+        this.playerFacingRight = new boolean[players];
+        this.playerInputSeq = new long[players];
+        this.npcCount = npcs;
+        this.npcId = new int[npcs];
+        this.npcX = new double[npcs];
+        this.npcY = new double[npcs];
+        this.npcHealth = new int[npcs];
+    }
+
+    public static RoomSnapshot capture(GameRoom room, long tick, NpcView npcs) {
+        List<Player> players = room.getPlayers();
+        GameMap map = room.getMap();
+        int alive = 0;
+        for (int i = 0; i < npcs.size(); i++) {
+            if (!npcs.isDead(i)) alive++;
+        }
+
+        RoomSnapshot s = new RoomSnapshot(room.getRoomCode(), tick,
+                map != null ? map.getWidth() : 0, map != null ? map.getHeight() : 0, players.size(), alive);
+        for (int i = 0; i < players.size(); i++) {
+            Player p = players.get(i);
+            s.playerSlot[i] = i;
+            s.playerName[i] = p.getPlayerName();
+            s.playerX[i] = p.getX();
+            s.playerY[i] = p.getY();
+            s.playerHealth[i] = p.getHealth();
+            s.playerAlive[i] = p.isAlive();
+            s.playerFacingRight[i] = p.isFacingRight();
+            s.playerInputSeq[i] = p.getLastInputSeq();
+        }
+
+        int n = 0;
+        for (int i = 0; i < npcs.size(); i++) {
+            if (npcs.isDead(i)) continue;
+            s.npcId[n] = npcs.getId(i);
+            s.npcX[n] = npcs.getX(i);
+            s.npcY[n] = npcs.getY(i);
+            s.npcHealth[n] = npcs.getHealth(i);
+            n++;
+        }
+        return s;
+    }
+
+    /**
+     * Índice del jugador en el snapshot, o -1.
+     */
+    public int indexOfPlayer(String playerName) {
+        for (int i = 0; i < playerCount; i++) {
+            if (playerName.equals(this.playerName[i])) return i;
+        }
+        return -1;
+    }
+
+    SpatialHashGrid npcGrid() {
+        if (npcGrid == null) {
+            npcGrid = new SpatialHashGrid(RoomRuntime.GRID_CELL_SIZE);
+            for (int i = 0; i < npcCount; i++) {
+                npcGrid.update(i, npcX[i], npcY[i]);
+            }
+        }
+        return npcGrid;
+    }
+
+    public String getRoomCode() { return roomCode; }
+    public long getTick() { return tick; }
+    public int getPlayerCount() { return playerCount; }
+    public int getNpcCount() { return npcCount; }
+}
@@ -0,0 +1,409 @@
+package com.dinosurio_G.Back.service.broadcast;
+
+import com.dinosurio_G.Back.websocket.OutboundSessionQueues;
+import com.dinosurio_G.Back.websocket.RawGameSession;
+import com.dinosurio_G.Back.websocket.RawGameSessions;
+import com.dinosurio_G.Back.websocket.StateFrameDroppedEvent;
+import com.dinosurio_G.Back.websocket.StateSubscriptionRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publica el estado de cada tick en los formatos que tienen suscriptores.
+ * Cada cliente elige formato y canal al suscribirse:
+ *   /topic/game/{roomCode}/state             JSON, toda la sala (compartido), siempre el
+ *                                            estado completo como hasta ahora
+ *   /topic/game/{roomCode}/state.delta       JSON, toda la sala (compartido), con deltas
+ *   /topic/game/{roomCode}/state.bin         binario compacto (ver StateFrameEncoder) en Base64,
+ *                                            porque SockJS solo transporta texto
+ *   /user/queue/game/{roomCode}/state(.bin)  igual, pero por sesión y solo con los NPCs del
+ *                                            área de interés del jugador de esa sesión
+ *   /ws-game-raw                             endpoint crudo: por sesión como el anterior,
+ *                                            binario sin Base64 (ver RawGameSessions)
+ * Salvo en el topic JSON de siempre, normalmente solo se envían los cambios desde
+ * el frame anterior; cada
+ * keyframe-interval frames, al suscribirse un cliente o cuando uno pide
+ * resincronizar (/app/game/{roomCode}/resync), se envía un keyframe con el estado
+ * completo. Un cliente que reciba un delta sin haber visto antes un keyframe debe
+ * descartarlo y pedir resync.
+ */
+@Component
+public class RoomStateBroadcaster {
+
+    public static final String BINARY_SUFFIX = ".bin";
+    public static final String DELTA_SUFFIX = ".delta";
+    private static final String STATE_PREFIX = "/topic/game/";
+    private static final String USER_STATE_PREFIX = "/user/queue/game/";
+    // Una escritura cruda que tarda más de un tick indica un cliente atrasado
+    private static final long RAW_STALL_MS = 50;
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final StateSubscriptionRegistry subscriptions;
+    private final RawGameSessions rawSessions;
+    private final int keyframeInterval;
+    private final AreaOfInterest areaOfInterest;
+
+    // Línea base de delta por sala y por sesión (solo las usa el hilo de tick de la sala)
+    private final Map<String, DeltaChannel> roomChannels = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, DeltaChannel>> sessionChannels = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, DeltaChannel>> rawChannels = new ConcurrentHashMap<>();
+    // Keyframes pedidos para el próximo frame: del canal compartido de la sala o de una sesión
+    private final Set<String> keyframeRequests = ConcurrentHashMap.newKeySet();
+    private final Set<String> sessionKeyframeRequests = ConcurrentHashMap.newKeySet();
+
+    // Métricas
+    private final AtomicLong keyframes = new AtomicLong();
+    private final AtomicLong deltas = new AtomicLong();
+    private final AtomicLong requestedKeyframes = new AtomicLong();
+    private final AtomicLong jsonFrames = new AtomicLong();
+    private final AtomicLong jsonDeltaFrames = new AtomicLong();
+    private final AtomicLong binaryFrames = new AtomicLong();
+    private final AtomicLong binaryBytes = new AtomicLong();
+    private final AtomicLong binaryKeyframeEquivalentBytes = new AtomicLong();
+    private final AtomicLong skippedTicks = new AtomicLong();
+    private final AtomicLong sessionFrames = new AtomicLong();
+    private final AtomicLong sessionBinaryFrames = new AtomicLong();
+    private final AtomicLong sessionBinaryBytes = new AtomicLong();
+    private final AtomicLong aoiVisibleNpcs = new AtomicLong();
+    private final AtomicLong aoiRoomNpcs = new AtomicLong();
+
+    public RoomStateBroadcaster(SimpMessagingTemplate messagingTemplate,
+                                StateSubscriptionRegistry subscriptions,
+                                RawGameSessions rawSessions,
+                                @Value("${game.broadcast.keyframe-interval:20}") int keyframeInterval,
+                                @Value("${game.aoi.radius:450}") double aoiRadius,
+                                @Value("${game.aoi.hysteresis:100}") double aoiHysteresis) {
+        this.messagingTemplate = messagingTemplate;
+        this.subscriptions = subscriptions;
+        this.rawSessions = rawSessions;
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+        this.areaOfInterest = new AreaOfInterest(aoiRadius, aoiHysteresis);
+    }
+
+    public static String stateDestination(String roomCode) {
+        return STATE_PREFIX + roomCode + "/state";
+    }
+
+    public static String userStateDestination(String roomCode) {
+        return USER_STATE_PREFIX + roomCode + "/state";
+    }
+
+    public void publish(RoomSnapshot snapshot) {
+        // Se consume al empezar: una petición que llegue durante el envío queda para el próximo frame
+        boolean roomKeyframe = keyframeRequests.remove(snapshot.roomCode);
+        boolean shared = publishShared(snapshot, roomKeyframe);
+        boolean perSession = publishToSessions(snapshot);
+        boolean raw = publishToRawSessions(snapshot);
+        if (!shared && !perSession && !raw) {
+            skippedTicks.incrementAndGet();
+        }
+    }
+
+    private boolean publishShared(RoomSnapshot snapshot, boolean roomKeyframe) {
+        String roomCode = snapshot.roomCode;
+        String destination = stateDestination(roomCode);
+        boolean full = subscriptions.hasSubscribers(destination);
+        boolean json = subscriptions.hasSubscribers(destination + DELTA_SUFFIX);
+        boolean binary = subscriptions.hasSubscribers(destination + BINARY_SUFFIX);
+
+        if (full) {
+            // Clientes de siempre: estado completo en cada frame, sin línea base
+            messagingTemplate.convertAndSend(destination, StateFrameEncoder.toJson(snapshot),
+                    stateHeaders(roomCode, null));
+            jsonFrames.incrementAndGet();
+        }
+        if (!json && !binary) {
+            // Nadie escucha deltas: el próximo que se suscriba recibirá un keyframe
+            roomChannels.remove(roomCode);
+            return full;
+        }
+
+        DeltaChannel channel = roomChannels.computeIfAbsent(roomCode, k -> new DeltaChannel());
+        StateDelta delta = channel.next(snapshot, roomKeyframe, null);
+
+        if (json) {
+            messagingTemplate.convertAndSend(destination + DELTA_SUFFIX, StateFrameEncoder.toJson(snapshot, delta),
+                    stateHeaders(roomCode, null));
+            jsonDeltaFrames.incrementAndGet();
+        }
+        if (binary) {
+            byte[] frame = StateFrameEncoder.encodeBinary(snapshot, delta);
+            messagingTemplate.convertAndSend(destination + BINARY_SUFFIX, Base64.getEncoder().encodeToString(frame),
+                    stateHeaders(roomCode, null));
+            binaryFrames.incrementAndGet();
+            binaryBytes.addAndGet(frame.length);
+            binaryKeyframeEquivalentBytes.addAndGet(StateFrameEncoder.keyframeSize(snapshot));
+        }
+        return true;
+    }
+
+    private boolean publishToSessions(RoomSnapshot snapshot) {
+        String roomCode = snapshot.roomCode;
+        String destination = userStateDestination(roomCode);
+        Set<String> jsonSessions = subscriptions.getSessions(destination);
+        Set<String> binarySessions = subscriptions.getSessions(destination + BINARY_SUFFIX);
+
+        if (jsonSessions.isEmpty() && binarySessions.isEmpty()) {
+            sessionChannels.remove(roomCode);
+            return false;
+        }
+
+        Map<String, DeltaChannel> channels = sessionChannels.computeIfAbsent(roomCode, k -> new ConcurrentHashMap<>());
+        // Sesiones que se dieron de baja sin desconectarse
+        channels.keySet().removeIf(key -> key.endsWith(BINARY_SUFFIX)
+                ? !binarySessions.contains(key.substring(0, key.length() - BINARY_SUFFIX.length()))
+                : !jsonSessions.contains(key));
+
+        boolean filter = !areaOfInterest.coversMap(snapshot.mapWidth, snapshot.mapHeight);
+        for (String sessionId : jsonSessions) {
+            publishToSession(snapshot, channels, sessionId, false, filter);
+        }
+        for (String sessionId : binarySessions) {
+            publishToSession(snapshot, channels, sessionId, true, filter);
+        }
+        return true;
+    }
+
+    private void publishToSession(RoomSnapshot snapshot, Map<String, DeltaChannel> channels,
+                                  String sessionId, boolean binary, boolean filter) {
+        DeltaChannel channel = channels.computeIfAbsent(binary ? sessionId + BINARY_SUFFIX : sessionId,
+                k -> new DeltaChannel());
+
+        BitSet mask = filter ? interestMask(snapshot, subscriptions.getPlayer(sessionId), channel) : null;
+        StateDelta delta = channel.next(snapshot, sessionKeyframeRequests.remove(sessionId), mask);
+
+        String destination = "/queue/game/" + snapshot.roomCode + "/state";
+        if (binary) {
+            byte[] frame = StateFrameEncoder.encodeBinary(snapshot, delta);
+            messagingTemplate.convertAndSendToUser(sessionId, destination + BINARY_SUFFIX,
+                    Base64.getEncoder().encodeToString(frame), stateHeaders(snapshot.roomCode, sessionId));
+            sessionBinaryFrames.incrementAndGet();
+            sessionBinaryBytes.addAndGet(frame.length);
+        } else {
+            messagingTemplate.convertAndSendToUser(sessionId, destination,
+                    StateFrameEncoder.toJson(snapshot, delta), stateHeaders(snapshot.roomCode, sessionId));
+        }
+        recordSessionFrame(snapshot, mask);
+    }
+
+    /**
+     * Endpoint crudo: envío directo a cada sesión, con su propio delta y área de interés.
+     * A un cliente atrasado se le salta el frame; su línea base no avanza, así que el
+     * siguiente delta sigue siendo correcto respecto a lo último que se le envió.
+     */
+    private boolean publishToRawSessions(RoomSnapshot snapshot) {
+        String roomCode = snapshot.roomCode;
+        Collection<RawGameSession> sessions = rawSessions.getSessions(roomCode);
+        if (sessions.isEmpty()) {
+            rawChannels.remove(roomCode);
+            return false;
+        }
+
+        Map<String, DeltaChannel> channels = rawChannels.computeIfAbsent(roomCode, k -> new ConcurrentHashMap<>());
+        channels.keySet().removeIf(sessionId -> !rawSessions.isConnected(roomCode, sessionId));
+
+        boolean filter = !areaOfInterest.coversMap(snapshot.mapWidth, snapshot.mapHeight);
+        for (RawGameSession session : sessions) {
+            if (session.isBehind(RAW_STALL_MS)) {
+                rawSessions.recordSkippedState(session);
+                continue;
+            }
+            DeltaChannel channel = channels.computeIfAbsent(session.getId(), k -> new DeltaChannel());
+            BitSet mask = filter ? interestMask(snapshot, session.getPlayerName(), channel) : null;
+            StateDelta delta = channel.next(snapshot, sessionKeyframeRequests.remove(session.getId()), mask);
+
+            if (session.isBinary()) {
+                rawSessions.sendBinaryState(session, StateFrameEncoder.encodeBinary(snapshot, delta));
+            } else {
+                rawSessions.sendJsonState(session, StateFrameEncoder.toJson(snapshot, delta));
+            }
+            recordSessionFrame(snapshot, mask);
+        }
+        return true;
+    }
+
+    // Sin jugador asociado (espectador) la sesión recibe toda la sala
+    private BitSet interestMask(RoomSnapshot snapshot, String playerName, DeltaChannel channel) {
+        int player = playerName != null ? snapshot.indexOfPlayer(playerName) : -1;
+        if (player < 0) return null;
+        return areaOfInterest.select(snapshot, snapshot.playerX[player], snapshot.playerY[player], channel.visibleNpcIds);
+    }
+
+    private void recordSessionFrame(RoomSnapshot snapshot, BitSet mask) {
+        sessionFrames.incrementAndGet();
+        aoiVisibleNpcs.addAndGet(mask != null ? mask.cardinality() : snapshot.npcCount);
+        aoiRoomNpcs.addAndGet(snapshot.npcCount);
+    }
+
+    // Marca el frame como sustituible en la cola de salida de una sesión lenta.
+    // Sin Principal, el destino de usuario se resuelve por id de sesión.
+    private static MessageHeaders stateHeaders(String roomCode, String sessionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setHeader(OutboundSessionQueues.CONFLATE_HEADER, roomCode);
+        if (sessionId != null) {
+            accessor.setSessionId(sessionId);
+        }
+        accessor.setLeaveMutable(true);
+        return accessor.getMessageHeaders();
+    }
+
+    /**
+     * El próximo frame del canal compartido de la sala será un keyframe.
+     * Los canales por sesión no se ven afectados.
+     */
+    public void requestKeyframe(String roomCode) {
+        keyframeRequests.add(roomCode);
+    }
+
+    /**
+     * Keyframe para una sesión concreta en su canal por sesión. El canal compartido
+     * solo se fuerza si la sesión está suscrita a él, porque afecta a toda la sala.
+     */
+    public void requestKeyframe(String roomCode, String sessionId) {
+        if (sessionId == null) {
+            requestKeyframe(roomCode);
+            return;
+        }
+        sessionKeyframeRequests.add(sessionId);
+        String shared = stateDestination(roomCode);
+        if (subscriptions.getSessions(shared + DELTA_SUFFIX).contains(sessionId)
+                || subscriptions.getSessions(shared + BINARY_SUFFIX).contains(sessionId)) {
+            requestKeyframe(roomCode);
+        }
+    }
+
+    /**
+     * Olvida las líneas base de una sala que deja de estar activa.
+     */
+    public void forget(String roomCode) {
+        roomChannels.remove(roomCode);
+        sessionChannels.remove(roomCode);
+        rawChannels.remove(roomCode);
+        keyframeRequests.remove(roomCode);
+    }
+
+    // Un cliente nuevo en un canal con deltas necesita el estado completo
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        String roomCode = roomCodeOf(destination, STATE_PREFIX);
+        if (roomCode != null) {
+            // El topic JSON de siempre ya lleva el estado completo en cada frame
+            if (!destination.equals(stateDestination(roomCode))) {
+                requestKeyframe(roomCode);
+            }
+        } else if (roomCodeOf(destination, USER_STATE_PREFIX) != null && accessor.getSessionId() != null) {
+            sessionKeyframeRequests.add(accessor.getSessionId());
+        }
+    }
+
+    // Se descartó un frame en la cola de una sesión lenta: si era un delta, su próximo frame debe ser completo
+    @EventListener
+    public void onStateFrameDropped(StateFrameDroppedEvent event) {
+        String roomCode = event.getRoomCode();
+        String destination = event.getDestination();
+        if (destination != null && destination.equals(stateDestination(roomCode))) {
+            // Topic de siempre: cada frame ya es completo
+            return;
+        }
+        if (destination != null && destination.startsWith(STATE_PREFIX)) {
+            // Canal compartido con deltas: una sola línea base para todos sus suscriptores
+            requestKeyframe(roomCode);
+        } else if (event.getSessionId() != null) {
+            sessionKeyframeRequests.add(event.getSessionId());
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        String sessionId = event.getSessionId();
+        sessionKeyframeRequests.remove(sessionId);
+        for (Map<String, DeltaChannel> channels : sessionChannels.values()) {
+            channels.remove(sessionId);
+            channels.remove(sessionId + BINARY_SUFFIX);
+        }
+    }
+
+    static String roomCodeOf(String destination, String prefix) {
+        if (destination == null || !destination.startsWith(prefix)) return null;
+        String rest = destination.substring(prefix.length());
+        int slash = rest.indexOf('/');
+        if (slash <= 0) return null;
+        String channel = rest.substring(slash + 1);
+        return channel.equals("state") || channel.equals("state" + BINARY_SUFFIX) || channel.equals("state" + DELTA_SUFFIX)
+                ? rest.substring(0, slash) : null;
+    }
+
+    public Map<String, Object> getStats() {
+        long frames = binaryFrames.get();
+        long bytes = binaryBytes.get();
+        long fullBytes = binaryKeyframeEquivalentBytes.get();
+        long sessionBinary = sessionBinaryFrames.get();
+        long roomNpcs = aoiRoomNpcs.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("keyframeInterval", keyframeInterval);
+        stats.put("keyframes", keyframes.get());
+        stats.put("requestedKeyframes", requestedKeyframes.get());
+        stats.put("deltas", deltas.get());
+        stats.put("jsonFrames", jsonFrames.get());
+        stats.put("jsonDeltaFrames", jsonDeltaFrames.get());
+        stats.put("binaryFrames", frames);
+        stats.put("binaryBytes", bytes);
+        stats.put("avgBinaryFrameBytes", frames == 0 ? 0.0 : bytes / (double) frames);
+        // Bytes que habría costado enviar siempre keyframes, y cuántas veces menos se envía
+        stats.put("binaryKeyframeEquivalentBytes", fullBytes);
+        stats.put("binaryCompressionRatio", bytes == 0 ? 0.0 : fullBytes / (double) bytes);
+        stats.put("ticksWithoutSubscribers", skippedTicks.get());
+
+        // Canal por sesión con área de interés
+        stats.put("aoiEnterRadius", areaOfInterest.getEnterRadius());
+        stats.put("aoiExitRadius", areaOfInterest.getExitRadius());
+        stats.put("sessionFrames", sessionFrames.get());
+        stats.put("avgSessionBinaryFrameBytes", sessionBinary == 0 ? 0.0 : sessionBinaryBytes.get() / (double) sessionBinary);
+        // Fracción de los NPCs de la sala que recibe de media cada cliente
+        stats.put("aoiVisibleNpcRatio", roomNpcs == 0 ? 0.0 : aoiVisibleNpcs.get() / (double) roomNpcs);
+        return stats;
+    }
+
+    /**
+     * Estado de delta de un canal (sala compartida o sesión).
+     */
+    private final class DeltaChannel {
+        private final DeltaTracker tracker = new DeltaTracker();
+        private final BitSet visibleNpcIds = new BitSet();
+        private int framesSinceKeyframe;
+
+        private StateDelta next(RoomSnapshot snapshot, boolean requested, BitSet npcMask) {
+            boolean periodic = framesSinceKeyframe + 1 >= keyframeInterval;
+            StateDelta delta = tracker.diff(snapshot, requested || periodic, npcMask);
+            if (delta.keyframe) {
+                framesSinceKeyframe = 0;
+                keyframes.incrementAndGet();
+                if (requested) requestedKeyframes.incrementAndGet();
+            } else {
+                framesSinceKeyframe++;
+                deltas.incrementAndGet();
+            }
+            return delta;
+        }
+    }
+}
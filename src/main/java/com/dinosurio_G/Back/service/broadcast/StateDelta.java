@@ -0,0 +1,52 @@
+package com.dinosurio_G.Back.service.broadcast;
+
+/**
+ * Qué hay que enviar de un RoomSnapshot: todo (keyframe) o solo los cambios
+ * respecto a lo último transmitido. Los índices apuntan a los arrays del snapshot.
+ */
+public final class StateDelta {
+
+    final boolean keyframe;
+
+    final int changedPlayerCount;
+    final int[] changedPlayers;
+
+    final int changedNpcCount;
+    final int[] changedNpcs;
+
+    final int removedNpcCount;
+    final int[] removedNpcIds;
+
+    StateDelta(boolean keyframe, int[] changedPlayers, int changedPlayerCount,
+               int[] changedNpcs, int changedNpcCount, int[] removedNpcIds, int removedNpcCount) {
+        this.keyframe = keyframe;
+        this.changedPlayers = changedPlayers;
+        this.changedPlayerCount = changedPlayerCount;
+        this.changedNpcs = changedNpcs;
+        this.changedNpcCount = changedNpcCount;
+        this.removedNpcIds = removedNpcIds;
+        this.removedNpcCount = removedNpcCount;
+    }
+
+    /**
+     * Keyframe con todo el snapshot, sin tocar ninguna línea base
+     * (para los canales que siempre reciben el estado completo).
+     */
+    public static StateDelta keyframe(RoomSnapshot s) {
+        return new StateDelta(true, indices(s.playerCount), s.playerCount,
+                indices(s.npcCount), s.npcCount, new int[0], 0);
+    }
+
+    private static int[] indices(int count) {
+        int[] indices = new int[count];
+        for (int i = 0; i < count; i++) {
+            indices[i] = i;
+        }
+        return indices;
+    }
+
+    public boolean isKeyframe() { return keyframe; }
+    public int getChangedPlayerCount() { return changedPlayerCount; }
+    public int getChangedNpcCount() { return changedNpcCount; }
+    public int getRemovedNpcCount() { return removedNpcCount; }
+}
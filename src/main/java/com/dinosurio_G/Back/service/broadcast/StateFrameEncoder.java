@@ -0,0 +1,199 @@
+package com.dinosurio_G.Back.service.broadcast;
+
+import com.dinosurio_G.Back.model.Player;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codifica un RoomSnapshot (keyframe o delta) en los dos formatos del canal de estado.
+ *
+ * Formato binario (big-endian), versión 3:
+ * <pre>
+ *   u8  versión
+ *   u8  tipo (0 keyframe, 1 delta)
+ *   u32 tick
+ *   solo keyframe:
+ *     u8 nº de jugadores
+ *     por jugador (roster):  u8 slot, u8 longitud del nombre, nombre UTF-8
+ *   u8  nº de registros de jugador
+ *   por jugador:           u8 slot, u16 x, u16 y, u8 vida, u8 flags (bit0 vivo, bit1 mira a la derecha),
+ *                          u16 último input procesado (16 bits bajos de la secuencia del cliente)
+ *   u16 nº de registros de NPC (nuevos o modificados en un delta)
+ *   por NPC:               u16 id, u16 x, u16 y, u8 vida
+ *   solo delta:
+ *     u16 nº de NPCs eliminados, seguido de sus ids (u16)
+ * </pre>
+ * Las coordenadas van cuantizadas a 1/4 de píxel (x * 4 redondeado) y las vidas
+ * se acotan a 0..255. Un delta no lleva roster: si cambia, se envía keyframe.
+ * Un jugador entra en el delta también cuando avanza su input procesado, para que
+ * el cliente pueda descartar los inputs ya aplicados y reconciliar su predicción.
+ */
+public final class StateFrameEncoder {
+
+    public static final int VERSION = 3;
+    public static final int KEYFRAME = 0;
+    public static final int DELTA = 1;
+    public static final double COORD_SCALE = 4.0;
+
+    private static final int HEADER_BYTES = 6;
+    private static final int PLAYER_RECORD_BYTES = 9;
+    private static final int NPC_RECORD_BYTES = 7;
+
+    private StateFrameEncoder() {
+    }
+
+    public static byte[] encodeBinary(RoomSnapshot s, StateDelta d) {
+        byte[][] names = d.keyframe ? rosterNames(s) : null;
+        int size = HEADER_BYTES + rosterBytes(names) + 1 + d.changedPlayerCount * PLAYER_RECORD_BYTES
+                + 2 + d.changedNpcCount * NPC_RECORD_BYTES
+                + (d.keyframe ? 0 : 2 + d.removedNpcCount * 2);
+
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.put((byte) VERSION);
+        buf.put((byte) (d.keyframe ? KEYFRAME : DELTA));
+        buf.putInt((int) s.tick);
+
+        if (d.keyframe) {
+            buf.put((byte) s.playerCount);
+            for (int i = 0; i < s.playerCount; i++) {
+                buf.put((byte) s.playerSlot[i]);
+                buf.put((byte) names[i].length);
+                buf.put(names[i]);
+            }
+        }
+
+        buf.put((byte) d.changedPlayerCount);
+        for (int k = 0; k < d.changedPlayerCount; k++) {
+            int i = d.changedPlayers[k];
+            buf.put((byte) s.playerSlot[i]);
+            buf.putShort(quantize(s.playerX[i]));
+            buf.putShort(quantize(s.playerY[i]));
+            buf.put(clampByte(s.playerHealth[i]));
+            buf.put((byte) playerFlags(s.playerAlive[i], s.playerFacingRight[i]));
+            buf.putShort((short) s.playerInputSeq[i]);
+        }
+
+        buf.putShort((short) d.changedNpcCount);
+        for (int k = 0; k < d.changedNpcCount; k++) {
+            int i = d.changedNpcs[k];
+            buf.putShort((short) s.npcId[i]);
+            buf.putShort(quantize(s.npcX[i]));
+            buf.putShort(quantize(s.npcY[i]));
+            buf.put(clampByte(s.npcHealth[i]));
+        }
+
+        if (!d.keyframe) {
+            buf.putShort((short) d.removedNpcCount);
+            for (int k = 0; k < d.removedNpcCount; k++) {
+                buf.putShort((short) d.removedNpcIds[k]);
+            }
+        }
+        return buf.array();
+    }
+
+    /**
+     * Tamaño que tendría el snapshot enviado como keyframe (para medir el ahorro de los deltas).
+     */
+    public static int keyframeSize(RoomSnapshot s) {
+        return HEADER_BYTES + rosterBytes(rosterNames(s)) + 1 + s.playerCount * PLAYER_RECORD_BYTES
+                + 2 + s.npcCount * NPC_RECORD_BYTES;
+    }
+
+    /**
+     * Snapshot completo en JSON (el formato del topic compartido de siempre).
+     */
+    public static Map<String, Object> toJson(RoomSnapshot s) {
+        return toJson(s, StateDelta.keyframe(s));
+    }
+
+    /**
+     * Formato JSON: el keyframe conserva el formato de siempre; un delta lleva en
+     * "players" y "npcs" solo las entidades nuevas o modificadas y en "removedNpcs"
+     * los ids eliminados.
+     */
+    public static Map<String, Object> toJson(RoomSnapshot s, StateDelta d) {
+        List<Map<String, Object>> playersData = new ArrayList<>(d.changedPlayerCount);
+        for (int k = 0; k < d.changedPlayerCount; k++) {
+            int i = d.changedPlayers[k];
+            Map<String, Object> playerData = new HashMap<>();
+            playerData.put("playerName", s.playerName[i]);
+            playerData.put("x", s.playerX[i]);
+            playerData.put("y", s.playerY[i]);
+            playerData.put("health", s.playerHealth[i]);
+            playerData.put("maxHealth", Player.DEFAULT_HEALTH);
+            playerData.put("alive", s.playerAlive[i]);
+            playerData.put("direction", s.playerFacingRight[i] ? "right" : "left");
+            playerData.put("inputSeq", s.playerInputSeq[i]);
+            playersData.add(playerData);
+        }
+
+        List<Map<String, Object>> npcsData = new ArrayList<>(d.changedNpcCount);
+        for (int k = 0; k < d.changedNpcCount; k++) {
+            int i = d.changedNpcs[k];
+            Map<String, Object> npcData = new HashMap<>();
+            npcData.put("id", s.npcId[i]);
+            npcData.put("x", s.npcX[i]);
+            npcData.put("y", s.npcY[i]);
+            npcData.put("health", s.npcHealth[i]);
+            npcsData.add(npcData);
+        }
+
+        Map<String, Object> gameState = new HashMap<>();
+        gameState.put("keyframe", d.keyframe);
+        gameState.put("players", playersData);
+        gameState.put("npcs", npcsData);
+        if (!d.keyframe) {
+            List<Integer> removed = new ArrayList<>(d.removedNpcCount);
+            for (int k = 0; k < d.removedNpcCount; k++) {
+                removed.add(d.removedNpcIds[k]);
+            }
+            gameState.put("removedNpcs", removed);
+        }
+        gameState.put("tick", s.tick);
+        gameState.put("timestamp", s.timestamp);
+        return gameState;
+    }
+
+    static short quantize(double coord) {
+        long q = Math.round(coord * COORD_SCALE);
+        return (short) Math.max(0, Math.min(0xFFFF, q));
+    }
+
+    static byte clampByte(int value) {
+        return (byte) Math.max(0, Math.min(255, value));
+    }
+
+    static int playerFlags(boolean alive, boolean facingRight) {
+        return (alive ? 1 : 0) | (facingRight ? 2 : 0);
+    }
+
+    private static byte[][] rosterNames(RoomSnapshot s) {
+        byte[][] names = new byte[s.playerCount][];
+        for (int i = 0; i < s.playerCount; i++) {
+            names[i] = truncatedName(s.playerName[i]);
+        }
+        return names;
+    }
+
+    private static int rosterBytes(byte[][] names) {
+        if (names == null) return 0;
+        int bytes = 1;
+        for (byte[] name : names) {
+            bytes += 2 + name.length;
+        }
+        return bytes;
+    }
+
+    private static byte[] truncatedName(String name) {
+        byte[] bytes = (name != null ? name : "").getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= 255) return bytes;
+        byte[] cut = new byte[255];
+        System.arraycopy(bytes, 0, cut, 0, 255);
+        return cut;
+    }
+}
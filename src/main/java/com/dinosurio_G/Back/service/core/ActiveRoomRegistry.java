@@ -0,0 +1,49 @@
+package com.dinosurio_G.Back.service.core;
+
+import com.dinosurio_G.Back.model.GameRoom;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro en memoria de las salas con partida en curso.
+ * Se alimenta de RoomLifecycleEvent, de modo que los loops periódicos
+ * (ticks, spawner de cofres, NPCs) nunca consultan la BD para saber qué salas están activas.
+ */
+@Component
+public class ActiveRoomRegistry {
+
+    private final Map<String, RoomRuntime> rooms = new ConcurrentHashMap<>();
+
+    public RoomRuntime activate(GameRoom room) {
+        return rooms.computeIfAbsent(room.getRoomCode(), code -> new RoomRuntime(room));
+    }
+
+    public RoomRuntime deactivate(String roomCode) {
+        return rooms.remove(roomCode);
+    }
+
+    public RoomRuntime get(String roomCode) {
+        return rooms.get(roomCode);
+    }
+
+    public GameRoom getRoom(String roomCode) {
+        RoomRuntime runtime = rooms.get(roomCode);
+        return runtime != null ? runtime.getRoom() : null;
+    }
+
+    public boolean isActive(String roomCode) {
+        return rooms.containsKey(roomCode);
+    }
+
+    public Collection<RoomRuntime> getActiveRooms() {
+        return Collections.unmodifiableCollection(rooms.values());
+    }
+
+    public int size() {
+        return rooms.size();
+    }
+}
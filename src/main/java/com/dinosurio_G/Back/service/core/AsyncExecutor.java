@@ -1,16 +1,91 @@
 package com.dinosurio_G.Back.service.core;
 
-import org.springframework.scheduling.annotation.Async;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Pool acotado para el trabajo de BD que no debe hacer el hilo de tick
+ * (guardar cofres, fin de partida, actualizaciones de mapa).
+ * Si la cola está llena la tarea se rechaza (future fallido): nunca se ejecuta
+ * en el hilo que la envía.
+ */
 @Component
 public class AsyncExecutor {
 
-    @Async("taskExecutor")
+    private final ThreadPoolExecutor executor;
+
+    // Métricas
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public AsyncExecutor(@Value("${game.async.pool-size:4}") int poolSize,
+                         @Value("${game.async.queue-capacity:1000}") int queueCapacity) {
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new AsyncThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
     public CompletableFuture<Void> runAsync(Runnable task) {
-        task.run();
-        return CompletableFuture.completedFuture(null);
+        try {
+            return CompletableFuture.runAsync(task, executor)
+                    .whenComplete((ok, e) -> {
+                        if (e != null) {
+                            failures.incrementAndGet();
+                            System.err.println("❌ Error en tarea en segundo plano: " + e.getMessage());
+                        }
+                    });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            System.err.println("⚠️ Tarea en segundo plano rechazada: cola llena");
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("poolSize", executor.getCorePoolSize());
+        stats.put("active", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("completed", executor.getCompletedTaskCount());
+        stats.put("failures", failures.get());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            // Dar tiempo a que terminen los guardados pendientes
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class AsyncThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "game-async-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
     }
 }
@@ -0,0 +1,38 @@
+package com.dinosurio_G.Back.service.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tiempo de resolución de los ataques de una sala en cada tick.
+ * Solo escribe el hilo de tick de la sala; las métricas lo leen desde otros hilos.
+ */
+public class CombatStats {
+
+    private volatile long runs;
+    private volatile long attacks;
+    private volatile long totalNanos;
+    private volatile long lastNanos;
+    private volatile long maxNanos;
+
+    public void record(long elapsedNanos, int attacksResolved) {
+        runs++;
+        attacks += attacksResolved;
+        totalNanos += elapsedNanos;
+        lastNanos = elapsedNanos;
+        if (elapsedNanos > maxNanos) {
+            maxNanos = elapsedNanos;
+        }
+    }
+
+    public Map<String, Object> toMap() {
+        long count = runs;
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("runs", count);
+        data.put("attacks", attacks);
+        data.put("avgMs", count == 0 ? 0.0 : totalNanos / (double) count / 1_000_000.0);
+        data.put("lastMs", lastNanos / 1_000_000.0);
+        data.put("maxMs", maxNanos / 1_000_000.0);
+        return data;
+    }
+}
@@ -0,0 +1,106 @@
+package com.dinosurio_G.Back.service.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloj de paso fijo de una sala.
+ * Cada paso de simulación dura exactamente un periodo y recibe un id de tick
+ * monótono. Si el planificador llega tarde, el reloj pide pasos de recuperación
+ * (hasta un máximo) para que el movimiento por segundo no dependa de la carga;
+ * lo que exceda ese máximo se descarta y se contabiliza.
+ * Solo lo usa el hilo de tick de su sala.
+ */
+public class GameClock {
+
+    private final long periodMs;
+    private final long stepNanos;
+    private final int maxCatchUpSteps;
+    private final long startedAtMs;
+
+    private long nextStepAt;
+    private long tickId;
+
+    // Estadísticas de deriva del planificador
+    private long invocations;
+    private long lateInvocations;
+    private long catchUpSteps;
+    private long droppedSteps;
+    private long totalDriftNanos;
+    private volatile long lastDriftNanos;
+    private volatile long maxDriftNanos;
+
+    public GameClock(long periodMs, int maxCatchUpSteps, long nowNanos, long nowMs) {
+        this.periodMs = periodMs;
+        this.stepNanos = TimeUnit.MILLISECONDS.toNanos(periodMs);
+        this.maxCatchUpSteps = Math.max(1, maxCatchUpSteps);
+        this.startedAtMs = nowMs;
+        this.nextStepAt = nowNanos;
+    }
+
+    /**
+     * Devuelve cuántos pasos de simulación tocan en este instante (0 si aún no toca).
+     * Se tolera medio periodo de adelanto para absorber el desfase entre el
+     * planificador y el instante en que se creó el reloj.
+     */
+    public synchronized int advance(long nowNanos) {
+        if (nowNanos < nextStepAt - stepNanos / 2) {
+            return 0;
+        }
+
+        long drift = Math.max(0, nowNanos - nextStepAt);
+        invocations++;
+        totalDriftNanos += drift;
+        lastDriftNanos = drift;
+        if (drift > maxDriftNanos) {
+            maxDriftNanos = drift;
+        }
+        if (drift >= stepNanos) {
+            lateInvocations++;
+        }
+
+        long due = drift / stepNanos + 1;
+        int steps = (int) Math.min(due, maxCatchUpSteps);
+        catchUpSteps += steps - 1;
+        droppedSteps += due - steps;
+        // Los pasos descartados no se recuperan: el siguiente paso se alinea con el presente
+        nextStepAt += due * stepNanos;
+        return steps;
+    }
+
+    /**
+     * Avanza un paso y devuelve su id de tick.
+     */
+    public synchronized long nextTick() {
+        return ++tickId;
+    }
+
+    public synchronized long getTickId() {
+        return tickId;
+    }
+
+    /**
+     * Tiempo simulado del tick actual en ms de época: avanza exactamente un periodo por paso.
+     */
+    public synchronized long getSimulatedTimeMs() {
+        return startedAtMs + tickId * periodMs;
+    }
+
+    public long getPeriodMs() {
+        return periodMs;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tickId", tickId);
+        stats.put("invocations", invocations);
+        stats.put("lateInvocations", lateInvocations);
+        stats.put("catchUpSteps", catchUpSteps);
+        stats.put("droppedSteps", droppedSteps);
+        stats.put("avgDriftMs", invocations == 0 ? 0.0 : totalDriftNanos / (double) invocations / 1_000_000.0);
+        stats.put("lastDriftMs", lastDriftNanos / 1_000_000.0);
+        stats.put("maxDriftMs", maxDriftNanos / 1_000_000.0);
+        return stats;
+    }
+}
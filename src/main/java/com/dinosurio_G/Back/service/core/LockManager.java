@@ -1,22 +1,169 @@
 package com.dinosurio_G.Back.service.core;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Locks por clave ("map_5", "room_ABC123"...) sobre un número fijo de stripes:
+ * cada clave usa siempre el mismo ReentrantLock, así la memoria no crece con las claves.
+ * Dos claves distintas pueden compartir stripe; por eso no hay que anidar locks de
+ * claves distintas (podría haber interbloqueo).
+ * Las métricas se agrupan por clase de clave (el prefijo antes del primer '_').
+ */
 @Component
 public class LockManager {
 
-    private final ConcurrentHashMap<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final Map<String, KeyClassStats> statsByClass = new ConcurrentHashMap<>();
+
+    public LockManager(@Value("${game.locks.stripes:64}") int stripeCount) {
+        // Potencia de 2 para elegir stripe con una máscara
+        int size = stripeCount <= 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
 
     public void withLock(String key, Runnable action) {
-        ReentrantLock lock = locks.computeIfAbsent(key, k -> new ReentrantLock());
-        lock.lock();
+        ReentrantLock lock = stripeFor(key);
+        KeyClassStats stats = statsFor(key);
+
+        long start = System.nanoTime();
+        boolean contended = !lock.tryLock();
+        if (contended) {
+            lock.lock();
+        }
+        long acquired = System.nanoTime();
+        stats.recordAcquire(contended, acquired - start);
+        try {
+            action.run();
+        } finally {
+            lock.unlock();
+            stats.recordHold(System.nanoTime() - acquired);
+        }
+    }
+
+    /**
+     * Como withLock, pero espera como mucho timeoutMs. Devuelve false (sin ejecutar
+     * la acción) si no consigue el lock a tiempo o si el hilo es interrumpido.
+     */
+    public boolean tryWithLock(String key, long timeoutMs, Runnable action) {
+        ReentrantLock lock = stripeFor(key);
+        KeyClassStats stats = statsFor(key);
+
+        long start = System.nanoTime();
+        boolean contended = !lock.tryLock();
+        if (contended) {
+            try {
+                if (!lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS)) {
+                    stats.recordTimeout(System.nanoTime() - start);
+                    return false;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stats.recordTimeout(System.nanoTime() - start);
+                return false;
+            }
+        }
+        long acquired = System.nanoTime();
+        stats.recordAcquire(contended, acquired - start);
         try {
             action.run();
         } finally {
             lock.unlock();
+            stats.recordHold(System.nanoTime() - acquired);
+        }
+        return true;
+    }
+
+    private ReentrantLock stripeFor(String key) {
+        int h = key.hashCode();
+        // Mezclar los bits altos: claves como "map_1", "map_2" solo difieren al final
+        h ^= (h >>> 16);
+        return stripes[h & mask];
+    }
+
+    private KeyClassStats statsFor(String key) {
+        int sep = key.indexOf('_');
+        String keyClass = sep > 0 ? key.substring(0, sep) : key;
+        return statsByClass.computeIfAbsent(keyClass, k -> new KeyClassStats());
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * Por clase de clave: adquisiciones, esperas, timeouts y tiempos de espera y retención.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> perClass = new LinkedHashMap<>();
+        statsByClass.forEach((keyClass, stats) -> perClass.put(keyClass, stats.toMap()));
+
+        int held = 0;
+        for (ReentrantLock lock : stripes) {
+            if (lock.isLocked()) held++;
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("stripes", stripes.length);
+        stats.put("stripesHeld", held);
+        stats.put("keyClasses", perClass);
+        return stats;
+    }
+
+    private static final class KeyClassStats {
+        private final LongAdder acquisitions = new LongAdder();
+        private final LongAdder contended = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final LongAdder holdNanos = new LongAdder();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final AtomicLong maxHoldNanos = new AtomicLong();
+
+        void recordAcquire(boolean wasContended, long waited) {
+            acquisitions.increment();
+            if (wasContended) {
+                contended.increment();
+                waitNanos.add(waited);
+                maxWaitNanos.accumulateAndGet(waited, Math::max);
+            }
+        }
+
+        void recordTimeout(long waited) {
+            timeouts.increment();
+            contended.increment();
+            waitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+        }
+
+        void recordHold(long held) {
+            holdNanos.add(held);
+            maxHoldNanos.accumulateAndGet(held, Math::max);
+        }
+
+        Map<String, Object> toMap() {
+            long count = acquisitions.sum();
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("acquisitions", count);
+            data.put("contended", contended.sum());
+            data.put("timeouts", timeouts.sum());
+            data.put("totalWaitMs", waitNanos.sum() / 1_000_000.0);
+            data.put("maxWaitMs", maxWaitNanos.get() / 1_000_000.0);
+            data.put("avgHoldMs", count == 0 ? 0.0 : holdNanos.sum() / (double) count / 1_000_000.0);
+            data.put("maxHoldMs", maxHoldNanos.get() / 1_000_000.0);
+            return data;
         }
     }
 }
@@ -0,0 +1,195 @@
+package com.dinosurio_G.Back.service.core;
+
+import com.dinosurio_G.Back.model.Player;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * NPCs de una sala en formato structure-of-arrays: arrays paralelos densos
+ * de posición, vida y cooldown, más un bitset de muertos.
+ * Borrar es O(1) intercambiando con el último; cada NPC conserva un id estable
+ * que además es su handle en el grid espacial. El id de un NPC borrado no se
+ * reutiliza hasta recycleRetiredIds(): los clientes casan los NPCs por id y deben
+ * recibir antes un frame sin él (ver BroadcastStage).
+ * No es thread-safe: quien lo use debe sincronizar sobre la instancia.
+ */
+public class NpcStore implements NpcView {
+
+    private static final int INITIAL_CAPACITY = 32;
+
+    private final double speed;
+    private final long attackCooldownMs;
+    private final SpatialHashGrid grid;
+
+    // Arrays densos indexados de 0 a size-1
+    private int size;
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private double[] xs = new double[INITIAL_CAPACITY];
+    private double[] ys = new double[INITIAL_CAPACITY];
+    private int[] health = new int[INITIAL_CAPACITY];
+    private long[] lastAttackAt = new long[INITIAL_CAPACITY];
+    private String[] lastHitBy = new String[INITIAL_CAPACITY];
+    private final BitSet dead = new BitSet(INITIAL_CAPACITY);
+
+    // id estable -> índice denso (-1 si el id está libre)
+    private int[] indexById = new int[INITIAL_CAPACITY];
+    private int[] freeIds = new int[INITIAL_CAPACITY];
+    private int freeCount;
+    // Borrados desde el último broadcast: aún no se pueden reutilizar
+    private int[] retiredIds = new int[INITIAL_CAPACITY];
+    private int retiredCount;
+    private int nextId;
+
+    public NpcStore(double speed, long attackCooldownMs, double cellSize) {
+        this.speed = speed;
+        this.attackCooldownMs = attackCooldownMs;
+        this.grid = new SpatialHashGrid(cellSize);
+        Arrays.fill(indexById, -1);
+    }
+
+    /**
+     * Añade un NPC y devuelve su id.
+     */
+    public int spawn(double x, double y, int hp) {
+        int id = freeCount > 0 ? freeIds[--freeCount] : nextId++;
+        if (id >= indexById.length) {
+            int old = indexById.length;
+            indexById = Arrays.copyOf(indexById, old * 2);
+            Arrays.fill(indexById, old, indexById.length, -1);
+        }
+        ensureCapacity(size + 1);
+
+        int index = size++;
+        ids[index] = id;
+        xs[index] = x;
+        ys[index] = y;
+        health[index] = hp;
+        lastAttackAt[index] = 0;
+        lastHitBy[index] = null;
+        dead.clear(index);
+        indexById[id] = index;
+        grid.update(id, x, y);
+        return id;
+    }
+
+    /**
+     * Borra el NPC del índice moviendo el último a su hueco. Al recorrer hacia atrás
+     * se puede borrar durante el recorrido.
+     */
+    public void removeAt(int index) {
+        int id = ids[index];
+        int last = --size;
+        if (index != last) {
+            ids[index] = ids[last];
+            xs[index] = xs[last];
+            ys[index] = ys[last];
+            health[index] = health[last];
+            lastAttackAt[index] = lastAttackAt[last];
+            lastHitBy[index] = lastHitBy[last];
+            dead.set(index, dead.get(last));
+            indexById[ids[index]] = index;
+        }
+        lastHitBy[last] = null;
+        dead.clear(last);
+
+        grid.remove(id);
+        indexById[id] = -1;
+        if (retiredCount == retiredIds.length) {
+            retiredIds = Arrays.copyOf(retiredIds, retiredCount * 2);
+        }
+        retiredIds[retiredCount++] = id;
+    }
+
+    /**
+     * Los ids borrados pasan a estar libres. Se llama cuando ya salió un broadcast
+     * sin esos NPCs, para que ningún frame lleve a la vez su muerte y un NPC nuevo con el mismo id.
+     */
+    public void recycleRetiredIds() {
+        if (retiredCount == 0) return;
+        if (freeCount + retiredCount > freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, Math.max(freeIds.length * 2, freeCount + retiredCount));
+        }
+        System.arraycopy(retiredIds, 0, freeIds, freeCount, retiredCount);
+        freeCount += retiredCount;
+        retiredCount = 0;
+    }
+
+    public int indexOf(int id) {
+        return id >= 0 && id < indexById.length ? indexById[id] : -1;
+    }
+
+    // Mover hacia (tx, ty) con paso igual a speed
+    public void moveTowards(int index, double tx, double ty) {
+        if (dead.get(index)) return;
+        double dx = tx - xs[index];
+        double dy = ty - ys[index];
+        double dist = Math.sqrt(dx * dx + dy * dy);
+        if (dist <= 0.0001) return;
+        double step = Math.min(speed, dist);
+        xs[index] += dx / dist * step;
+        ys[index] += dy / dist * step;
+        grid.update(ids[index], xs[index], ys[index]);
+    }
+
+    // Recibir daño. Retorna true si el golpe mató al NPC.
+    public boolean damage(int index, int amount, String playerName) {
+        if (dead.get(index) || amount <= 0) return false;
+        health[index] -= amount;
+        lastHitBy[index] = playerName;
+        if (health[index] <= 0) {
+            health[index] = 0;
+            dead.set(index);
+            return true;
+        }
+        return false;
+    }
+
+    // Ataque cuerpo a cuerpo con cooldown sobre el tiempo simulado del tick
+    public boolean tryAttack(int index, Player player, int amount, double meleeRange, long now) {
+        if (dead.get(index) || player == null || !player.isAlive()) return false;
+        double dx = player.getX() - xs[index];
+        double dy = player.getY() - ys[index];
+        if (dx * dx + dy * dy <= meleeRange * meleeRange && now - lastAttackAt[index] >= attackCooldownMs) {
+            lastAttackAt[index] = now;
+            player.receiveDamage(amount);
+            return true;
+        }
+        return false;
+    }
+
+    public String getLastHitBy(int index) {
+        return lastHitBy[index];
+    }
+
+    /**
+     * Grid de los NPCs; el handle de cada NPC es su id.
+     */
+    public SpatialHashGrid getGrid() {
+        return grid;
+    }
+
+    public void clear() {
+        while (size > 0) {
+            removeAt(size - 1);
+        }
+    }
+
+    @Override public int size() { return size; }
+    @Override public int getId(int index) { return ids[index]; }
+    @Override public double getX(int index) { return xs[index]; }
+    @Override public double getY(int index) { return ys[index]; }
+    @Override public int getHealth(int index) { return health[index]; }
+    @Override public boolean isDead(int index) { return dead.get(index); }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) return;
+        int newCapacity = Math.max(ids.length * 2, capacity);
+        ids = Arrays.copyOf(ids, newCapacity);
+        xs = Arrays.copyOf(xs, newCapacity);
+        ys = Arrays.copyOf(ys, newCapacity);
+        health = Arrays.copyOf(health, newCapacity);
+        lastAttackAt = Arrays.copyOf(lastAttackAt, newCapacity);
+        lastHitBy = Arrays.copyOf(lastHitBy, newCapacity);
+    }
+}
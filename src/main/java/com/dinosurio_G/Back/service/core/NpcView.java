@@ -0,0 +1,20 @@
+package com.dinosurio_G.Back.service.core;
+
+/**
+ * Vista de solo lectura de los NPCs de una sala, indexada de 0 a size()-1.
+ * Los índices no son estables entre ticks; el id sí.
+ */
+public interface NpcView {
+
+    int size();
+
+    int getId(int index);
+
+    double getX(int index);
+
+    double getY(int index);
+
+    int getHealth(int index);
+
+    boolean isDead(int index);
+}
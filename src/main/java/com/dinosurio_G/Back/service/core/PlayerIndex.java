@@ -0,0 +1,73 @@
+package com.dinosurio_G.Back.service.core;
+
+import com.dinosurio_G.Back.model.Player;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índice inmutable de los jugadores de una sala activa: por nombre, por id y por slot.
+ * El slot es la posición del jugador en el roster al construir el índice; es estable
+ * mientras el roster no cambie y sirve de handle en el grid de jugadores.
+ * Al ser inmutable se puede leer desde cualquier hilo; RoomRuntime lo sustituye
+ * entero cuando cambia el roster.
+ */
+public final class PlayerIndex {
+
+    private final Player[] slots;
+    private final Map<String, Integer> slotByName;
+    private final Map<Long, Integer> slotById;
+
+    private PlayerIndex(List<Player> players) {
+        this.slots = players.toArray(new Player[0]);
+        this.slotByName = new HashMap<>(slots.length * 2);
+        this.slotById = new HashMap<>(slots.length * 2);
+        for (int slot = 0; slot < slots.length; slot++) {
+            Player p = slots[slot];
+            if (p.getPlayerName() != null) slotByName.put(p.getPlayerName(), slot);
+            if (p.getId() != null) slotById.put(p.getId(), slot);
+        }
+    }
+
+    public static PlayerIndex of(List<Player> players) {
+        return new PlayerIndex(players);
+    }
+
+    /**
+     * Slot del jugador, o -1 si no está en la sala.
+     */
+    public int slotOf(String playerName) {
+        Integer slot = playerName != null ? slotByName.get(playerName) : null;
+        return slot != null ? slot : -1;
+    }
+
+    public Player byName(String playerName) {
+        int slot = slotOf(playerName);
+        return slot >= 0 ? slots[slot] : null;
+    }
+
+    public Player byId(long id) {
+        Integer slot = slotById.get(id);
+        return slot != null ? slots[slot] : null;
+    }
+
+    public Player get(int slot) {
+        return slots[slot];
+    }
+
+    public int size() {
+        return slots.length;
+    }
+
+    /**
+     * true si el índice sigue reflejando el roster (mismos jugadores en el mismo orden).
+     */
+    public boolean matches(List<Player> players) {
+        if (players.size() != slots.length) return false;
+        for (int i = 0; i < slots.length; i++) {
+            if (players.get(i) != slots[i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,196 @@
+package com.dinosurio_G.Back.service.core;
+
+import com.dinosurio_G.Back.model.Player;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistencia diferida (write-behind) del estado de juego de los jugadores.
+ * El tick solo marca jugadores como "sucios" en memoria; este componente escribe
+ * posición y vida en lotes JDBC cada cierto intervalo, agrupando todos los cambios
+ * de un mismo jugador en una sola fila.
+ * Garantía de frescura: un cambio llega a la BD como mucho un intervalo de flush
+ * después de producirse (salvo que la BD falle, en cuyo caso se reintenta).
+ */
+@Component
+public class PlayerStateWriteBehind {
+
+    private static final String UPDATE_SQL = "UPDATE player SET x = ?, y = ?, health = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long flushIntervalMs;
+
+    // Jugadores pendientes de escribir, con el instante en que se ensuciaron por primera vez
+    private final Map<Long, DirtyPlayer> dirty = new ConcurrentHashMap<>();
+
+    // Métricas
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong marks = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong stalenessViolations = new AtomicLong();
+    private volatile long lastFlushNanos;
+    private volatile int lastBatchSize;
+    private volatile long maxObservedStalenessMs;
+
+    public PlayerStateWriteBehind(JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${game.persistence.flush-interval-ms:1000}") long flushIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    /**
+     * Marca un jugador como modificado. No hace I/O: se llama desde el tick.
+     */
+    public void markDirty(Player player) {
+        Long id = player.getId();
+        if (id == null) return;
+        marks.incrementAndGet();
+        dirty.computeIfAbsent(id, k -> new DirtyPlayer(player, System.currentTimeMillis()));
+    }
+
+    public int getPendingCount() {
+        return dirty.size();
+    }
+
+    @Scheduled(fixedDelayString = "${game.persistence.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    /**
+     * Escribe todos los jugadores pendientes en un único lote.
+     */
+    public synchronized int flush() {
+        return write(drain(dirty.keySet()));
+    }
+
+    /**
+     * Escribe de inmediato los jugadores indicados (p. ej. al terminar la partida).
+     */
+    public synchronized int flush(Collection<Player> players) {
+        return write(drain(ids(players)));
+    }
+
+    /**
+     * Descarta los cambios pendientes de estos jugadores porque el llamador
+     * va a guardar la entidad completa. Espera a que termine un flush en curso
+     * para que no sobrescriba lo que se guarde después.
+     */
+    public synchronized void discard(Collection<Player> players) {
+        for (Long id : ids(players)) {
+            dirty.remove(id);
+        }
+    }
+
+    private List<DirtyPlayer> drain(Collection<Long> ids) {
+        List<DirtyPlayer> batch = new ArrayList<>();
+        for (Long id : new ArrayList<>(ids)) {
+            DirtyPlayer entry = dirty.remove(id);
+            if (entry != null) {
+                batch.add(entry);
+            }
+        }
+        return batch;
+    }
+
+    private int write(List<DirtyPlayer> batch) {
+        if (batch.isEmpty()) return 0;
+
+        long now = System.currentTimeMillis();
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (DirtyPlayer entry : batch) {
+            Player p = entry.player;
+            // Se escribe el valor actual: todos los cambios desde que se ensució quedan agrupados
+            rows.add(new Object[]{p.getX(), p.getY(), p.getHealth(), p.getId()});
+            recordStaleness(now - entry.dirtySince);
+        }
+
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPDATE_SQL, rows));
+        } catch (Exception e) {
+            // Reencolar conservando la antigüedad original para reintentar en el próximo flush
+            failures.incrementAndGet();
+            for (DirtyPlayer entry : batch) {
+                dirty.putIfAbsent(entry.player.getId(), entry);
+            }
+            System.err.println("❌ Error escribiendo estado de " + batch.size() + " jugador(es): " + e.getMessage());
+            return 0;
+        }
+
+        lastFlushNanos = System.nanoTime() - start;
+        lastBatchSize = rows.size();
+        flushes.incrementAndGet();
+        rowsWritten.addAndGet(rows.size());
+        return rows.size();
+    }
+
+    private void recordStaleness(long stalenessMs) {
+        if (stalenessMs > maxObservedStalenessMs) {
+            maxObservedStalenessMs = stalenessMs;
+        }
+        // Un flush programado que llega más tarde que dos intervalos indica que la BD no da abasto
+        if (stalenessMs > 2 * flushIntervalMs) {
+            stalenessViolations.incrementAndGet();
+        }
+    }
+
+    private static List<Long> ids(Collection<Player> players) {
+        List<Long> ids = new ArrayList<>(players.size());
+        for (Player p : players) {
+            if (p.getId() != null) ids.add(p.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Métricas del write-behind: lotes, filas, frescura y pendientes.
+     */
+    public Map<String, Object> getStats() {
+        long now = System.currentTimeMillis();
+        long oldestPending = 0;
+        for (DirtyPlayer entry : dirty.values()) {
+            oldestPending = Math.max(oldestPending, now - entry.dirtySince);
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("flushIntervalMs", flushIntervalMs);
+        stats.put("pending", dirty.size());
+        stats.put("oldestPendingMs", oldestPending);
+        stats.put("marks", marks.get());
+        stats.put("flushes", flushes.get());
+        stats.put("rowsWritten", rowsWritten.get());
+        stats.put("failures", failures.get());
+        stats.put("lastBatchSize", lastBatchSize);
+        stats.put("lastFlushMs", lastFlushNanos / 1_000_000.0);
+        stats.put("maxObservedStalenessMs", maxObservedStalenessMs);
+        stats.put("stalenessViolations", stalenessViolations.get());
+        return stats;
+    }
+
+    private static final class DirtyPlayer {
+        private final Player player;
+        private final long dirtySince;
+
+        private DirtyPlayer(Player player, long dirtySince) {
+            this.player = player;
+            this.dirtySince = dirtySince;
+        }
+    }
+}
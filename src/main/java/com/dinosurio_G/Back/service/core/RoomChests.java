@@ -0,0 +1,53 @@
+package com.dinosurio_G.Back.service.core;
+
+import com.dinosurio_G.Back.model.Chest;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cofres activos de una sala en curso. Es la fuente de verdad durante la partida:
+ * se carga una vez al activar la sala, el spawner añade los nuevos y el tick
+ * retira los que se abren. La BD se actualiza en segundo plano.
+ * El spawner escribe desde su propio hilo y el tick recorre los cofres, por eso
+ * el mapa es concurrente; {@link #claim} garantiza que un cofre solo se abre una vez.
+ */
+public class RoomChests {
+
+    private final Map<Long, Chest> active = new ConcurrentHashMap<>();
+
+    public void load(Collection<Chest> chests) {
+        active.clear();
+        for (Chest chest : chests) {
+            add(chest);
+        }
+    }
+
+    public void add(Chest chest) {
+        if (chest.getId() != null && chest.isActive()) {
+            active.put(chest.getId(), chest);
+        }
+    }
+
+    /**
+     * Retira el cofre del conjunto y lo marca abierto. Devuelve false si otro
+     * ya lo había abierto (o no está en la sala).
+     */
+    public boolean claim(Chest chest) {
+        if (active.remove(chest.getId()) == null) {
+            return false;
+        }
+        chest.openChest();
+        return true;
+    }
+
+    public Collection<Chest> getActive() {
+        return Collections.unmodifiableCollection(active.values());
+    }
+
+    public int size() {
+        return active.size();
+    }
+}
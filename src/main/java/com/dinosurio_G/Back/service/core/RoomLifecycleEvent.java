@@ -0,0 +1,48 @@
+package com.dinosurio_G.Back.service.core;
+
+import com.dinosurio_G.Back.model.GameRoom;
+
+/**
+ * Evento de ciclo de vida de una sala.
+ * Lo publican GameRoomService y GamePlayServices; el registro de salas activas
+ * se actualiza a partir de estos eventos en lugar de consultar la BD en cada tick.
+ */
+public class RoomLifecycleEvent {
+
+    public enum Type {
+        STARTED,  // La partida comenzó
+        ENDED,    // La partida terminó pero la sala sigue existiendo
+        DELETED   // La sala fue eliminada
+    }
+
+    private final Type type;
+    private final String roomCode;
+    private final GameRoom room;
+
+    public RoomLifecycleEvent(Type type, String roomCode, GameRoom room) {
+        this.type = type;
+        this.roomCode = roomCode;
+        this.room = room;
+    }
+
+    public static RoomLifecycleEvent started(GameRoom room) {
+        return new RoomLifecycleEvent(Type.STARTED, room.getRoomCode(), room);
+    }
+
+    public static RoomLifecycleEvent ended(String roomCode) {
+        return new RoomLifecycleEvent(Type.ENDED, roomCode, null);
+    }
+
+    public static RoomLifecycleEvent deleted(String roomCode) {
+        return new RoomLifecycleEvent(Type.DELETED, roomCode, null);
+    }
+
+    public Type getType() { return type; }
+    public String getRoomCode() { return roomCode; }
+    public GameRoom getRoom() { return room; }
+
+    @Override
+    public String toString() {
+        return "RoomLifecycleEvent{" + type + ", " + roomCode + '}';
+    }
+}
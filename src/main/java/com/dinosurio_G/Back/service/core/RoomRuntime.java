@@ -0,0 +1,95 @@
+package com.dinosurio_G.Back.service.core;
+
+import com.dinosurio_G.Back.model.GameRoom;
+import com.dinosurio_G.Back.model.Player;
+
+import java.util.List;
+
+/**
+ * Estado en memoria de una sala con partida en curso.
+ * Solo existe mientras la sala está registrada en ActiveRoomRegistry.
+ */
+public class RoomRuntime {
+
+    // Tamaño de celda de los grids espaciales (algo mayor que el radio típico de consulta)
+    public static final double GRID_CELL_SIZE = 128.0;
+
+    private final String roomCode;
+    private final GameRoom room;
+    private final long activatedAt;
+
+    // Reloj de paso fijo: lo crea el pipeline en el primer tick de la sala
+    private volatile GameClock clock;
+
+    // Posiciones de los jugadores vivos; handle = slot del jugador en el índice
+    private final SpatialHashGrid playerGrid = new SpatialHashGrid(GRID_CELL_SIZE);
+
+    // Jugadores por nombre, id y slot; se reconstruye si cambia el roster
+    private volatile PlayerIndex playerIndex;
+
+    // Tiempo de resolución del combate de la sala
+    private final CombatStats combatStats = new CombatStats();
+
+    // Cofres activos de la sala (en memoria; la BD se actualiza en segundo plano)
+    private final RoomChests chests = new RoomChests();
+
+    public RoomRuntime(GameRoom room) {
+        this.roomCode = room.getRoomCode();
+        this.room = room;
+        this.activatedAt = System.currentTimeMillis();
+        this.playerIndex = PlayerIndex.of(room.getPlayers());
+        syncPlayerGrid();
+    }
+
+    public String getRoomCode() { return roomCode; }
+    public GameRoom getRoom() { return room; }
+    public long getActivatedAt() { return activatedAt; }
+    public GameClock getClock() { return clock; }
+    public void setClock(GameClock clock) { this.clock = clock; }
+    public SpatialHashGrid getPlayerGrid() { return playerGrid; }
+    public CombatStats getCombatStats() { return combatStats; }
+    public RoomChests getChests() { return chests; }
+
+    public PlayerIndex getPlayerIndex() { return playerIndex; }
+
+    public Player getPlayer(int slot) {
+        return playerIndex.get(slot);
+    }
+
+    public Player getPlayer(String playerName) {
+        return playerIndex.byName(playerName);
+    }
+
+    public Player getPlayerById(long id) {
+        return playerIndex.byId(id);
+    }
+
+    /**
+     * Reconstruye el índice de jugadores si el roster de la sala cambió
+     * (altas, bajas o fin de partida). Lo llama el hilo de tick.
+     */
+    public void refreshPlayerIndex() {
+        List<Player> players = room.getPlayers();
+        if (!playerIndex.matches(players)) {
+            playerIndex = PlayerIndex.of(players);
+            playerGrid.clear();
+        }
+    }
+
+    /**
+     * Refleja en el grid la posición de cada jugador; los muertos salen del grid.
+     * Solo reubica a quien cambió de celda.
+     */
+    public void syncPlayerGrid() {
+        refreshPlayerIndex();
+        PlayerIndex index = playerIndex;
+        for (int slot = 0; slot < index.size(); slot++) {
+            Player p = index.get(slot);
+            if (p.isAlive()) {
+                playerGrid.update(slot, p.getX(), p.getY());
+            } else {
+                playerGrid.remove(slot);
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.dinosurio_G.Back.service.core;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Motor de ticks por sala.
+ * Cada sala activa recibe su propio slot de tasa fija dentro de un pool de hilos
+ * dimensionado, de modo que las salas avanzan en paralelo y una sala lenta
+ * (guardado en BD, broadcast grande) no retrasa a las demás.
+ * Un mismo slot nunca se ejecuta en paralelo consigo mismo.
+ */
+@Component
+public class RoomTickEngine {
+
+    // Intervalo mínimo entre dos avisos de sobrecarga de la misma sala
+    private static final long OVERRUN_LOG_INTERVAL_MS = 1000;
+
+    private final long tickPeriodMs;
+    private final long tickBudgetNanos;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final Map<String, RoomSlot> slots = new ConcurrentHashMap<>();
+
+    public RoomTickEngine(@Value("${game.tick.period-ms:50}") long tickPeriodMs,
+                          @Value("${game.tick.pool-size:0}") int poolSize) {
+        this.tickPeriodMs = tickPeriodMs;
+        this.tickBudgetNanos = TimeUnit.MILLISECONDS.toNanos(tickPeriodMs);
+
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        this.scheduler = new ScheduledThreadPoolExecutor(threads, new RoomTickThreadFactory());
+        this.scheduler.setRemoveOnCancelPolicy(true);
+        System.out.println("✓ Motor de ticks iniciado con " + threads + " hilos (" + tickPeriodMs + " ms por tick)");
+    }
+
+    /**
+     * Registra una sala en el motor. Devuelve false si ya tenía un slot.
+     */
+    public synchronized boolean register(String roomCode, Runnable tick) {
+        if (slots.containsKey(roomCode)) {
+            return false;
+        }
+        RoomSlot slot = new RoomSlot(roomCode, tick);
+        System.out.println("▶ Sala " + roomCode + " registrada en el motor de ticks");
+        slot.future = scheduler.scheduleAtFixedRate(slot::run, 0, tickPeriodMs, TimeUnit.MILLISECONDS);
+        slots.put(roomCode, slot);
+        return true;
+    }
+
+    /**
+     * Libera el slot de una sala. Puede llamarse desde el propio tick de la sala.
+     */
+    public synchronized void unregister(String roomCode) {
+        RoomSlot slot = slots.remove(roomCode);
+        if (slot != null) {
+            slot.future.cancel(false);
+            System.out.println("⏹ Sala " + roomCode + " retirada del motor de ticks");
+        }
+    }
+
+    public boolean isRegistered(String roomCode) {
+        return slots.containsKey(roomCode);
+    }
+
+    public Set<String> getRegisteredRooms() {
+        return Set.copyOf(slots.keySet());
+    }
+
+    public long getTickPeriodMs() {
+        return tickPeriodMs;
+    }
+
+    /**
+     * Estadísticas por sala: ticks ejecutados, sobrecargas y duraciones.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> rooms = new LinkedHashMap<>();
+        slots.forEach((code, slot) -> rooms.put(code, slot.toMap()));
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tickPeriodMs", tickPeriodMs);
+        stats.put("poolSize", scheduler.getCorePoolSize());
+        stats.put("activeThreads", scheduler.getActiveCount());
+        stats.put("rooms", rooms);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Slot de una sala: envuelve su tick, mide la duración y reporta sobrecargas.
+     */
+    private final class RoomSlot {
+        private final String roomCode;
+        private final Runnable tick;
+        private final AtomicLong ticks = new AtomicLong();
+        private final AtomicLong overruns = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private volatile long lastDurationNanos;
+        private volatile long maxDurationNanos;
+        private long lastOverrunLogAt;
+        private ScheduledFuture<?> future;
+
+        private RoomSlot(String roomCode, Runnable tick) {
+            this.roomCode = roomCode;
+            this.tick = tick;
+        }
+
+        private void run() {
+            long start = System.nanoTime();
+            try {
+                tick.run();
+            } catch (Exception e) {
+                // Nunca propagar: una excepción cancelaría el slot de la sala
+                failures.incrementAndGet();
+                System.err.println("❌ Error en tick de sala " + roomCode + ": " + e.getMessage());
+            }
+            long elapsed = System.nanoTime() - start;
+
+            ticks.incrementAndGet();
+            lastDurationNanos = elapsed;
+            if (elapsed > maxDurationNanos) {
+                maxDurationNanos = elapsed;
+            }
+            if (elapsed > tickBudgetNanos) {
+                reportOverrun(elapsed);
+            }
+        }
+
+        private void reportOverrun(long elapsedNanos) {
+            long count = overruns.incrementAndGet();
+            long now = System.currentTimeMillis();
+            if (now - lastOverrunLogAt >= OVERRUN_LOG_INTERVAL_MS) {
+                lastOverrunLogAt = now;
+                System.err.println("⚠️ Tick de sala " + roomCode + " tardó " +
+                        TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms (presupuesto " +
+                        tickPeriodMs + " ms, sobrecargas: " + count + ")");
+            }
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("ticks", ticks.get());
+            data.put("overruns", overruns.get());
+            data.put("failures", failures.get());
+            data.put("lastTickMs", lastDurationNanos / 1_000_000.0);
+            data.put("maxTickMs", maxDurationNanos / 1_000_000.0);
+            return data;
+        }
+    }
+
+    private static final class RoomTickThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "room-tick-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
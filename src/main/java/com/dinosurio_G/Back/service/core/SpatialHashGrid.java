@@ -0,0 +1,258 @@
+package com.dinosurio_G.Back.service.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Grid hash uniforme para consultas espaciales de una sala.
+ * Las entidades se identifican por un handle entero estable (índice de slot,
+ * id del NPC...) y el grid guarda su posición; moverse dentro de la misma
+ * celda no toca ninguna estructura, cambiar de celda es O(1).
+ * No es thread-safe: lo usa el hilo de tick de la sala. No se debe modificar
+ * el grid desde el callback de una consulta.
+ */
+public class SpatialHashGrid {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final double cellSize;
+    private final Map<Long, Cell> cells = new HashMap<>();
+
+    // Estado por handle
+    private double[] xs = new double[INITIAL_CAPACITY];
+    private double[] ys = new double[INITIAL_CAPACITY];
+    private long[] cellOf = new long[INITIAL_CAPACITY];
+    private int[] indexInCell = new int[INITIAL_CAPACITY];
+    private boolean[] present = new boolean[INITIAL_CAPACITY];
+    private int size;
+
+    // Celdas extremas ocupadas alguna vez (cota para la búsqueda del más cercano)
+    private int minCx = Integer.MAX_VALUE, maxCx = Integer.MIN_VALUE;
+    private int minCy = Integer.MAX_VALUE, maxCy = Integer.MIN_VALUE;
+
+    public SpatialHashGrid(double cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Inserta el handle o actualiza su posición.
+     */
+    public void update(int handle, double x, double y) {
+        ensureCapacity(handle);
+        int cx = cellCoord(x);
+        int cy = cellCoord(y);
+        long key = key(cx, cy);
+
+        if (present[handle]) {
+            xs[handle] = x;
+            ys[handle] = y;
+            if (cellOf[handle] == key) {
+                return;
+            }
+            removeFromCell(handle);
+        } else {
+            present[handle] = true;
+            xs[handle] = x;
+            ys[handle] = y;
+            size++;
+        }
+        addToCell(handle, key, cx, cy);
+    }
+
+    public void remove(int handle) {
+        if (!contains(handle)) return;
+        removeFromCell(handle);
+        present[handle] = false;
+        size--;
+        if (size == 0) {
+            minCx = minCy = Integer.MAX_VALUE;
+            maxCx = maxCy = Integer.MIN_VALUE;
+        }
+    }
+
+    public void clear() {
+        cells.clear();
+        Arrays.fill(present, false);
+        size = 0;
+        minCx = minCy = Integer.MAX_VALUE;
+        maxCx = maxCy = Integer.MIN_VALUE;
+    }
+
+    public boolean contains(int handle) {
+        return handle >= 0 && handle < present.length && present[handle];
+    }
+
+    public double getX(int handle) { return xs[handle]; }
+    public double getY(int handle) { return ys[handle]; }
+    public int size() { return size; }
+
+    /**
+     * Handles cuyo punto está dentro del rectángulo (bordes incluidos).
+     */
+    public void queryRect(double minX, double minY, double maxX, double maxY, IntConsumer out) {
+        int fromCx = cellCoord(minX), toCx = cellCoord(maxX);
+        int fromCy = cellCoord(minY), toCy = cellCoord(maxY);
+        for (int cx = fromCx; cx <= toCx; cx++) {
+            for (int cy = fromCy; cy <= toCy; cy++) {
+                Cell cell = cells.get(key(cx, cy));
+                if (cell == null) continue;
+                for (int i = 0; i < cell.size; i++) {
+                    int h = cell.handles[i];
+                    double x = xs[h], y = ys[h];
+                    if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                        out.accept(h);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Handles a distancia menor o igual que radius del punto.
+     */
+    public void queryRadius(double x, double y, double radius, IntConsumer out) {
+        double r2 = radius * radius;
+        queryRect(x - radius, y - radius, x + radius, y + radius, h -> {
+            double dx = xs[h] - x, dy = ys[h] - y;
+            if (dx * dx + dy * dy <= r2) {
+                out.accept(h);
+            }
+        });
+    }
+
+    public boolean anyWithin(double x, double y, double radius) {
+        double r2 = radius * radius;
+        int fromCx = cellCoord(x - radius), toCx = cellCoord(x + radius);
+        int fromCy = cellCoord(y - radius), toCy = cellCoord(y + radius);
+        for (int cx = fromCx; cx <= toCx; cx++) {
+            for (int cy = fromCy; cy <= toCy; cy++) {
+                Cell cell = cells.get(key(cx, cy));
+                if (cell == null) continue;
+                for (int i = 0; i < cell.size; i++) {
+                    int h = cell.handles[i];
+                    double dx = xs[h] - x, dy = ys[h] - y;
+                    if (dx * dx + dy * dy <= r2) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Handle más cercano al punto que cumple el filtro, o -1 si no hay ninguno
+     * dentro de maxRadius. Recorre anillos de celdas desde la del punto y para en
+     * cuanto ningún anillo pendiente puede contener algo más cercano.
+     */
+    public int nearest(double x, double y, double maxRadius, IntPredicate filter) {
+        if (size == 0) return -1;
+
+        int cx0 = cellCoord(x);
+        int cy0 = cellCoord(y);
+        int maxRing = Math.max(Math.max(cx0 - minCx, maxCx - cx0), Math.max(cy0 - minCy, maxCy - cy0));
+        if (maxRadius != Double.POSITIVE_INFINITY) {
+            maxRing = Math.min(maxRing, (int) Math.ceil(maxRadius / cellSize) + 1);
+        }
+
+        double maxR2 = maxRadius * maxRadius;
+        double bestD2 = Double.MAX_VALUE;
+        int best = -1;
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int dx = -ring; dx <= ring; dx++) {
+                boolean edgeColumn = dx == -ring || dx == ring;
+                for (int dy = -ring; dy <= ring; dy += edgeColumn ? 1 : 2 * ring) {
+                    Cell cell = cells.get(key(cx0 + dx, cy0 + dy));
+                    if (cell != null) {
+                        for (int i = 0; i < cell.size; i++) {
+                            int h = cell.handles[i];
+                            double ddx = xs[h] - x, ddy = ys[h] - y;
+                            double d2 = ddx * ddx + ddy * ddy;
+                            if (d2 < bestD2 && d2 <= maxR2 && filter.test(h)) {
+                                bestD2 = d2;
+                                best = h;
+                            }
+                        }
+                    }
+                    if (ring == 0) break;
+                }
+            }
+            // Todo lo que queda fuera de este anillo está al menos a ring * cellSize
+            double reach = ring * cellSize;
+            if (best != -1 && bestD2 <= reach * reach) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    private void addToCell(int handle, long key, int cx, int cy) {
+        Cell cell = cells.computeIfAbsent(key, k -> new Cell());
+        indexInCell[handle] = cell.add(handle);
+        cellOf[handle] = key;
+        if (cx < minCx) minCx = cx;
+        if (cx > maxCx) maxCx = cx;
+        if (cy < minCy) minCy = cy;
+        if (cy > maxCy) maxCy = cy;
+    }
+
+    private void removeFromCell(int handle) {
+        long key = cellOf[handle];
+        Cell cell = cells.get(key);
+        int moved = cell.removeAt(indexInCell[handle]);
+        if (moved >= 0) {
+            indexInCell[moved] = indexInCell[handle];
+        }
+        if (cell.size == 0) {
+            cells.remove(key);
+        }
+    }
+
+    private void ensureCapacity(int handle) {
+        if (handle < present.length) return;
+        int capacity = Math.max(present.length * 2, handle + 1);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        cellOf = Arrays.copyOf(cellOf, capacity);
+        indexInCell = Arrays.copyOf(indexInCell, capacity);
+        present = Arrays.copyOf(present, capacity);
+    }
+
+    private int cellCoord(double v) {
+        return (int) Math.floor(v / cellSize);
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+
+    /**
+     * Handles de una celda con borrado por intercambio con el último.
+     */
+    private static final class Cell {
+        private int[] handles = new int[4];
+        private int size;
+
+        private int add(int handle) {
+            if (size == handles.length) {
+                handles = Arrays.copyOf(handles, size * 2);
+            }
+            handles[size] = handle;
+            return size++;
+        }
+
+        // Devuelve el handle que pasó a ocupar la posición borrada, o -1
+        private int removeAt(int index) {
+            int last = --size;
+            if (index == last) {
+                return -1;
+            }
+            handles[index] = handles[last];
+            return handles[index];
+        }
+    }
+}
@@ -2,21 +2,27 @@ package com.dinosurio_G.Back.service.impl;
 
 import com.dinosurio_G.Back.model.Chest;
 import com.dinosurio_G.Back.repository.ChestRepository;
+import com.dinosurio_G.Back.service.core.AsyncExecutor;
 import com.dinosurio_G.Back.service.interfaces.IChestService;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @Transactional
 public class ChestService implements IChestService {
 
     private final ChestRepository chestRepository;
+    private final AsyncExecutor asyncExecutor;
 
-    public ChestService(ChestRepository chestRepository) {
+    public ChestService(ChestRepository chestRepository, AsyncExecutor asyncExecutor) {
         this.chestRepository = chestRepository;
+        this.asyncExecutor = asyncExecutor;
     }
 
     @Override
@@ -40,17 +46,23 @@ public class ChestService implements IChestService {
     }
 
     /**
-     * Intenta abrir un cofre de forma transaccional. Retorna true si se abrió y se guardó.
+     * Guarda un cofre nuevo fuera del hilo que lo crea. Al completarse, el cofre ya tiene id.
+     * Sin transacción en el hilo que llama: la abre el repositorio en el hilo del pool.
      */
-    @Transactional
-    public boolean tryOpenChest(Long chestId) {
-        Chest chest = chestRepository.findById(chestId).orElse(null);
-        if (chest == null || !chest.isActive()) {
-            return false;
-        }
-        chest.openChest();
-        chestRepository.save(chest);
-        return true;
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CompletableFuture<Void> saveAsync(Chest chest) {
+        return asyncExecutor.runAsync(() -> chestRepository.save(chest));
+    }
+
+    /**
+     * Persiste en segundo plano la apertura de un cofre que ya se abrió en memoria.
+     * Lo llama el hilo de tick, que no debe abrir transacción ni tocar la BD.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CompletableFuture<Void> markOpenedAsync(Long chestId) {
+        return asyncExecutor.runAsync(() -> chestRepository.markOpened(chestId));
     }
 
 
@@ -58,4 +70,12 @@ public class ChestService implements IChestService {
     public List<Chest> findByMapId(Long mapId) {
         return chestRepository.findByMapId(mapId);
     }
+
+    /**
+     * Elimina los cofres ya abiertos generados antes de {@code cutoff}. Devuelve las filas borradas.
+     */
+    @Override
+    public int deleteInactiveGeneratedBefore(LocalDateTime cutoff) {
+        return chestRepository.deleteInactiveGeneratedBefore(cutoff);
+    }
 }
@@ -1,8 +1,10 @@
 package com.dinosurio_G.Back.service.interfaces;
 
 import com.dinosurio_G.Back.model.Chest;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public interface IChestService {
 
@@ -11,4 +13,7 @@ public interface IChestService {
     List<Chest> findAll();
     void deleteById(Long id);
     public List<Chest> findByMapId(Long mapId);
+    CompletableFuture<Void> saveAsync(Chest chest);
+    CompletableFuture<Void> markOpenedAsync(Long chestId);
+    int deleteInactiveGeneratedBefore(LocalDateTime cutoff);
 }
@@ -0,0 +1,49 @@
+package com.dinosurio_G.Back.service.pipeline;
+
+import com.dinosurio_G.Back.service.ExperienceService;
+import com.dinosurio_G.Back.service.GamePlayServices;
+import com.dinosurio_G.Back.service.NPCManager;
+import com.dinosurio_G.Back.service.broadcast.RoomEventBatcher;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Envía a los clientes el estado resultante del tick y, en un solo frame,
+ * los eventos que se produjeron durante el tick, y el progreso de XP si cambió.
+ * Después, los ids de los NPCs retirados ya se pueden reutilizar.
+ */
+@Component
+@Order(700)
+public class BroadcastStage implements TickStage {
+
+    private final GamePlayServices gamePlayServices;
+    private final RoomEventBatcher roomEvents;
+    private final ExperienceService experienceService;
+    private final NPCManager npcManager;
+
+    public BroadcastStage(GamePlayServices gamePlayServices, RoomEventBatcher roomEvents,
+                          ExperienceService experienceService, NPCManager npcManager) {
+        this.gamePlayServices = gamePlayServices;
+        this.roomEvents = roomEvents;
+        this.experienceService = experienceService;
+        this.npcManager = npcManager;
+    }
+
+    @Override
+    public String getName() {
+        return "broadcast";
+    }
+
+    @Override
+    public void execute(TickContext ctx) {
+        gamePlayServices.broadcastGameState(ctx.getRoomCode(), ctx.getTickId());
+        roomEvents.flush(ctx.getRoomCode(), ctx.getTickId());
+        experienceService.flushProgress(ctx.getRoomCode());
+        npcManager.recycleNpcIds(ctx.getRoomCode());
+    }
+
+    @Override
+    public boolean runsEveryStep() {
+        return false;
+    }
+}
@@ -0,0 +1,29 @@
+package com.dinosurio_G.Back.service.pipeline;
+
+import com.dinosurio_G.Back.service.GamePlayServices;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Apertura de cofres cercanos a los jugadores.
+ */
+@Component
+@Order(500)
+public class ChestStage implements TickStage {
+
+    private final GamePlayServices gamePlayServices;
+
+    public ChestStage(GamePlayServices gamePlayServices) {
+        this.gamePlayServices = gamePlayServices;
+    }
+
+    @Override
+    public String getName() {
+        return "chests";
+    }
+
+    @Override
+    public void execute(TickContext ctx) {
+        gamePlayServices.checkChestInteractions(ctx.getRuntime());
+    }
+}
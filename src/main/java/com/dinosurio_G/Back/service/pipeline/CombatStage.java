@@ -0,0 +1,52 @@
+package com.dinosurio_G.Back.service.pipeline;
+
+import com.dinosurio_G.Back.service.GamePlayServices;
+import com.dinosurio_G.Back.service.NPCManager;
+import com.dinosurio_G.Back.service.core.ActiveRoomRegistry;
+import com.dinosurio_G.Back.service.core.RoomRuntime;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ataques automáticos de los jugadores y retirada de NPCs muertos (XP por baja).
+ * Todo se resuelve dentro del tick de la sala, sin locks compartidos entre salas.
+ */
+@Component
+@Order(400)
+public class CombatStage implements TickStage {
+
+    private final GamePlayServices gamePlayServices;
+    private final NPCManager npcManager;
+    private final ActiveRoomRegistry activeRooms;
+
+    public CombatStage(GamePlayServices gamePlayServices, NPCManager npcManager, ActiveRoomRegistry activeRooms) {
+        this.gamePlayServices = gamePlayServices;
+        this.npcManager = npcManager;
+        this.activeRooms = activeRooms;
+    }
+
+    @Override
+    public String getName() {
+        return "combat";
+    }
+
+    @Override
+    public void execute(TickContext ctx) {
+        gamePlayServices.runAutoAttacks(ctx.getRuntime(), ctx.getNow());
+        npcManager.removeDeadNpcs(ctx.getRoomCode());
+    }
+
+    /**
+     * Tiempo de resolución de ataques por sala activa.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> rooms = new LinkedHashMap<>();
+        for (RoomRuntime runtime : activeRooms.getActiveRooms()) {
+            rooms.put(runtime.getRoomCode(), runtime.getCombatStats().toMap());
+        }
+        return rooms;
+    }
+}
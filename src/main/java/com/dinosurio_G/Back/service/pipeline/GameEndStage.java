@@ -0,0 +1,31 @@
+package com.dinosurio_G.Back.service.pipeline;
+
+import com.dinosurio_G.Back.service.GamePlayServices;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fin de partida. La victoria la dispara ExperienceService al alcanzar la XP objetivo
+ * en las etapas anteriores; aquí se comprueba la derrota. En ambos casos GameEndPipeline
+ * solo congela la sala en este hilo: la BD se actualiza en segundo plano.
+ */
+@Component
+@Order(600)
+public class GameEndStage implements TickStage {
+
+    private final GamePlayServices gamePlayServices;
+
+    public GameEndStage(GamePlayServices gamePlayServices) {
+        this.gamePlayServices = gamePlayServices;
+    }
+
+    @Override
+    public String getName() {
+        return "gameEnd";
+    }
+
+    @Override
+    public void execute(TickContext ctx) {
+        gamePlayServices.checkGameOver(ctx.getRoomCode());
+    }
+}
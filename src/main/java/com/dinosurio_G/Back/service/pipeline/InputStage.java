@@ -0,0 +1,29 @@
+package com.dinosurio_G.Back.service.pipeline;
+
+import com.dinosurio_G.Back.service.GamePlayServices;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Aplica los inputs recibidos desde el último tick (gana el último de cada jugador).
+ */
+@Component
+@Order(100)
+public class InputStage implements TickStage {
+
+    private final GamePlayServices gamePlayServices;
+
+    public InputStage(GamePlayServices gamePlayServices) {
+        this.gamePlayServices = gamePlayServices;
+    }
+
+    @Override
+    public String getName() {
+        return "inputs";
+    }
+
+    @Override
+    public void execute(TickContext ctx) {
+        gamePlayServices.applyPendingInputs(ctx.getRuntime());
+    }
+}
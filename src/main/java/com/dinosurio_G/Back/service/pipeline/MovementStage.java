@@ -0,0 +1,29 @@
+package com.dinosurio_G.Back.service.pipeline;
+
+import com.dinosurio_G.Back.service.GamePlayServices;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Mueve a los jugadores vivos según su input.
+ */
+@Component
+@Order(200)
+public class MovementStage implements TickStage {
+
+    private final GamePlayServices gamePlayServices;
+
+    public MovementStage(GamePlayServices gamePlayServices) {
+        this.gamePlayServices = gamePlayServices;
+    }
+
+    @Override
+    public String getName() {
+        return "movement";
+    }
+
+    @Override
+    public void execute(TickContext ctx) {
+        gamePlayServices.movePlayers(ctx.getRuntime());
+    }
+}
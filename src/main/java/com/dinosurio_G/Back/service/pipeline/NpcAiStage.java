@@ -0,0 +1,29 @@
+package com.dinosurio_G.Back.service.pipeline;
+
+import com.dinosurio_G.Back.service.NPCManager;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * IA de los NPCs: persiguen al jugador más cercano y le atacan cuerpo a cuerpo.
+ */
+@Component
+@Order(300)
+public class NpcAiStage implements TickStage {
+
+    private final NPCManager npcManager;
+
+    public NpcAiStage(NPCManager npcManager) {
+        this.npcManager = npcManager;
+    }
+
+    @Override
+    public String getName() {
+        return "npcAi";
+    }
+
+    @Override
+    public void execute(TickContext ctx) {
+        npcManager.updateRoomNpcs(ctx.getRuntime(), ctx.getNow());
+    }
+}
@@ -0,0 +1,192 @@
+package com.dinosurio_G.Back.service.pipeline;
+
+import com.dinosurio_G.Back.service.core.ActiveRoomRegistry;
+import com.dinosurio_G.Back.service.core.GameClock;
+import com.dinosurio_G.Back.service.core.RoomRuntime;
+import com.dinosurio_G.Back.service.core.RoomTickEngine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Tick único y ordenado de una sala: ejecuta las etapas registradas
+ * (inputs → movimiento → IA de NPCs → combate → cofres → fin de partida → broadcast)
+ * sobre la sala en memoria, de modo que cada tick produce un estado consistente.
+ * El reloj de paso fijo de la sala decide cuántos pasos de simulación tocan en cada
+ * invocación; las etapas de salida se ejecutan una sola vez con el último tick.
+ */
+@Component
+public class RoomTickPipeline {
+
+    private final ActiveRoomRegistry activeRooms;
+    private final RoomTickEngine roomTickEngine;
+    private final int maxCatchUpSteps;
+    private final List<TimedStage> stepStages = new ArrayList<>();
+    private final List<TimedStage> outputStages = new ArrayList<>();
+    private final AtomicLong ticks = new AtomicLong();
+    private final LongSupplier nanoClock;
+
+    @Autowired
+    public RoomTickPipeline(List<TickStage> stages,
+                            ActiveRoomRegistry activeRooms,
+                            RoomTickEngine roomTickEngine,
+                            @Value("${game.tick.max-catch-up-steps:5}") int maxCatchUpSteps) {
+        this(stages, activeRooms, roomTickEngine, maxCatchUpSteps, System::nanoTime);
+    }
+
+    /**
+     * Con un reloj de nanosegundos propio (los tests fijan el instante de cada tick).
+     */
+    public RoomTickPipeline(List<TickStage> stages,
+                            ActiveRoomRegistry activeRooms,
+                            RoomTickEngine roomTickEngine,
+                            int maxCatchUpSteps,
+                            LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.activeRooms = activeRooms;
+        this.roomTickEngine = roomTickEngine;
+        this.maxCatchUpSteps = maxCatchUpSteps;
+        // Spring entrega la lista ya ordenada por @Order
+        for (TickStage stage : stages) {
+            (stage.runsEveryStep() ? stepStages : outputStages).add(new TimedStage(stage));
+        }
+        System.out.println("✓ Pipeline de tick: " + getStageNames());
+    }
+
+    public void tick(String roomCode) {
+        RoomRuntime runtime = activeRooms.get(roomCode);
+        if (runtime == null) {
+            roomTickEngine.unregister(roomCode);
+            return;
+        }
+
+        GameClock clock = clockFor(runtime);
+        int steps = clock.advance(nanoClock.getAsLong());
+        if (steps == 0) {
+            return;
+        }
+
+        TickContext ctx = null;
+        for (int i = 0; i < steps; i++) {
+            ctx = new TickContext(runtime, clock.nextTick(), clock.getSimulatedTimeMs());
+            ticks.incrementAndGet();
+            if (!runStages(stepStages, ctx)) {
+                return;
+            }
+        }
+        runStages(outputStages, ctx);
+    }
+
+    private boolean runStages(List<TimedStage> stages, TickContext ctx) {
+        for (TimedStage timed : stages) {
+            timed.run(ctx);
+            // Una etapa puede terminar la partida (victoria o derrota): el resto ya no aplica
+            if (!activeRooms.isActive(ctx.getRoomCode())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private GameClock clockFor(RoomRuntime runtime) {
+        GameClock clock = runtime.getClock();
+        if (clock == null) {
+            clock = new GameClock(roomTickEngine.getTickPeriodMs(), maxCatchUpSteps,
+                    nanoClock.getAsLong(), System.currentTimeMillis());
+            runtime.setClock(clock);
+        }
+        return clock;
+    }
+
+    public List<String> getStageNames() {
+        List<String> names = new ArrayList<>();
+        for (TimedStage timed : stepStages) {
+            names.add(timed.stage.getName());
+        }
+        for (TimedStage timed : outputStages) {
+            names.add(timed.stage.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Reloj de cada sala activa: tick actual, pasos recuperados/descartados y deriva.
+     */
+    public Map<String, Object> getClockStats() {
+        Map<String, Object> rooms = new LinkedHashMap<>();
+        for (RoomRuntime runtime : activeRooms.getActiveRooms()) {
+            GameClock clock = runtime.getClock();
+            if (clock != null) {
+                rooms.put(runtime.getRoomCode(), clock.getStats());
+            }
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tickPeriodMs", roomTickEngine.getTickPeriodMs());
+        stats.put("maxCatchUpSteps", maxCatchUpSteps);
+        stats.put("rooms", rooms);
+        return stats;
+    }
+
+    /**
+     * Tiempos por etapa acumulados sobre todas las salas.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> perStage = new LinkedHashMap<>();
+        for (TimedStage timed : stepStages) {
+            perStage.put(timed.stage.getName(), timed.toMap());
+        }
+        for (TimedStage timed : outputStages) {
+            perStage.put(timed.stage.getName(), timed.toMap());
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ticks", ticks.get());
+        stats.put("stages", perStage);
+        return stats;
+    }
+
+    private static final class TimedStage {
+        private final TickStage stage;
+        private final AtomicLong runs = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private volatile long lastNanos;
+        private volatile long maxNanos;
+
+        private TimedStage(TickStage stage) {
+            this.stage = stage;
+        }
+
+        private void run(TickContext ctx) {
+            long start = System.nanoTime();
+            try {
+                stage.execute(ctx);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                runs.incrementAndGet();
+                totalNanos.addAndGet(elapsed);
+                lastNanos = elapsed;
+                if (elapsed > maxNanos) {
+                    maxNanos = elapsed;
+                }
+            }
+        }
+
+        private Map<String, Object> toMap() {
+            long count = runs.get();
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("runs", count);
+            data.put("avgMs", count == 0 ? 0.0 : totalNanos.get() / (double) count / 1_000_000.0);
+            data.put("lastMs", lastNanos / 1_000_000.0);
+            data.put("maxMs", maxNanos / 1_000_000.0);
+            return data;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.dinosurio_G.Back.service.pipeline;
+
+import com.dinosurio_G.Back.model.GameRoom;
+import com.dinosurio_G.Back.service.core.RoomRuntime;
+
+/**
+ * Datos compartidos por todas las etapas de un mismo tick.
+ * "now" es el tiempo simulado del paso (avanza exactamente un periodo por tick),
+ * de modo que cooldowns y período de gracia no dependen de la carga del planificador.
+ */
+public class TickContext {
+
+    private final RoomRuntime runtime;
+    private final long tickId;
+    private final long now;
+
+    public TickContext(RoomRuntime runtime, long tickId, long now) {
+        this.runtime = runtime;
+        this.tickId = tickId;
+        this.now = now;
+    }
+
+    public RoomRuntime getRuntime() { return runtime; }
+    public GameRoom getRoom() { return runtime.getRoom(); }
+    public String getRoomCode() { return runtime.getRoomCode(); }
+    public long getTickId() { return tickId; }
+    public long getNow() { return now; }
+}
@@ -0,0 +1,20 @@
+package com.dinosurio_G.Back.service.pipeline;
+
+/**
+ * Etapa del tick de una sala. Las etapas son beans ordenados con @Order
+ * y RoomTickPipeline las ejecuta en ese orden, midiendo cada una.
+ */
+public interface TickStage {
+
+    String getName();
+
+    void execute(TickContext ctx);
+
+    /**
+     * Las etapas de simulación se repiten en cada paso de recuperación del reloj;
+     * las de salida (broadcast) devuelven false y se ejecutan una vez por invocación.
+     */
+    default boolean runsEveryStep() {
+        return true;
+    }
+}
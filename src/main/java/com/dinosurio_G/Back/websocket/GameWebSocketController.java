@@ -1,17 +1,23 @@
 package com.dinosurio_G.Back.websocket;
 
 import com.dinosurio_G.Back.dto.GameRoomDTO;
-import com.dinosurio_G.Back.dto.GameRoomMapper;
 import com.dinosurio_G.Back.service.GamePlayServices;
 import com.dinosurio_G.Back.service.GameRoomService;
+import com.dinosurio_G.Back.service.broadcast.LobbyBroadcaster;
+import com.dinosurio_G.Back.service.broadcast.RoomStateBroadcaster;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.stereotype.Controller;
 
 // Mensajes del front se envían a /app/game/{roomCode}/input
+// Petición de estado completo: /app/game/{roomCode}/resync
+// Estado filtrado por área de interés: /user/queue/game/{roomCode}/state(.bin)
 // Notificaciones a clientes: /topic/game/{roomCode}
+// Lobby: cambios en /topic/lobby; al suscribirse a /app/lobby llega la foto por /user/queue/lobby
 @Controller
 public class GameWebSocketController {
 
@@ -24,22 +30,47 @@ public class GameWebSocketController {
     @Autowired
     private GameRoomService gameRoomService;
 
+    @Autowired
+    private RoomStateBroadcaster roomStateBroadcaster;
+
+    @Autowired
+    private StateSubscriptionRegistry subscriptions;
+
+    @Autowired
+    private LobbyBroadcaster lobbyBroadcaster;
+
     // DTO MovementMessage
     @MessageMapping("/game/{roomCode}/input")
-    public void receiveInput(@DestinationVariable String roomCode, MovementMessage msg) {
+    public void receiveInput(@DestinationVariable String roomCode, MovementMessage msg,
+                             @Header(name = "simpSessionId", required = false) String sessionId) {
+        // La sesión que envía input controla a ese jugador (área de interés del estado por sesión)
+        subscriptions.bindPlayer(sessionId, msg.getPlayerName());
+
         // Actualiza input en servicio (no persiste posición aquí; loop tick se encarga)
-        gamePlayServices.updatePlayerInput(roomCode, msg.getPlayerName(),
-                msg.isArriba(), msg.isAbajo(), msg.isIzquierda(), msg.isDerecha());
+        gamePlayServices.updatePlayerInput(roomCode, msg.getPlayerName(), msg.inputMask(), msg.getSeq());
 
         // Opcional: reenviamos el input a todos (útil para debug / sincronizar)
         messagingTemplate.convertAndSend("/topic/game/" + roomCode + "/input", msg);
     }
 
+    // El cliente perdió frames o detectó un hueco de ticks: el próximo estado será completo
+    @MessageMapping("/game/{roomCode}/resync")
+    public void requestResync(@DestinationVariable String roomCode,
+                              @Header(name = "simpSessionId", required = false) String sessionId) {
+        roomStateBroadcaster.requestKeyframe(roomCode, sessionId);
+    }
+
+    // Foto del lobby al suscribirse: sale por /user/queue/lobby, como el resto de frames por
+    // sesión, para que pase por la cola de salida de la sesión igual que los cambios
+    @SubscribeMapping("/lobby")
+    public void lobbySnapshot(@Header(name = "simpSessionId", required = false) String sessionId) {
+        lobbyBroadcaster.sendSnapshot(sessionId);
+    }
+
     // Método utilitario: enviar estado completo de la sala a todos los clientes
     public void broadcastRoomState(String roomCode) {
         try {
-            var room = gameRoomService.getRoomByCode(roomCode);
-            GameRoomDTO dto = GameRoomMapper.toDTO(room);
+            GameRoomDTO dto = gameRoomService.getRoomDTO(roomCode);
             messagingTemplate.convertAndSend("/topic/game/" + roomCode + "/state", dto);
         } catch (Exception e) {
             System.err.println("Error broadcasting room state: " + e.getMessage());
@@ -1,11 +1,15 @@
 package com.dinosurio_G.Back.websocket;
 
+import com.dinosurio_G.Back.model.Player;
+
 public class MovementMessage {
     private String playerName;
     private boolean arriba;
     private boolean abajo;
     private boolean izquierda;
     private boolean derecha;
+    // Secuencia del cliente; vuelve en los frames de estado como último input procesado
+    private long seq;
 
     public MovementMessage() {}
 
@@ -27,4 +31,10 @@ public class MovementMessage {
     public void setIzquierda(boolean izquierda) { this.izquierda = izquierda; }
     public boolean isDerecha() { return derecha; }
     public void setDerecha(boolean derecha) { this.derecha = derecha; }
+    public long getSeq() { return seq; }
+    public void setSeq(long seq) { this.seq = seq; }
+
+    public int inputMask() {
+        return Player.inputMask(arriba, abajo, izquierda, derecha);
+    }
 }
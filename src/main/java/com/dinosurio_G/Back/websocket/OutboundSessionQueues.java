@@ -0,0 +1,306 @@
+package com.dinosurio_G.Back.websocket;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cola de salida acotada por sesión WebSocket, instalada como interceptor del
+ * clientOutboundChannel. Cada sesión tiene como mucho un frame en vuelo: el
+ * resto espera aquí en orden, y mientras espera un frame de estado (marcado con
+ * CONFLATE_HEADER) es sustituido por el siguiente de la misma suscripción, así
+ * un cliente lento recibe el estado más reciente en lugar de acumular atraso.
+ * Los eventos nunca se descartan. Si la sesión sigue atrasada más de
+ * max-behind-ms o acumula más de max-queue frames, se cierra en un hilo propio;
+ * hasta que el cierre termina, su cola queda marcada y descarta lo que llegue.
+ */
+@Component
+public class OutboundSessionQueues implements ExecutorChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    /**
+     * Cabecera (no nativa) de los frames de estado sustituibles; su valor es el código de sala.
+     */
+    public static final String CONFLATE_HEADER = "gameStateRoom";
+    private static final String RELEASED_HEADER = "outboundReleased";
+    private static final AtomicInteger CLOSER_THREADS = new AtomicInteger();
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final int maxQueue;
+    private final long maxBehindMs;
+
+    private final Map<String, SessionQueue> queues = new ConcurrentHashMap<>();
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    // Cierre de sesiones lentas: puede bloquear en el socket, así que va en su propio hilo
+    private final ExecutorService closer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ws-slow-close-" + CLOSER_THREADS.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Métricas
+    private final AtomicLong queuedFrames = new AtomicLong();
+    private final AtomicLong droppedStateFrames = new AtomicLong();
+    private final AtomicLong slowDisconnects = new AtomicLong();
+    private final AtomicLong droppedWhileClosing = new AtomicLong();
+
+    public OutboundSessionQueues(ApplicationEventPublisher eventPublisher,
+                                 @Value("${game.ws.outbound.max-queue:256}") int maxQueue,
+                                 @Value("${game.ws.outbound.max-behind-ms:5000}") long maxBehindMs) {
+        this.eventPublisher = eventPublisher;
+        this.maxQueue = maxQueue;
+        this.maxBehindMs = maxBehindMs;
+    }
+
+    // ---- Registro de sesiones (para poder cerrar las lentas) ----
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                sessions.put(session.getId(), session);
+                queues.put(session.getId(), new SessionQueue(session.getId()));
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                queues.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    // ---- Interceptor del canal de salida ----
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (message.getHeaders().containsKey(RELEASED_HEADER)) {
+            return message;
+        }
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        SessionQueue queue = sessionId != null ? queues.get(sessionId) : null;
+        if (queue == null) {
+            return message;
+        }
+
+        if (queue.isClosing()) {
+            // Sesión lenta pendiente de cierre: no se le envía nada más
+            droppedWhileClosing.incrementAndGet();
+            return null;
+        }
+        queuedFrames.incrementAndGet();
+        Message<?> next = queue.offer(message);
+        if (next != null) {
+            channel.send(released(next));
+        }
+        return null;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        if (!message.getHeaders().containsKey(RELEASED_HEADER)) return;
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        SessionQueue queue = sessionId != null ? queues.get(sessionId) : null;
+        if (queue == null) return;
+
+        Message<?> next = queue.completed();
+        if (next != null) {
+            channel.send(released(next));
+        }
+    }
+
+    private static Message<?> released(Message<?> message) {
+        return MessageBuilder.fromMessage(message).setHeader(RELEASED_HEADER, Boolean.TRUE).build();
+    }
+
+    private void disconnectSlow(SessionQueue queue, String reason) {
+        WebSocketSession session = sessions.get(queue.sessionId);
+        if (session == null) {
+            queues.remove(queue.sessionId);
+            return;
+        }
+        // La cola queda como marca hasta afterConnectionClosed: los frames que lleguen mientras
+        // tanto se descartan en lugar de ir directos a una sesión que sabemos lenta
+        if (!queue.close()) return;
+        slowDisconnects.incrementAndGet();
+        System.err.println("⚠️ Sesión " + queue.sessionId + " cerrada por cliente lento: " + reason);
+        try {
+            closer.execute(() -> {
+                try {
+                    session.close(CloseStatus.SESSION_NOT_RELIABLE);
+                } catch (Exception e) {
+                    System.err.println("Error cerrando sesión lenta " + queue.sessionId + ": " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Apagando: el contenedor cierra las sesiones
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        closer.shutdownNow();
+    }
+
+    /**
+     * Profundidad de cola y descartes por sesión, más totales.
+     */
+    public Map<String, Object> getStats() {
+        long now = System.currentTimeMillis();
+        Map<String, Object> perSession = new LinkedHashMap<>();
+        for (SessionQueue queue : queues.values()) {
+            perSession.put(queue.sessionId, queue.stats(now));
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxQueue", maxQueue);
+        stats.put("maxBehindMs", maxBehindMs);
+        stats.put("sessions", queues.size());
+        stats.put("queuedFrames", queuedFrames.get());
+        stats.put("droppedStateFrames", droppedStateFrames.get());
+        stats.put("slowDisconnects", slowDisconnects.get());
+        stats.put("droppedWhileClosing", droppedWhileClosing.get());
+        stats.put("perSession", perSession);
+        return stats;
+    }
+
+    /**
+     * Cola de una sesión. Todos los métodos se sincronizan sobre la cola.
+     */
+    private final class SessionQueue {
+        private final String sessionId;
+        private final ArrayDeque<Message<?>> pending = new ArrayDeque<>();
+        private boolean inFlight;
+        private boolean closing;
+        private long behindSince;
+        private long dropped;
+        private int maxDepth;
+
+        private SessionQueue(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        /**
+         * Encola el frame y devuelve el que hay que soltar ya (si no había ninguno en vuelo).
+         */
+        private Message<?> offer(Message<?> message) {
+            String droppedRoom = null;
+            String droppedDestination = null;
+            int depth;
+            Message<?> release = null;
+
+            synchronized (this) {
+                if (closing) {
+                    return null;
+                }
+                if (!inFlight && pending.isEmpty()) {
+                    inFlight = true;
+                    return message;
+                }
+
+                String room = (String) message.getHeaders().get(CONFLATE_HEADER);
+                if (room != null && removeQueuedState(SimpMessageHeaderAccessor.getSubscriptionId(message.getHeaders()))) {
+                    dropped++;
+                    droppedRoom = room;
+                    droppedDestination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+                }
+                pending.addLast(message);
+                maxDepth = Math.max(maxDepth, pending.size());
+
+                long now = System.currentTimeMillis();
+                if (behindSince == 0) behindSince = now;
+                depth = pending.size();
+                if (!inFlight) {
+                    inFlight = true;
+                    release = pending.pollFirst();
+                }
+            }
+
+            if (droppedRoom != null) {
+                droppedStateFrames.incrementAndGet();
+                eventPublisher.publishEvent(new StateFrameDroppedEvent(droppedRoom, sessionId, droppedDestination));
+            }
+            long behindMs = System.currentTimeMillis() - behindSince;
+            if (depth > maxQueue || behindMs > maxBehindMs) {
+                disconnectSlow(this, depth + " frames en cola, " + behindMs + " ms atrasada");
+                return null;
+            }
+            return release;
+        }
+
+        /**
+         * El frame en vuelo terminó de enviarse; devuelve el siguiente, si hay.
+         */
+        private synchronized Message<?> completed() {
+            if (closing) return null;
+            Message<?> next = pending.pollFirst();
+            if (next == null) {
+                inFlight = false;
+                behindSince = 0;
+            }
+            return next;
+        }
+
+        private synchronized boolean isClosing() {
+            return closing;
+        }
+
+        /**
+         * Marca la cola como cerrándose y descarta lo pendiente. False si ya lo estaba.
+         */
+        private synchronized boolean close() {
+            if (closing) return false;
+            closing = true;
+            pending.clear();
+            return true;
+        }
+
+        private boolean removeQueuedState(String subscriptionId) {
+            Iterator<Message<?>> it = pending.iterator();
+            while (it.hasNext()) {
+                Message<?> queued = it.next();
+                if (queued.getHeaders().containsKey(CONFLATE_HEADER)
+                        && subscriptionId != null
+                        && subscriptionId.equals(SimpMessageHeaderAccessor.getSubscriptionId(queued.getHeaders()))) {
+                    it.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private synchronized Map<String, Object> stats(long now) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("depth", pending.size());
+            stats.put("maxDepth", maxDepth);
+            stats.put("droppedStateFrames", dropped);
+            stats.put("behindMs", behindSince == 0 ? 0 : now - behindSince);
+            return stats;
+        }
+    }
+}
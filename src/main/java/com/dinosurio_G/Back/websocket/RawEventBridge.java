@@ -0,0 +1,52 @@
+package com.dinosurio_G.Back.websocket;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Interceptor del brokerChannel que reenvía a las sesiones crudas de la sala los
+ * mensajes publicados en /topic/game/{roomCode}/{canal} (lotes de eventos, XP...),
+ * reutilizando el JSON ya serializado. El estado no pasa por aquí: RoomStateBroadcaster
+ * lo envía directamente a cada sesión cruda. Las sesiones crudas reciben los eventos
+ * solo en lotes por tick (canal "events"), no sueltos.
+ */
+@Component
+public class RawEventBridge implements ChannelInterceptor {
+
+    private static final String GAME_PREFIX = "/topic/game/";
+
+    private final RawGameSessions rawGameSessions;
+
+    public RawEventBridge(RawGameSessions rawGameSessions) {
+        this.rawGameSessions = rawGameSessions;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return message;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null || !destination.startsWith(GAME_PREFIX)
+                || !(message.getPayload() instanceof byte[] json)) {
+            return message;
+        }
+
+        String rest = destination.substring(GAME_PREFIX.length());
+        int slash = rest.indexOf('/');
+        if (slash <= 0) return message;
+        String roomCode = rest.substring(0, slash);
+        String suffix = rest.substring(slash + 1);
+
+        // El estado y el eco de inputs tienen su propio camino en el endpoint crudo
+        if (suffix.startsWith("state") || suffix.equals("input") || suffix.equals("event")) {
+            return message;
+        }
+        rawGameSessions.broadcastJson(roomCode, suffix, json);
+        return message;
+    }
+}
@@ -0,0 +1,63 @@
+package com.dinosurio_G.Back.websocket;
+
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sesión del endpoint WebSocket crudo: sala, jugador y formato de estado elegidos
+ * al conectar. Cada sesión tiene su propia cola de salida que vacía una sola tarea
+ * a la vez, así los frames llegan en el orden en que se enviaron; esa tarea escribe
+ * a través de un ConcurrentWebSocketSessionDecorator. Como nunca hay dos escritores,
+ * los límites de tiempo y de bytes los aplica RawGameSessions sobre esta cola.
+ */
+public final class RawGameSession {
+
+    private final String roomCode;
+    private final String playerName;
+    private final boolean binary;
+    private final ConcurrentWebSocketSessionDecorator session;
+
+    final AtomicLong framesSent = new AtomicLong();
+    final AtomicLong bytesSent = new AtomicLong();
+    final AtomicLong stateFramesSkipped = new AtomicLong();
+
+    // Cola de salida: frames aceptados que aún no se han escrito en el decorador
+    final Queue<WebSocketMessage<?>> outbox = new ConcurrentLinkedQueue<>();
+    final AtomicInteger queuedFrames = new AtomicInteger();
+    final AtomicLong queuedBytes = new AtomicLong();
+    final AtomicBoolean draining = new AtomicBoolean();
+    // Cerrándose o ya cerrada: los frames nuevos se descartan
+    final AtomicBoolean closing = new AtomicBoolean();
+
+    RawGameSession(String roomCode, String playerName, boolean binary, ConcurrentWebSocketSessionDecorator session) {
+        this.roomCode = roomCode;
+        this.playerName = playerName;
+        this.binary = binary;
+        this.session = session;
+    }
+
+    public String getId() { return session.getId(); }
+    public String getRoomCode() { return roomCode; }
+    public String getPlayerName() { return playerName; }
+    public boolean isBinary() { return binary; }
+
+    /**
+     * Hay frames esperando (en la cola de la sesión o en el buffer del decorador) o una
+     * escritura lleva más de stallMs: el cliente va atrasado.
+     */
+    public boolean isBehind(long stallMs) {
+        return queuedFrames.get() > 0
+                || session.getBufferSize() > 0
+                || session.getTimeSinceSendStarted() > stallMs;
+    }
+
+    ConcurrentWebSocketSessionDecorator getSession() {
+        return session;
+    }
+}
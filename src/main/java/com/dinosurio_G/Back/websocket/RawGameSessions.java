@@ -0,0 +1,311 @@
+package com.dinosurio_G.Back.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registro sesión -> sala del endpoint WebSocket crudo (/ws-game-raw) y camino
+ * de envío directo, sin STOMP ni broker. El estado va en frames binarios
+ * (StateFrameEncoder) o de texto; el resto de mensajes de la partida van como
+ * texto JSON {"channel": ..., "data": ...}.
+ * Las escrituras se hacen en un pool propio para que un socket lento no bloquee
+ * el hilo de tick. Cada sesión se vacía con una sola tarea a la vez (orden
+ * garantizado) y el resto espera en su cola de salida. Una sesión cuya escritura
+ * lleva más de send-time-limit-ms, o cuya cola supera send-buffer-size-limit bytes,
+ * se cierra: así un cliente parado no retiene un hilo del pool ni memoria sin límite.
+ */
+@Component
+public class RawGameSessions {
+
+    private static final int MAX_FRAMES_PER_DRAIN = 32;
+
+    private final ObjectMapper objectMapper;
+    private final int sendTimeLimitMs;
+    private final int sendBufferSizeLimit;
+    private final ExecutorService sender;
+    // Cierres fuera del hilo de tick y del pool de envío (cerrar también es I/O)
+    private final ExecutorService closer;
+
+    // sala -> (id de sesión -> sesión)
+    private final Map<String, Map<String, RawGameSession>> sessionsByRoom = new ConcurrentHashMap<>();
+
+    // Métricas
+    private final AtomicLong connections = new AtomicLong();
+    private final AtomicLong inputs = new AtomicLong();
+    private final AtomicLong stateFrames = new AtomicLong();
+    private final AtomicLong eventFrames = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong stateFramesSkipped = new AtomicLong();
+    private final AtomicLong sendFailures = new AtomicLong();
+    private final AtomicLong slowSessionsClosed = new AtomicLong();
+    private final AtomicLong framesDiscarded = new AtomicLong();
+
+    public RawGameSessions(ObjectMapper objectMapper,
+                           @Value("${game.ws.raw.send-time-limit-ms:5000}") int sendTimeLimitMs,
+                           @Value("${game.ws.raw.send-buffer-size-limit:524288}") int sendBufferSizeLimit,
+                           @Value("${game.ws.raw.sender-threads:0}") int senderThreads) {
+        this.objectMapper = objectMapper;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.sendBufferSizeLimit = sendBufferSizeLimit;
+        int threads = senderThreads > 0 ? senderThreads : Runtime.getRuntime().availableProcessors();
+        this.sender = Executors.newFixedThreadPool(threads, new RawSenderThreadFactory("raw-ws-send-"));
+        this.closer = Executors.newSingleThreadExecutor(new RawSenderThreadFactory("raw-ws-close-"));
+    }
+
+    public RawGameSession register(WebSocketSession session, String roomCode, String playerName, boolean binary) {
+        ConcurrentWebSocketSessionDecorator concurrent =
+                new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, sendBufferSizeLimit);
+        RawGameSession raw = new RawGameSession(roomCode, playerName, binary, concurrent);
+        sessionsByRoom.computeIfAbsent(roomCode, k -> new ConcurrentHashMap<>()).put(session.getId(), raw);
+        connections.incrementAndGet();
+        return raw;
+    }
+
+    public void unregister(RawGameSession raw) {
+        // Lo que quedaba en cola ya no se puede enviar
+        raw.closing.set(true);
+        discardQueued(raw);
+        sessionsByRoom.computeIfPresent(raw.getRoomCode(), (room, sessions) -> {
+            sessions.remove(raw.getId());
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+
+    public Collection<RawGameSession> getSessions(String roomCode) {
+        Map<String, RawGameSession> sessions = sessionsByRoom.get(roomCode);
+        return sessions != null ? sessions.values() : Collections.emptyList();
+    }
+
+    public boolean isConnected(String roomCode, String sessionId) {
+        Map<String, RawGameSession> sessions = sessionsByRoom.get(roomCode);
+        return sessions != null && sessions.containsKey(sessionId);
+    }
+
+    public void recordInput() {
+        inputs.incrementAndGet();
+    }
+
+    public void recordSkippedState(RawGameSession raw) {
+        raw.stateFramesSkipped.incrementAndGet();
+        stateFramesSkipped.incrementAndGet();
+        // Al cliente atrasado no se le envía estado: comprobar aquí que no esté parado
+        withinLimits(raw);
+    }
+
+    // ---- Envío ----
+
+    public void sendBinaryState(RawGameSession raw, byte[] frame) {
+        stateFrames.incrementAndGet();
+        send(raw, new BinaryMessage(frame));
+    }
+
+    public void sendJsonState(RawGameSession raw, Object state) {
+        try {
+            stateFrames.incrementAndGet();
+            send(raw, new TextMessage(envelope("state", objectMapper.writeValueAsString(state))));
+        } catch (JsonProcessingException e) {
+            System.err.println("Error serializando estado para sesión cruda " + raw.getId() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reenvía a todas las sesiones crudas de la sala un mensaje ya serializado en JSON.
+     */
+    public void broadcastJson(String roomCode, String channel, byte[] json) {
+        Map<String, RawGameSession> sessions = sessionsByRoom.get(roomCode);
+        if (sessions == null || sessions.isEmpty()) return;
+
+        TextMessage message = new TextMessage(envelope(channel, new String(json, StandardCharsets.UTF_8)));
+        for (RawGameSession raw : sessions.values()) {
+            eventFrames.incrementAndGet();
+            send(raw, message);
+        }
+    }
+
+    private static String envelope(String channel, String json) {
+        return "{\"channel\":\"" + channel + "\",\"data\":" + json + "}";
+    }
+
+    private void send(RawGameSession raw, WebSocketMessage<?> message) {
+        if (raw.closing.get()) {
+            framesDiscarded.incrementAndGet();
+            return;
+        }
+        raw.outbox.add(message);
+        raw.queuedFrames.incrementAndGet();
+        raw.queuedBytes.addAndGet(message.getPayloadLength());
+        if (withinLimits(raw)) {
+            scheduleDrain(raw);
+        }
+    }
+
+    // Como mucho una tarea de envío por sesión: es lo que mantiene el orden de los frames
+    private void scheduleDrain(RawGameSession raw) {
+        if (!raw.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            sender.execute(() -> drain(raw));
+        } catch (RejectedExecutionException e) {
+            // Apagando: los frames pendientes ya no se envían
+            raw.draining.set(false);
+        }
+    }
+
+    private void drain(RawGameSession raw) {
+        int sent = 0;
+        WebSocketMessage<?> message;
+        // Tanda acotada para no acaparar un hilo del pool con una sola sesión
+        while (sent < MAX_FRAMES_PER_DRAIN && withinLimits(raw) && (message = raw.outbox.poll()) != null) {
+            raw.queuedFrames.decrementAndGet();
+            raw.queuedBytes.addAndGet(-message.getPayloadLength());
+            write(raw, message);
+            sent++;
+        }
+        raw.draining.set(false);
+        // Un frame pudo llegar entre el último poll y soltar la marca
+        if (!raw.outbox.isEmpty() && !raw.closing.get()) {
+            scheduleDrain(raw);
+        }
+    }
+
+    private void write(RawGameSession raw, WebSocketMessage<?> message) {
+        try {
+            raw.getSession().sendMessage(message);
+            raw.framesSent.incrementAndGet();
+            raw.bytesSent.addAndGet(message.getPayloadLength());
+            bytesSent.addAndGet(message.getPayloadLength());
+        } catch (Exception e) {
+            // Sesión cerrada (por nosotros o por el cliente); afterConnectionClosed la da de baja
+            sendFailures.incrementAndGet();
+        }
+    }
+
+    /**
+     * Cierra la sesión si su escritura en curso lleva demasiado o su cola creció demasiado.
+     * Devuelve false si la sesión ya no debe recibir frames.
+     */
+    private boolean withinLimits(RawGameSession raw) {
+        if (raw.closing.get()) return false;
+        long stalledMs = raw.getSession().getTimeSinceSendStarted();
+        if (stalledMs > sendTimeLimitMs) {
+            closeSlow(raw, "escritura bloqueada " + stalledMs + " ms");
+            return false;
+        }
+        long queued = raw.queuedBytes.get();
+        if (queued > sendBufferSizeLimit) {
+            closeSlow(raw, queued + " bytes en cola");
+            return false;
+        }
+        return true;
+    }
+
+    private void closeSlow(RawGameSession raw, String reason) {
+        if (!raw.closing.compareAndSet(false, true)) return;
+        slowSessionsClosed.incrementAndGet();
+        discardQueued(raw);
+        System.err.println("🐢 Cerrando sesión cruda lenta " + raw.getId() + " (" + reason + ")");
+        try {
+            // Cerrar desbloquea la escritura en curso y libera su hilo de envío
+            closer.execute(() -> {
+                try {
+                    raw.getSession().close(CloseStatus.SESSION_NOT_RELIABLE);
+                } catch (IOException e) {
+                    System.err.println("Error cerrando sesión cruda " + raw.getId() + ": " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Apagando: el contenedor cierra las sesiones
+        }
+    }
+
+    private void discardQueued(RawGameSession raw) {
+        WebSocketMessage<?> message;
+        while ((message = raw.outbox.poll()) != null) {
+            raw.queuedFrames.decrementAndGet();
+            raw.queuedBytes.addAndGet(-message.getPayloadLength());
+            framesDiscarded.incrementAndGet();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+        closer.shutdownNow();
+    }
+
+    /**
+     * Conexiones, frames y bytes del endpoint crudo, más el detalle por sesión.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> perSession = new LinkedHashMap<>();
+        for (Map<String, RawGameSession> sessions : sessionsByRoom.values()) {
+            for (RawGameSession raw : sessions.values()) {
+                Map<String, Object> s = new LinkedHashMap<>();
+                s.put("roomCode", raw.getRoomCode());
+                s.put("playerName", raw.getPlayerName());
+                s.put("format", raw.isBinary() ? "bin" : "json");
+                s.put("framesSent", raw.framesSent.get());
+                s.put("bytesSent", raw.bytesSent.get());
+                s.put("stateFramesSkipped", raw.stateFramesSkipped.get());
+                s.put("queuedFrames", raw.queuedFrames.get());
+                s.put("queuedBytes", raw.queuedBytes.get());
+                s.put("bufferedBytes", raw.getSession().getBufferSize());
+                perSession.put(raw.getId(), s);
+            }
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("openSessions", perSession.size());
+        stats.put("connections", connections.get());
+        stats.put("inputs", inputs.get());
+        stats.put("stateFrames", stateFrames.get());
+        stats.put("eventFrames", eventFrames.get());
+        stats.put("bytesSent", bytesSent.get());
+        stats.put("stateFramesSkipped", stateFramesSkipped.get());
+        stats.put("sendFailures", sendFailures.get());
+        stats.put("slowSessionsClosed", slowSessionsClosed.get());
+        stats.put("framesDiscarded", framesDiscarded.get());
+        stats.put("perSession", perSession);
+        return stats;
+    }
+
+    private static final class RawSenderThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        private RawSenderThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, prefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.dinosurio_G.Back.websocket;
+
+import com.dinosurio_G.Back.service.GamePlayServices;
+import com.dinosurio_G.Back.service.broadcast.RoomStateBroadcaster;
+import com.dinosurio_G.Back.service.core.ActiveRoomRegistry;
+import com.dinosurio_G.Back.service.core.RoomRuntime;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+
+/**
+ * Endpoint WebSocket crudo para el tráfico de una partida en curso (sin SockJS ni STOMP).
+ * Conexión: /ws-game-raw?room={roomCode}&player={playerName}&format=bin|json
+ * Entrada (texto):
+ *   un dígito hexadecimal con el input en bits (1 arriba, 2 abajo, 4 izquierda, 8 derecha),
+ *   un MovementMessage en JSON, o "R" para pedir un keyframe.
+ * Salida: estado binario (format=bin) o {"channel":"state","data":...}, y el resto de
+ * mensajes de la sala como {"channel":"event"|"xp"|...,"data":...}.
+ * El lobby sigue usando STOMP en /ws-game.
+ */
+@Component
+public class RawGameSocketHandler extends TextWebSocketHandler {
+
+    private static final String RAW_SESSION_ATTR = "rawGameSession";
+
+    @Autowired
+    private GamePlayServices gamePlayServices;
+
+    @Autowired
+    private RoomStateBroadcaster roomStateBroadcaster;
+
+    @Autowired
+    private ActiveRoomRegistry activeRooms;
+
+    @Autowired
+    private RawGameSessions rawGameSessions;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        Map<String, String> params = UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().toSingleValueMap();
+        String roomCode = params.get("room");
+        String playerName = params.get("player");
+
+        RoomRuntime runtime = roomCode != null ? activeRooms.get(roomCode) : null;
+        if (runtime == null || runtime.getPlayer(playerName) == null) {
+            session.close(CloseStatus.POLICY_VIOLATION.withReason("Sala no activa o jugador no pertenece a la sala"));
+            return;
+        }
+
+        RawGameSession raw = rawGameSessions.register(session, roomCode, playerName, "bin".equals(params.get("format")));
+        session.getAttributes().put(RAW_SESSION_ATTR, raw);
+        System.out.println("🔌 Sesión cruda " + session.getId() + " conectada: " + playerName + " en sala " + roomCode);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        RawGameSession raw = (RawGameSession) session.getAttributes().get(RAW_SESSION_ATTR);
+        if (raw == null) return;
+
+        String payload = message.getPayload().trim();
+        if (payload.isEmpty()) return;
+
+        if (payload.equals("R")) {
+            roomStateBroadcaster.requestKeyframe(raw.getRoomCode(), raw.getId());
+            return;
+        }
+
+        int mask;
+        long seq = 0;
+        if (payload.charAt(0) == '{') {
+            MovementMessage msg = objectMapper.readValue(payload, MovementMessage.class);
+            mask = msg.inputMask();
+            seq = msg.getSeq();
+        } else {
+            // "<máscara hex>" o "<máscara hex>:<secuencia>"
+            mask = Character.digit(payload.charAt(0), 16);
+            if (mask < 0) return;
+            int colon = payload.indexOf(':');
+            if (colon > 0) {
+                try {
+                    seq = Long.parseLong(payload.substring(colon + 1));
+                } catch (NumberFormatException e) {
+                    return;
+                }
+            }
+        }
+
+        rawGameSessions.recordInput();
+        // El jugador es el de la conexión, no el que diga el mensaje
+        gamePlayServices.updatePlayerInput(raw.getRoomCode(), raw.getPlayerName(), mask, seq);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        RawGameSession raw = (RawGameSession) session.getAttributes().remove(RAW_SESSION_ATTR);
+        if (raw != null) {
+            rawGameSessions.unregister(raw);
+            System.out.println("🔌 Sesión cruda " + session.getId() + " cerrada (" + status.getCode() + ")");
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.dinosurio_G.Back.websocket;
+
+/**
+ * Un frame de estado encolado para una sesión lenta se descartó al llegar uno
+ * más nuevo. Si el canal lleva deltas, esa sesión necesita un keyframe; el
+ * destino dice si el canal es compartido por la sala o solo de la sesión.
+ */
+public class StateFrameDroppedEvent {
+
+    private final String roomCode;
+    private final String sessionId;
+    private final String destination;
+
+    public StateFrameDroppedEvent(String roomCode, String sessionId, String destination) {
+        this.roomCode = roomCode;
+        this.sessionId = sessionId;
+        this.destination = destination;
+    }
+
+    public String getRoomCode() { return roomCode; }
+    public String getSessionId() { return sessionId; }
+    public String getDestination() { return destination; }
+}
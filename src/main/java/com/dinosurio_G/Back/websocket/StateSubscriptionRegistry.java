@@ -0,0 +1,117 @@
+package com.dinosurio_G.Back.websocket;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lleva la cuenta de qué sesiones STOMP están suscritas a cada destino,
+ * para que el broadcaster solo codifique los formatos que alguien escucha,
+ * y de qué jugador controla cada sesión (para el área de interés).
+ * El jugador se toma de la cabecera "playerName" del SUBSCRIBE o del primer input.
+ */
+@Component
+public class StateSubscriptionRegistry {
+
+    public static final String PLAYER_HEADER = "playerName";
+
+    // destino -> sesiones suscritas
+    private final Map<String, Set<String>> sessionsByDestination = new ConcurrentHashMap<>();
+    // sesión -> (id de suscripción -> destino), para resolver UNSUBSCRIBE y desconexiones
+    private final Map<String, Map<String, String>> subscriptionsBySession = new ConcurrentHashMap<>();
+    // sesión -> nombre del jugador
+    private final Map<String, String> playerBySession = new ConcurrentHashMap<>();
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String sessionId = accessor.getSessionId();
+        String destination = accessor.getDestination();
+        if (sessionId == null || destination == null) return;
+
+        String playerName = accessor.getFirstNativeHeader(PLAYER_HEADER);
+        if (playerName != null && !playerName.isBlank()) {
+            bindPlayer(sessionId, playerName);
+        }
+        subscribe(sessionId, accessor.getSubscriptionId(), destination);
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        unsubscribe(accessor.getSessionId(), accessor.getSubscriptionId());
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        removeSession(event.getSessionId());
+    }
+
+    public void subscribe(String sessionId, String subscriptionId, String destination) {
+        subscriptionsBySession.computeIfAbsent(sessionId, k -> new ConcurrentHashMap<>())
+                .put(subscriptionId != null ? subscriptionId : destination, destination);
+        sessionsByDestination.computeIfAbsent(destination, k -> ConcurrentHashMap.newKeySet()).add(sessionId);
+    }
+
+    public void unsubscribe(String sessionId, String subscriptionId) {
+        if (sessionId == null || subscriptionId == null) return;
+        Map<String, String> subs = subscriptionsBySession.get(sessionId);
+        if (subs == null) return;
+        String destination = subs.remove(subscriptionId);
+        if (destination != null && !subs.containsValue(destination)) {
+            removeFromDestination(destination, sessionId);
+        }
+    }
+
+    public void removeSession(String sessionId) {
+        if (sessionId == null) return;
+        playerBySession.remove(sessionId);
+        Map<String, String> subs = subscriptionsBySession.remove(sessionId);
+        if (subs == null) return;
+        for (String destination : subs.values()) {
+            removeFromDestination(destination, sessionId);
+        }
+    }
+
+    public void bindPlayer(String sessionId, String playerName) {
+        if (sessionId == null || playerName == null) return;
+        playerBySession.put(sessionId, playerName);
+    }
+
+    public String getPlayer(String sessionId) {
+        return playerBySession.get(sessionId);
+    }
+
+    /**
+     * Sesiones suscritas al destino (vista de solo lectura, puede cambiar mientras se recorre).
+     */
+    public Set<String> getSessions(String destination) {
+        Set<String> sessions = sessionsByDestination.get(destination);
+        return sessions != null ? Collections.unmodifiableSet(sessions) : Collections.emptySet();
+    }
+
+    public boolean hasSubscribers(String destination) {
+        Set<String> sessions = sessionsByDestination.get(destination);
+        return sessions != null && !sessions.isEmpty();
+    }
+
+    public int getSubscriberCount(String destination) {
+        Set<String> sessions = sessionsByDestination.get(destination);
+        return sessions != null ? sessions.size() : 0;
+    }
+
+    private void removeFromDestination(String destination, String sessionId) {
+        sessionsByDestination.computeIfPresent(destination, (d, sessions) -> {
+            sessions.remove(sessionId);
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+}
@@ -0,0 +1,37 @@
+package com.dinosurio_G.Back;
+
+import com.dinosurio_G.Back.repository.ChestRepository;
+import com.dinosurio_G.Back.service.core.AsyncExecutor;
+import com.dinosurio_G.Back.service.impl.ChestService;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ChestServiceTest {
+
+    // ------------------------------
+    // TEST: abrir un cofre no escribe en BD desde el hilo que llama (el tick)
+    // ------------------------------
+    @Test
+    void testMarkOpenedRunsOnBackgroundPool() throws Exception {
+        ChestRepository repo = mock(ChestRepository.class);
+        AsyncExecutor executor = new AsyncExecutor(1, 10);
+        try {
+            CompletableFuture<Thread> updateThread = new CompletableFuture<>();
+            when(repo.markOpened(7L)).thenAnswer(inv -> {
+                updateThread.complete(Thread.currentThread());
+                return 1;
+            });
+
+            new ChestService(repo, executor).markOpenedAsync(7L).get(5, TimeUnit.SECONDS);
+
+            assertNotSame(Thread.currentThread(), updateThread.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.dinosurio_G.Back;
 
 import com.dinosurio_G.Back.service.ExperienceService;
 import com.dinosurio_G.Back.service.GamePlayServices;
+import com.dinosurio_G.Back.service.core.ActiveRoomRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
@@ -9,6 +10,10 @@ import org.mockito.*;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -17,6 +22,7 @@ public class ExperienceServiceTest {
 
     @Mock private SimpMessagingTemplate messagingTemplate;
     @Mock private GamePlayServices gamePlayServices;
+    @Mock private ActiveRoomRegistry activeRooms;
 
     @InjectMocks
     private ExperienceService xpService;
@@ -87,4 +93,50 @@ public class ExperienceServiceTest {
     void testGetProgress_NoXP() {
         assertEquals(0.0, xpService.getProgress("UNKNOWN"), 0.001);
     }
+
+    // ---------------------------------------
+    // TEST: sala con tick → un solo /xp por tick aunque haya muchas sumas
+    // ---------------------------------------
+    @Test
+    void testActiveRoomCoalescesXpFrames() {
+        when(activeRooms.isActive(ROOM_CODE)).thenReturn(true);
+
+        for (int i = 0; i < 5; i++) {
+            xpService.addExperience(ROOM_CODE, 10);
+        }
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Map.class));
+
+        xpService.flushProgress(ROOM_CODE);
+        xpService.flushProgress(ROOM_CODE);
+
+        verify(messagingTemplate, times(1)).convertAndSend(
+                "/topic/game/" + ROOM_CODE + "/xp", Map.of("progress", 0.05, "currentXp", 50));
+    }
+
+    // ---------------------------------------
+    // TEST: sumas concurrentes que cruzan el objetivo → una sola victoria
+    // ---------------------------------------
+    @Test
+    void testConcurrentAddsWinOnlyOnce() throws Exception {
+        when(activeRooms.isActive(ROOM_CODE)).thenReturn(true);
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int t = 0; t < threads; t++) {
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 100; i++) {
+                    xpService.addExperience(ROOM_CODE, 5);
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        verify(gamePlayServices, times(1)).onGameWon(ROOM_CODE);
+        assertEquals(1.0, xpService.getProgress(ROOM_CODE), 0.001);
+    }
 }
@@ -0,0 +1,62 @@
+package com.dinosurio_G.Back;
+
+import com.dinosurio_G.Back.service.core.GameClock;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameClockTest {
+
+    private static final long MS = 1_000_000L;
+
+    // ------------------------------
+    // TEST: un paso por periodo cuando el planificador va a tiempo
+    // ------------------------------
+    @Test
+    void testOneStepPerPeriodOnTime() {
+        GameClock clock = new GameClock(50, 5, 0, 1000);
+
+        assertEquals(1, clock.advance(0));
+        assertEquals(1, clock.nextTick());
+        assertEquals(0, clock.advance(10 * MS)); // aún no toca
+        assertEquals(1, clock.advance(50 * MS));
+        assertEquals(2, clock.nextTick());
+
+        assertEquals(1100, clock.getSimulatedTimeMs());
+        assertEquals(0L, clock.getStats().get("lateInvocations"));
+    }
+
+    // ------------------------------
+    // TEST: un retraso se recupera con pasos extra hasta el máximo
+    // ------------------------------
+    @Test
+    void testLateInvocationCatchesUpWithinBound() {
+        GameClock clock = new GameClock(50, 5, 0, 0);
+        clock.advance(0);
+
+        // Llega 3 periodos tarde: tocan los pasos de 50, 100, 150 y 200 ms
+        assertEquals(4, clock.advance(200 * MS));
+        assertEquals(1L, clock.getStats().get("lateInvocations"));
+        assertEquals(3L, clock.getStats().get("catchUpSteps"));
+
+        // Se recupera el ritmo normal
+        assertEquals(1, clock.advance(250 * MS));
+    }
+
+    // ------------------------------
+    // TEST: los pasos por encima del máximo se descartan y se cuentan
+    // ------------------------------
+    @Test
+    void testExcessStepsAreDropped() {
+        GameClock clock = new GameClock(50, 3, 0, 0);
+        clock.advance(0);
+
+        // 1 segundo de parón: 20 pasos pendientes, solo se ejecutan 3
+        assertEquals(3, clock.advance(1000 * MS));
+        assertEquals(17L, clock.getStats().get("droppedSteps"));
+
+        // El siguiente paso queda alineado con el presente
+        assertEquals(0, clock.advance(1010 * MS));
+        assertEquals(1, clock.advance(1050 * MS));
+    }
+}
@@ -0,0 +1,173 @@
+package com.dinosurio_G.Back;
+
+import com.dinosurio_G.Back.model.GameRoom;
+import com.dinosurio_G.Back.model.Player;
+import com.dinosurio_G.Back.model.UserAccount;
+import com.dinosurio_G.Back.repository.GameRoomRepository;
+import com.dinosurio_G.Back.repository.PlayerRepository;
+import com.dinosurio_G.Back.service.ExperienceService;
+import com.dinosurio_G.Back.service.GameEndPipeline;
+import com.dinosurio_G.Back.service.NPCManager;
+import com.dinosurio_G.Back.service.broadcast.RoomEventBatcher;
+import com.dinosurio_G.Back.service.broadcast.RoomStateBroadcaster;
+import com.dinosurio_G.Back.service.core.ActiveRoomRegistry;
+import com.dinosurio_G.Back.service.core.AsyncExecutor;
+import com.dinosurio_G.Back.service.core.PlayerStateWriteBehind;
+import com.dinosurio_G.Back.service.core.RoomLifecycleEvent;
+import com.dinosurio_G.Back.service.core.RoomTickEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class GameEndPipelineTest {
+
+    private final ActiveRoomRegistry activeRooms = new ActiveRoomRegistry();
+    private RoomTickEngine tickEngine;
+    private RoomEventBatcher roomEvents;
+    private ExperienceService xpService;
+    private NPCManager npcManager;
+    private GameRoomRepository gameRoomRepo;
+    private PlayerRepository playerRepo;
+    private AsyncExecutor asyncExecutor;
+    private ApplicationEventPublisher eventPublisher;
+    private GameEndPipeline pipeline;
+
+    private final List<Runnable> background = new ArrayList<>();
+    private GameRoom room;
+    private Player player;
+    private UserAccount account;
+
+    @BeforeEach
+    void setup() {
+        tickEngine = mock(RoomTickEngine.class);
+        roomEvents = mock(RoomEventBatcher.class);
+        xpService = mock(ExperienceService.class);
+        npcManager = mock(NPCManager.class);
+        gameRoomRepo = mock(GameRoomRepository.class);
+        playerRepo = mock(PlayerRepository.class);
+        asyncExecutor = mock(AsyncExecutor.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+
+        // Las tareas en segundo plano se guardan y el test decide cuándo ejecutarlas
+        when(asyncExecutor.runAsync(any())).thenAnswer(inv -> {
+            background.add(inv.getArgument(0));
+            return CompletableFuture.completedFuture(null);
+        });
+
+        pipeline = newPipeline(asyncExecutor);
+
+        room = new GameRoom("Sala", 4);
+        room.setRoomCode("END001");
+        room.setGameStarted(true);
+        player = new Player("Alice", true, 0, 0);
+        player.setX(300);
+        account = mock(UserAccount.class);
+        player.setUserAccount(account);
+        room.addPlayer(player);
+        activeRooms.activate(room);
+        when(gameRoomRepo.findWithPlayersByRoomCode("END001")).thenReturn(Optional.of(room));
+    }
+
+    private GameEndPipeline newPipeline(AsyncExecutor executor) {
+        return new GameEndPipeline(activeRooms, tickEngine, mock(RoomStateBroadcaster.class), roomEvents,
+                mock(PlayerStateWriteBehind.class), xpService, npcManager, gameRoomRepo, playerRepo,
+                executor, eventPublisher, mock(PlatformTransactionManager.class), 3, 0);
+    }
+
+    // ------------------------------
+    // TEST: victoria → sala congelada y notificada sin tocar la BD; luego se persiste
+    // ------------------------------
+    @Test
+    void testWinFreezesNowAndPersistsInBackground() {
+        assertTrue(pipeline.end("END001", GameEndPipeline.Outcome.WON));
+
+        // En el hilo del tick: solo memoria y mensajes
+        assertFalse(activeRooms.isActive("END001"));
+        verify(tickEngine).unregister("END001");
+        verify(npcManager).cleanupRoom("END001");
+        InOrder order = inOrder(roomEvents);
+        order.verify(roomEvents).flushAndForget(eq("END001"), any());
+        order.verify(roomEvents).publish(eq("END001"), eq(Map.of("type", "GAME_WON", "roomCode", "END001")));
+        verifyNoInteractions(gameRoomRepo, playerRepo);
+        verify(account, never()).endSession();
+
+        background.forEach(Runnable::run);
+
+        verify(account).endSession();
+        assertEquals(0, player.getX());
+        assertEquals(Player.DEFAULT_HEALTH, player.getHealth());
+        assertFalse(room.isGameStarted());
+        verify(gameRoomRepo).save(room);
+        verify(eventPublisher).publishEvent(argThat((Object e) ->
+                e instanceof RoomLifecycleEvent ev && ev.getType() == RoomLifecycleEvent.Type.ENDED));
+    }
+
+    // ------------------------------
+    // TEST: el fin detectado dos veces solo se procesa una
+    // ------------------------------
+    @Test
+    void testEndIsProcessedOnce() {
+        assertTrue(pipeline.end("END001", GameEndPipeline.Outcome.LOST));
+        assertFalse(pipeline.end("END001", GameEndPipeline.Outcome.WON));
+
+        background.forEach(Runnable::run);
+
+        verify(gameRoomRepo, times(1)).delete(room);
+        verify(gameRoomRepo, never()).save(any());
+        assertNull(player.getGameRoom());
+        assertEquals(1L, pipeline.getStats().get("duplicateEnds"));
+    }
+
+    // ------------------------------
+    // TEST: un fallo al guardar se reintenta
+    // ------------------------------
+    @Test
+    void testPersistRetriesOnFailure() {
+        when(playerRepo.save(player))
+                .thenThrow(new RuntimeException("BD ocupada"))
+                .thenReturn(player);
+
+        pipeline.end("END001", GameEndPipeline.Outcome.WON);
+        background.forEach(Runnable::run);
+
+        verify(playerRepo, times(2)).save(player);
+        verify(gameRoomRepo).save(room);
+        assertEquals(1L, pipeline.getStats().get("persistRetries"));
+        assertEquals(0L, pipeline.getStats().get("persistFailures"));
+        assertEquals(0, pipeline.getStats().get("ending"));
+    }
+
+    // ------------------------------
+    // TEST: con el pool real, el guardado no se ejecuta en el hilo que termina la partida
+    // ------------------------------
+    @Test
+    void testPersistRunsOffTheCallingThread() throws Exception {
+        AsyncExecutor realExecutor = new AsyncExecutor(1, 10);
+        try {
+            CompletableFuture<Thread> persistThread = new CompletableFuture<>();
+            when(gameRoomRepo.findWithPlayersByRoomCode("END001")).thenAnswer(inv -> {
+                persistThread.complete(Thread.currentThread());
+                return Optional.of(room);
+            });
+
+            assertTrue(newPipeline(realExecutor).end("END001", GameEndPipeline.Outcome.LOST));
+
+            assertNotSame(Thread.currentThread(), persistThread.get(5, TimeUnit.SECONDS));
+        } finally {
+            realExecutor.shutdown();
+        }
+    }
+}
@@ -5,14 +5,23 @@ import com.dinosurio_G.Back.model.*;
 import com.dinosurio_G.Back.repository.GameRoomRepository;
 import com.dinosurio_G.Back.repository.PlayerRepository;
 import com.dinosurio_G.Back.service.ExperienceService;
+import com.dinosurio_G.Back.service.GameEndPipeline;
 import com.dinosurio_G.Back.service.GamePlayServices;
 import com.dinosurio_G.Back.service.NPCManager;
-import com.dinosurio_G.Back.service.core.LockManager;
+import com.dinosurio_G.Back.service.broadcast.RoomEventBatcher;
+import com.dinosurio_G.Back.service.broadcast.RoomSnapshot;
+import com.dinosurio_G.Back.service.broadcast.RoomStateBroadcaster;
+import com.dinosurio_G.Back.service.core.ActiveRoomRegistry;
+import com.dinosurio_G.Back.service.core.NpcStore;
+import com.dinosurio_G.Back.service.core.NpcView;
+import com.dinosurio_G.Back.service.core.RoomRuntime;
+import com.dinosurio_G.Back.service.core.PlayerStateWriteBehind;
 import com.dinosurio_G.Back.service.impl.ChestService;
 import com.dinosurio_G.Back.service.impl.GameMapService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 
 import java.util.*;
@@ -28,8 +37,13 @@ public class GamePlayServicesTest {
     @Mock private ChestService chestService;
     @Mock private NPCManager npcManager;
     @Mock private ExperienceService xpService;
-    @Mock private LockManager lockManager;
     @Mock private SimpMessagingTemplate ws;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private PlayerStateWriteBehind writeBehind;
+    @Mock private RoomStateBroadcaster broadcaster;
+    @Mock private RoomEventBatcher roomEvents;
+    @Mock private GameEndPipeline gameEndPipeline;
+    @Spy private ActiveRoomRegistry activeRooms = new ActiveRoomRegistry();
 
     @InjectMocks
     private GamePlayServices gameplay;
@@ -57,7 +71,8 @@ public class GamePlayServicesTest {
 
         room.setPlayers(new ArrayList<>(List.of(p)));
 
-        when(gameRoomRepo.findByRoomCode("ABC123")).thenReturn(Optional.of(room));
+        when(gameRoomRepo.findWithPlayersByRoomCode("ABC123")).thenReturn(Optional.of(room));
+        activeRooms.activate(room);
     }
 
 
@@ -69,12 +84,50 @@ public class GamePlayServicesTest {
     void testMovementOnUpdateLoop() {
         p.setInput(true, false, false, false); // mover arriba
 
-        when(gameRoomRepo.findAll()).thenReturn(List.of(room));
-        when(playerRepo.save(any())).thenReturn(p);
-
-        gameplay.updateAllRooms();
+        gameplay.movePlayers(activeRooms.get("ABC123"));
 
         assertEquals(95, p.getY());
+        // El tick no escribe en BD: solo marca al jugador para el write-behind
+        verify(writeBehind).markDirty(p);
+        verify(playerRepo, never()).save(any());
+    }
+
+    // ------------------------------
+    // TEST: el input de una partida en curso se aplica en el siguiente tick
+    // ------------------------------
+    @Test
+    void testInputIsAppliedOnNextTick() {
+        gameplay.updatePlayerInput("ABC123", "TestPlayer", false, false, false, true);
+        gameplay.updatePlayerInput("ABC123", "TestPlayer", false, true, false, false);
+
+        // Aún no aplicado
+        gameplay.movePlayers(activeRooms.get("ABC123"));
+        assertEquals(100, p.getX());
+        assertEquals(100, p.getY());
+
+        // Gana el último input recibido
+        gameplay.applyPendingInputs(activeRooms.get("ABC123"));
+        gameplay.movePlayers(activeRooms.get("ABC123"));
+        assertEquals(100, p.getX());
+        assertEquals(105, p.getY());
+    }
+
+    // ------------------------------
+    // TEST: el látigo respeta el cooldown en tiempo simulado y mide el combate de la sala
+    // ------------------------------
+    @Test
+    void testAutoAttacksUseCooldownPerRoom() {
+        RoomRuntime runtime = activeRooms.get("ABC123");
+
+        gameplay.runAutoAttacks(runtime, 10_000);
+        gameplay.runAutoAttacks(runtime, 10_050);   // dentro del cooldown
+        gameplay.runAutoAttacks(runtime, 11_500);
+
+        verify(npcManager, times(2)).hitNpcsInRect(eq("ABC123"), anyDouble(), anyDouble(), anyDouble(), anyDouble(),
+                anyInt(), eq("TestPlayer"), any());
+        assertEquals(11_500, p.getLastAttackTime());
+        assertEquals(3L, runtime.getCombatStats().toMap().get("runs"));
+        assertEquals(2L, runtime.getCombatStats().toMap().get("attacks"));
     }
 
     // ------------------------------
@@ -84,11 +137,9 @@ public class GamePlayServicesTest {
     void testGameOverWhenAllPlayersDead() {
         p.setHealth(0); // muerto
 
-        when(gameRoomRepo.findAll()).thenReturn(List.of(room));
-
-        gameplay.updateAllRooms();
+        gameplay.checkGameOver("ABC123");
 
-        verify(gameRoomRepo, atLeastOnce()).delete(room);
+        verify(gameEndPipeline).end("ABC123", GameEndPipeline.Outcome.LOST);
     }
 
 
@@ -112,7 +163,7 @@ public class GamePlayServicesTest {
         p.setX(0);
         p.setY(0);  // <-- IMPORTANTE, si no, el servicio cree que ya está spawneado
 
-        when(gameRoomRepo.findByRoomCode("ABC123")).thenReturn(Optional.of(room));
+        when(gameRoomRepo.findWithPlayersByRoomCode("ABC123")).thenReturn(Optional.of(room));
         when(playerRepo.save(any())).thenReturn(p);
 
         List<Map<String, Object>> result = gameplay.spawnPlayers("ABC123");
@@ -129,7 +180,7 @@ public class GamePlayServicesTest {
         p.setX(300); // ya tiene posición
         p.setY(200);
 
-        when(gameRoomRepo.findByRoomCode("ABC123")).thenReturn(Optional.of(room));
+        when(gameRoomRepo.findWithPlayersByRoomCode("ABC123")).thenReturn(Optional.of(room));
 
         List<Map<String, Object>> res = gameplay.spawnPlayers("ABC123");
 
@@ -145,14 +196,19 @@ public class GamePlayServicesTest {
     // ------------------------------------------------
     @Test
     void testBroadcastGameState_NoCrash() {
-        when(npcManager.getNpcsForRoom("ABC123")).thenReturn(Collections.emptyList());
 
         gameplay.getRoomInMemory("ABC123");
-        assertDoesNotThrow(() -> {
-            var m = GamePlayServices.class.getDeclaredMethod("broadcastGameState", String.class);
-            m.setAccessible(true);
-            m.invoke(gameplay, "ABC123");
-        });
+        when(npcManager.readNpcs(eq("ABC123"), any())).thenAnswer(inv ->
+                inv.<java.util.function.Function<NpcView, ?>>getArgument(1)
+                        .apply(new NpcStore(2.0, 800, 128.0)));
+
+        assertDoesNotThrow(() -> gameplay.broadcastGameState("ABC123", 1L));
+
+        // Se publica una única foto del tick con el id del tick
+        ArgumentCaptor<RoomSnapshot> snapshot = ArgumentCaptor.forClass(RoomSnapshot.class);
+        verify(broadcaster).publish(snapshot.capture());
+        assertEquals(1L, snapshot.getValue().getTick());
+        assertEquals(1, snapshot.getValue().getPlayerCount());
     }
 
     // ------------------------------------------------
@@ -160,34 +216,26 @@ public class GamePlayServicesTest {
 // ------------------------------------------------
     @Test
     void testCheckChestInteraction_ChestOpened() throws Exception {
-        // Preparación del cofre
-        Chest chest = mock(Chest.class);
-        Position pos = new Position(100, 100);
-        when(chest.getPosition()).thenReturn(pos);
-        when(chest.isActive()).thenReturn(true);
-        when(chest.getId()).thenReturn(10L);
-
-        when(chestService.findByMapId(any())).thenReturn(List.of(chest));
-
-        // Mock del lock para ejecutar el runnable inmediatamente
-        doAnswer(invocation -> {
-            Runnable r = invocation.getArgument(1);
-            r.run();
-            return null;
-        }).when(lockManager).withLock(any(), any());
-
-        when(chestService.tryOpenChest(10L)).thenReturn(true);
+        // Cofre activo cargado en la sala (sin consultas a BD en el tick)
+        Chest chest = new Chest("experiencia", new Position(100, 100));
+        chest.setId(10L);
+        RoomRuntime runtime = activeRooms.get("ABC123");
+        runtime.getChests().add(chest);
 
         // Jugador cerca del cofre
         p.setX(100);
         p.setY(120);
+        runtime.syncPlayerGrid();
 
-        // Ejecutar ciclo de update (para llamar checkChestInteraction)
-        when(gameRoomRepo.findAll()).thenReturn(List.of(room));
-        gameplay.updateAllRooms();
+        // Ejecutar la etapa de cofres del tick dos veces: el cofre solo se abre una vez
+        gameplay.checkChestInteractions(runtime);
+        gameplay.checkChestInteractions(runtime);
 
-        // verificar que XP fue sumada
         verify(xpService, times(1)).addExperience("ABC123", 150);
+        assertFalse(chest.isActive());
+        assertEquals(0, runtime.getChests().size());
+        verify(chestService).markOpenedAsync(10L);
+        verify(chestService, never()).findByMapId(any());
     }
 
 
@@ -195,38 +243,12 @@ public class GamePlayServicesTest {
 // TEST: onGameWon
 // ------------------------------------------------
     @Test
-    void testOnGameWon() throws Exception {
-        // Mock user account para poder validar sesión
-        UserAccount ua = mock(UserAccount.class);
-        p.setUserAccount(ua);
-
-        // Asegurarse de que la sala esté en cache
-        gameplay.getRoomInMemory("ABC123");
-
-        // Preparar reflection para llamar al método privado
-        var m = GamePlayServices.class.getDeclaredMethod("onGameWon", String.class);
-        m.setAccessible(true);
-
-        // Ejecutar victoria
-        m.invoke(gameplay, "ABC123");
-
-        // Verificar que la sesión fue cerrada
-        verify(ua, times(1)).endSession();
-
-        // Verificar que el jugador fue reseteado
-        assertEquals(0, p.getX());
-        assertEquals(0, p.getY());
-        assertEquals(Player.DEFAULT_HEALTH, p.getHealth());
-        assertFalse(p.isReady());
-
-        // Verificar que la XP se reseteó
-        verify(xpService, times(1)).resetRoomXp("ABC123");
-
-        // Verificar que la sala se marcó como no iniciada
-        assertFalse(room.isGameStarted());
+    void testOnGameWonDelegatesToGameEndPipeline() {
+        gameplay.onGameWon("ABC123");
 
-        // Verificar que la sala fue eliminada del cache
-        assertFalse(gameplay.roomCache.containsKey("ABC123"));
+        verify(gameEndPipeline).end("ABC123", GameEndPipeline.Outcome.WON);
+        // El hilo que detecta la victoria no toca la BD
+        verifyNoInteractions(playerRepo);
     }
 
     // ------------------------------------------------
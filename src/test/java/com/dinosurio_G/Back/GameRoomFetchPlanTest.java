@@ -0,0 +1,162 @@
+package com.dinosurio_G.Back;
+
+import com.dinosurio_G.Back.dto.GameRoomDTO;
+import com.dinosurio_G.Back.model.GameMap;
+import com.dinosurio_G.Back.model.GameRoom;
+import com.dinosurio_G.Back.model.Player;
+import com.dinosurio_G.Back.model.UserAccount;
+import com.dinosurio_G.Back.repository.GameRoomRepository;
+import com.dinosurio_G.Back.service.ExperienceService;
+import com.dinosurio_G.Back.service.GamePlayServices;
+import com.dinosurio_G.Back.service.GameRoomService;
+import com.dinosurio_G.Back.service.broadcast.RoomEventBatcher;
+import com.dinosurio_G.Back.service.impl.GameMapService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Slice;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cuenta las sentencias SQL que lanza cada lectura de salas: el número no debe
+ * crecer con la cantidad de salas ni de jugadores.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(GameRoomService.class)
+public class GameRoomFetchPlanTest {
+
+    @Autowired private TestEntityManager em;
+    @Autowired private EntityManagerFactory emf;
+    @Autowired private GameRoomRepository gameRoomRepository;
+    @Autowired private GameRoomService gameRoomService;
+
+    @MockitoBean private GameMapService gameMapService;
+    @MockitoBean private SimpMessagingTemplate messagingTemplate;
+    @MockitoBean private RoomEventBatcher roomEvents;
+    @MockitoBean private GamePlayServices gamePlayServices;
+    @MockitoBean private ExperienceService experienceService;
+
+    private Statistics stats;
+
+    @BeforeEach
+    void setUp() {
+        GameMap map = em.persist(new GameMap("Mapa", "rectangle", "test"));
+        // ROOM0 admite jugadores, ROOM1 está llena y ROOM2 ya empezó
+        for (int r = 0; r < 3; r++) {
+            GameRoom room = new GameRoom("Sala " + r, r == 1 ? 3 : 4);
+            room.setRoomCode("ROOM" + r);
+            room.setMap(map);
+            room.setGameStarted(r == 2);
+            for (int i = 0; i < 3; i++) {
+                String name = "P" + r + "_" + i;
+                Player p = new Player(name, i == 0, 0, 0);
+                p.setUserAccount(em.persist(new UserAccount("az-" + name, name + "@test", name)));
+                room.addPlayer(p);
+            }
+            em.persist(room);
+        }
+        em.flush();
+        em.clear();
+
+        stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+    }
+
+    // ------------------------------
+    // TEST: GET /api/rooms → 2 consultas de proyección por página, sin COUNT
+    // ------------------------------
+    @Test
+    void testLobbyPageUsesTwoProjectionQueries() {
+        Slice<GameRoomDTO> page = gameRoomService.getLobby(null, false, "oldest", 0, 2);
+
+        List<GameRoomDTO> rooms = page.getContent();
+        assertEquals(2, rooms.size());
+        assertTrue(page.hasNext());
+        assertEquals("ROOM0", rooms.get(0).getRoomCode());
+        assertEquals(3, rooms.get(0).getPlayers().size());
+        assertTrue(rooms.get(0).getPlayers().get(0).isHost());
+        assertEquals(2, stats.getPrepareStatementCount());
+        assertEquals(0, stats.getEntityLoadCount());
+    }
+
+    // ------------------------------
+    // TEST: filtro joinable = sin empezar y con plazas libres
+    // ------------------------------
+    @Test
+    void testLobbyJoinableFilter() {
+        List<GameRoomDTO> joinable = gameRoomService.getLobby(false, true, "newest", 0, 20).getContent();
+        assertEquals(List.of("ROOM0"), joinable.stream().map(GameRoomDTO::getRoomCode).toList());
+
+        List<GameRoomDTO> waiting = gameRoomService.getLobby(false, false, "newest", 0, 20).getContent();
+        assertEquals(List.of("ROOM1", "ROOM0"), waiting.stream().map(GameRoomDTO::getRoomCode).toList());
+    }
+
+    // ------------------------------
+    // TEST: GET /api/rooms/{code} → 2 consultas de proyección
+    // ------------------------------
+    @Test
+    void testRoomViewUsesTwoProjectionQueries() {
+        GameRoomDTO room = gameRoomService.getRoomDTO("ROOM1");
+
+        assertEquals("Sala 1", room.getName());
+        assertEquals(3, room.getPlayers().size());
+        assertEquals(2, stats.getPrepareStatementCount());
+    }
+
+    // ------------------------------
+    // TEST: unirse/empezar → sala, jugadores y cuentas en una sola consulta
+    // ------------------------------
+    @Test
+    void testJoinGraphLoadsRosterInOneQuery() {
+        GameRoom room = gameRoomService.getRoomByCode("ROOM2");
+
+        room.getPlayers().forEach(p -> assertNotNull(p.getUserAccount().getPlayerName()));
+        assertEquals(1, stats.getPrepareStatementCount());
+    }
+
+    // ------------------------------
+    // TEST: activación para el tick → todo cargado en una consulta, usable sin sesión
+    // ------------------------------
+    @Test
+    void testTickGraphLoadsEverythingTheTickTouches() {
+        GameRoom room = gameRoomRepository.findForTickByRoomCode("ROOM0").orElseThrow();
+        em.clear();
+
+        // Fuera del contexto de persistencia no se puede cargar nada perezosamente
+        assertEquals(800, room.getMap().getHeight());
+        room.getPlayers().forEach(p -> assertTrue(p.getUserAccount().getEmail().endsWith("@test")));
+        assertEquals(1, stats.getPrepareStatementCount());
+    }
+
+    // ------------------------------
+    // TEST: salas anteriores a player_count (a 0) se recalculan al arrancar
+    // ------------------------------
+    @Test
+    void testBackfillRecountsPlayersOfExistingRooms() {
+        em.getEntityManager().createNativeQuery("UPDATE game_room SET player_count = 0").executeUpdate();
+        em.clear();
+        // Con el contador a 0 todas parecen tener plazas: ROOM1 (llena) se cuela
+        List<GameRoomDTO> before = gameRoomService.getLobby(false, true, "oldest", 0, 20).getContent();
+        assertEquals(List.of("ROOM0", "ROOM1"), before.stream().map(GameRoomDTO::getRoomCode).toList());
+
+        gameRoomService.backfillPlayerCounts();
+        em.clear();
+
+        List<GameRoomDTO> joinable = gameRoomService.getLobby(false, true, "oldest", 0, 20).getContent();
+        assertEquals(List.of("ROOM0"), joinable.stream().map(GameRoomDTO::getRoomCode).toList());
+        assertEquals(3, gameRoomRepository.findByRoomCode("ROOM1").orElseThrow().getPlayerCount());
+        // Ya cuadran: una segunda pasada no toca nada
+        assertEquals(0, gameRoomRepository.recountPlayers());
+    }
+}
@@ -10,10 +10,12 @@ import com.dinosurio_G.Back.repository.UserAccountRepository;
 import com.dinosurio_G.Back.service.ExperienceService;
 import com.dinosurio_G.Back.service.GamePlayServices;
 import com.dinosurio_G.Back.service.GameRoomService;
+import com.dinosurio_G.Back.service.broadcast.RoomEventBatcher;
 import com.dinosurio_G.Back.service.impl.GameMapService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 
 import java.lang.reflect.Field;  // ← AGREGAR ESTE IMPORT
@@ -34,8 +36,10 @@ public class GameRoomServiceTest {
     @Mock private UserAccountRepository userAccountRepository;
     @Mock private GameMapService gameMapService;
     @Mock private SimpMessagingTemplate messagingTemplate;
+    @Mock private RoomEventBatcher roomEvents;
     @Mock private GamePlayServices gamePlayServices;
     @Mock private ExperienceService experienceService;
+    @Mock private ApplicationEventPublisher eventPublisher;
 
     private UserAccount account;
     private Player player;
@@ -123,7 +127,7 @@ public class GameRoomServiceTest {
     // ------------------------------------------------------------
     @Test
     void testJoinRoom_OK() {
-        when(gameRoomRepository.findByRoomCode("ABC123"))
+        when(gameRoomRepository.findWithPlayersByRoomCode("ABC123"))
                 .thenReturn(Optional.of(room));
 
         when(userAccountRepository.findByPlayerName("Host"))
@@ -146,7 +150,7 @@ public class GameRoomServiceTest {
     void testJoinRoom_BlockedByActiveSession() {
         account.setHasActiveSession(true);
 
-        when(gameRoomRepository.findByRoomCode("ABC123"))
+        when(gameRoomRepository.findWithPlayersByRoomCode("ABC123"))
                 .thenReturn(Optional.of(room));
         when(userAccountRepository.findByPlayerName("Host"))
                 .thenReturn(Optional.of(account));
@@ -166,7 +170,7 @@ public class GameRoomServiceTest {
         room.getPlayers().add(player);
         player.setGameRoom(room);
 
-        when(gameRoomRepository.findByRoomCode("ABC123")).thenReturn(Optional.of(room));
+        when(gameRoomRepository.findWithPlayersByRoomCode("ABC123")).thenReturn(Optional.of(room));
         when(userAccountRepository.findByPlayerName("Host")).thenReturn(Optional.of(account));
         when(playerRepository.findByPlayerName("Host")).thenReturn(Optional.of(player));
         when(gameRoomRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
@@ -185,7 +189,7 @@ public class GameRoomServiceTest {
     void testStartGame_OK() {
         room.getPlayers().add(player);
 
-        when(gameRoomRepository.findByRoomCode("ABC123"))
+        when(gameRoomRepository.findWithPlayersByRoomCode("ABC123"))
                 .thenReturn(Optional.of(room));
 
         when(playerRepository.findByPlayerName("Host"))
@@ -210,7 +214,7 @@ public class GameRoomServiceTest {
 
         account.startSession(); // activar sesión
 
-        when(gameRoomRepository.findByRoomCode("ABC123"))
+        when(gameRoomRepository.findWithPlayersByRoomCode("ABC123"))
                 .thenReturn(Optional.of(room));
 
         gameRoomService.endGame("ABC123");
@@ -227,7 +231,7 @@ public class GameRoomServiceTest {
         room.getPlayers().add(player);
         player.setGameRoom(room);
 
-        when(gameRoomRepository.findByRoomCode("ABC123")).thenReturn(Optional.of(room));
+        when(gameRoomRepository.findWithPlayersByRoomCode("ABC123")).thenReturn(Optional.of(room));
         when(playerRepository.findByPlayerName("Host")).thenReturn(Optional.of(player));
         when(userAccountRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
         when(playerRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
@@ -251,7 +255,7 @@ public class GameRoomServiceTest {
         room.getPlayers().add(player);
         player.setGameRoom(room);
 
-        when(gameRoomRepository.findByRoomCode("ABC123")).thenReturn(Optional.of(room));
+        when(gameRoomRepository.findWithPlayersByRoomCode("ABC123")).thenReturn(Optional.of(room));
 
         RuntimeException ex = assertThrows(RuntimeException.class,
                 () -> gameRoomService.leaveRoom("ABC123", "Host"));
@@ -266,7 +270,7 @@ public class GameRoomServiceTest {
     void testDeleteRoom() {
         room.getPlayers().add(player);
 
-        when(gameRoomRepository.findByRoomCode("ABC123")).thenReturn(Optional.of(room));
+        when(gameRoomRepository.findWithPlayersByRoomCode("ABC123")).thenReturn(Optional.of(room));
 
         gameRoomService.deleteRoom("ABC123");
 
@@ -0,0 +1,81 @@
+package com.dinosurio_G.Back;
+
+import com.dinosurio_G.Back.dto.GameRoomDTO;
+import com.dinosurio_G.Back.model.GameRoom;
+import com.dinosurio_G.Back.model.Player;
+import com.dinosurio_G.Back.service.GameRoomService;
+import com.dinosurio_G.Back.service.broadcast.LobbyBroadcaster;
+import com.dinosurio_G.Back.service.broadcast.LobbyEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class LobbyBroadcasterTest {
+
+    private SimpMessagingTemplate ws;
+    private GameRoomService gameRoomService;
+    private LobbyBroadcaster lobby;
+
+    @BeforeEach
+    void setup() {
+        ws = mock(SimpMessagingTemplate.class);
+        gameRoomService = mock(GameRoomService.class);
+        lobby = new LobbyBroadcaster(ws, gameRoomService);
+    }
+
+    // ------------------------------
+    // TEST: cada cambio sale a /topic/lobby con seq creciente y la sala actualizada
+    // ------------------------------
+    @Test
+    void testChangesArePublishedWithIncreasingSeq() {
+        GameRoom room = new GameRoom("Sala", 4);
+        room.setRoomCode("LOB001");
+        room.addPlayer(new Player("Alice", true, 0, 0));
+
+        lobby.onLobbyEvent(LobbyEvent.roomCreated(room));
+        lobby.onLobbyEvent(LobbyEvent.readyToggled("LOB001", "Alice", true));
+
+        ArgumentCaptor<Object> sent = ArgumentCaptor.forClass(Object.class);
+        verify(ws, times(2)).convertAndSend(eq(LobbyBroadcaster.LOBBY_TOPIC), sent.capture());
+
+        Map<?, ?> created = (Map<?, ?>) sent.getAllValues().get(0);
+        assertEquals("ROOM_CREATED", created.get("type"));
+        assertEquals(1L, created.get("seq"));
+        assertEquals(1, ((GameRoomDTO) created.get("room")).getPlayers().size());
+
+        Map<?, ?> ready = (Map<?, ?>) sent.getAllValues().get(1);
+        assertEquals("READY_TOGGLED", ready.get("type"));
+        assertEquals(2L, ready.get("seq"));
+        assertEquals(true, ready.get("ready"));
+        assertFalse(ready.containsKey("room"));
+    }
+
+    // ------------------------------
+    // TEST: la foto lleva el seq del último cambio enviado
+    // ------------------------------
+    @Test
+    void testSnapshotCarriesCurrentSeq() {
+        lobby.onLobbyEvent(LobbyEvent.roomDeleted("OLD001"));
+        GameRoomDTO room = new GameRoomDTO(1L, "LOB002", "Sala", false, 4);
+        when(gameRoomService.getLobby(isNull(), eq(false), anyString(), eq(0), anyInt()))
+                .thenReturn(new SliceImpl<>(List.of(room)));
+
+        Map<String, Object> snapshot = lobby.snapshot();
+
+        assertEquals("LOBBY_SNAPSHOT", snapshot.get("type"));
+        assertEquals(1L, snapshot.get("seq"));
+        assertEquals(List.of(room), snapshot.get("rooms"));
+
+        lobby.sendSnapshot("sess-1");
+        verify(ws).convertAndSendToUser(eq("sess-1"), eq(LobbyBroadcaster.SNAPSHOT_QUEUE), anyMap(), anyMap());
+    }
+}
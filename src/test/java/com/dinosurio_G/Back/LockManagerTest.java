@@ -0,0 +1,64 @@
+package com.dinosurio_G.Back;
+
+import com.dinosurio_G.Back.service.core.LockManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LockManagerTest {
+
+    // ------------------------------
+    // TEST: el número de locks no crece con las claves
+    // ------------------------------
+    @Test
+    void testStripesAreFixed() {
+        LockManager locks = new LockManager(50);
+        assertEquals(64, locks.getStripeCount());
+
+        for (int i = 0; i < 10_000; i++) {
+            locks.withLock("CHEST_" + i, () -> { });
+        }
+
+        Map<?, ?> chest = (Map<?, ?>) ((Map<?, ?>) locks.getStats().get("keyClasses")).get("CHEST");
+        assertEquals(10_000L, chest.get("acquisitions"));
+        assertEquals(64, locks.getStats().get("stripes"));
+    }
+
+    // ------------------------------
+    // TEST: tryWithLock se rinde tras el timeout si otro hilo tiene la clave
+    // ------------------------------
+    @Test
+    void testTryWithLockTimesOut() throws Exception {
+        LockManager locks = new LockManager(8);
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread owner = new Thread(() -> locks.withLock("room_A", () -> {
+            held.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+        }));
+        owner.start();
+        assertTrue(held.await(5, TimeUnit.SECONDS));
+
+        AtomicBoolean ran = new AtomicBoolean();
+        assertFalse(locks.tryWithLock("room_A", 20, () -> ran.set(true)));
+        assertFalse(ran.get());
+
+        release.countDown();
+        owner.join();
+        assertTrue(locks.tryWithLock("room_A", 20, () -> ran.set(true)));
+        assertTrue(ran.get());
+
+        Map<?, ?> room = (Map<?, ?>) ((Map<?, ?>) locks.getStats().get("keyClasses")).get("room");
+        assertEquals(1L, room.get("timeouts"));
+        assertEquals(2L, room.get("acquisitions"));
+    }
+}
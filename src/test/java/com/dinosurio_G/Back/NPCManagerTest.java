@@ -0,0 +1,58 @@
+package com.dinosurio_G.Back;
+
+import com.dinosurio_G.Back.model.GameMap;
+import com.dinosurio_G.Back.model.GameRoom;
+import com.dinosurio_G.Back.model.Player;
+import com.dinosurio_G.Back.repository.GameRoomRepository;
+import com.dinosurio_G.Back.service.ExperienceService;
+import com.dinosurio_G.Back.service.NPCManager;
+import com.dinosurio_G.Back.service.core.ActiveRoomRegistry;
+import com.dinosurio_G.Back.service.core.GameClock;
+import com.dinosurio_G.Back.service.core.PlayerStateWriteBehind;
+import com.dinosurio_G.Back.service.core.RoomRuntime;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class NPCManagerTest {
+
+    // ------------------------------
+    // TEST: el período de gracia se mide en ticks del reloj de la sala, no en hora de pared
+    // ------------------------------
+    @Test
+    void testGracePeriodUsesRoomClock() {
+        GameRoom room = new GameRoom("Sala", 4);
+        room.setRoomCode("NPC001");
+        GameMap map = new GameMap("Mapa", "rectangle", "test");
+        room.setMap(map);
+        Player player = new Player("Alice", true, 0, 0);
+        room.addPlayer(player);
+
+        GameRoomRepository repo = mock(GameRoomRepository.class);
+        when(repo.findByRoomCode("NPC001")).thenReturn(Optional.of(room));
+        ActiveRoomRegistry activeRooms = new ActiveRoomRegistry();
+        NPCManager npcs = new NPCManager(repo, mock(ExperienceService.class), activeRooms,
+                mock(PlayerStateWriteBehind.class));
+
+        npcs.spawnInitialNpcs("NPC001");
+        // El jugador encima del primer NPC: le atacaría en cuanto pueda
+        player.setX(npcs.readNpcs("NPC001", v -> v.getX(0)));
+        player.setY(npcs.readNpcs("NPC001", v -> v.getY(0)));
+
+        RoomRuntime runtime = activeRooms.activate(room);
+        // Reloj con la hora de pared muy atrás: solo cuentan los ticks simulados
+        GameClock clock = new GameClock(50, 5, 0, 0);
+        runtime.setClock(clock);
+
+        for (int i = 0; i < 10; i++) clock.nextTick(); // 0,5 s simulados
+        npcs.updateRoomNpcs(runtime, clock.getSimulatedTimeMs());
+        assertEquals(Player.DEFAULT_HEALTH, player.getHealth());
+
+        for (int i = 0; i < 60; i++) clock.nextTick(); // 3,5 s simulados
+        npcs.updateRoomNpcs(runtime, clock.getSimulatedTimeMs());
+        assertTrue(player.getHealth() < Player.DEFAULT_HEALTH);
+    }
+}
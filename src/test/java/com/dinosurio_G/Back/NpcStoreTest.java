@@ -0,0 +1,122 @@
+package com.dinosurio_G.Back;
+
+import com.dinosurio_G.Back.model.Player;
+import com.dinosurio_G.Back.service.core.NpcStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NpcStoreTest {
+
+    private NpcStore store;
+
+    @BeforeEach
+    void setup() {
+        store = new NpcStore(2.0, 800, 128);
+    }
+
+    // ------------------------------
+    // TEST: borrar intercambia con el último y conserva los ids
+    // ------------------------------
+    @Test
+    void testSwapRemoveKeepsIdsConsistent() {
+        int a = store.spawn(10, 10, 50);
+        int b = store.spawn(20, 20, 50);
+        int c = store.spawn(30, 30, 50);
+
+        store.removeAt(store.indexOf(a));
+
+        assertEquals(2, store.size());
+        assertEquals(-1, store.indexOf(a));
+        // El último ocupa el hueco y su id sigue apuntando a sus datos
+        assertEquals(0, store.indexOf(c));
+        assertEquals(30, store.getX(store.indexOf(c)));
+        assertEquals(20, store.getX(store.indexOf(b)));
+    }
+
+    // ------------------------------
+    // TEST: muertos se barren recorriendo hacia atrás y el grid se actualiza
+    // ------------------------------
+    @Test
+    void testDeadAreSweptAndLeaveGrid() {
+        int a = store.spawn(10, 10, 5);
+        int b = store.spawn(500, 500, 50);
+        int c = store.spawn(15, 15, 5);
+
+        assertTrue(store.damage(store.indexOf(a), 5, "Alice"));
+        assertTrue(store.damage(store.indexOf(c), 5, "Bob"));
+        assertFalse(store.damage(store.indexOf(b), 5, "Bob"));
+
+        List<String> killers = new ArrayList<>();
+        for (int i = store.size() - 1; i >= 0; i--) {
+            if (store.isDead(i)) {
+                killers.add(store.getLastHitBy(i));
+                store.removeAt(i);
+            }
+        }
+
+        assertEquals(List.of("Bob", "Alice"), killers);
+        assertEquals(1, store.size());
+        assertEquals(b, store.getId(0));
+        assertFalse(store.isDead(0));
+        assertFalse(store.getGrid().anyWithin(10, 10, 20));
+        assertTrue(store.getGrid().anyWithin(500, 500, 1));
+    }
+
+    // ------------------------------
+    // TEST: movimiento hacia el objetivo y ataque con cooldown
+    // ------------------------------
+    @Test
+    void testMoveAndAttackWithCooldown() {
+        int id = store.spawn(0, 0, 50);
+        int i = store.indexOf(id);
+
+        store.moveTowards(i, 10, 0);
+        assertEquals(2.0, store.getX(i), 0.0001);
+        assertTrue(store.getGrid().anyWithin(2, 0, 0.1));
+
+        Player target = new Player("T", false, 5, 0);
+        assertTrue(store.tryAttack(i, target, 10, 10, 1000));
+        assertFalse(store.tryAttack(i, target, 10, 10, 1500)); // en cooldown
+        assertTrue(store.tryAttack(i, target, 10, 10, 1800));
+        assertEquals(Player.DEFAULT_HEALTH - 20, target.getHealth());
+    }
+
+    // ------------------------------
+    // TEST: los ids libres se reutilizan, pero solo tras reciclarlos (después del broadcast)
+    // ------------------------------
+    @Test
+    void testFreedIdsAreReusedOnlyAfterRecycle() {
+        int a = store.spawn(0, 0, 50);
+        store.spawn(1, 1, 50);
+        store.removeAt(store.indexOf(a));
+
+        store.recycleRetiredIds();
+        assertEquals(a, store.spawn(2, 2, 50));
+    }
+
+    // ------------------------------
+    // TEST: un NPC muerto y repuesto en el mismo tick no recibe el id del muerto
+    // ------------------------------
+    @Test
+    void testKillAndRespawnInSameTickGetsNewId() {
+        int a = store.spawn(0, 0, 5);
+        store.spawn(1, 1, 50);
+
+        assertTrue(store.damage(store.indexOf(a), 5, "Alice"));
+        store.removeAt(store.indexOf(a));
+        int respawned = store.spawn(2, 2, 50);
+
+        assertNotEquals(a, respawned);
+        assertEquals(-1, store.indexOf(a));
+
+        // Tras el broadcast del tick el id ya se puede reutilizar
+        store.recycleRetiredIds();
+        store.removeAt(store.indexOf(respawned));
+        assertEquals(a, store.spawn(3, 3, 50));
+    }
+}
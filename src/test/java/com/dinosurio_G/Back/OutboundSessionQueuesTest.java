@@ -0,0 +1,141 @@
+package com.dinosurio_G.Back;
+
+import com.dinosurio_G.Back.websocket.OutboundSessionQueues;
+import com.dinosurio_G.Back.websocket.StateFrameDroppedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class OutboundSessionQueuesTest {
+
+    private ApplicationEventPublisher publisher;
+    private MessageChannel channel;
+    private WebSocketSession session;
+    private OutboundSessionQueues queues;
+
+    @BeforeEach
+    void setup() throws Exception {
+        publisher = mock(ApplicationEventPublisher.class);
+        channel = mock(MessageChannel.class);
+        when(channel.send(any())).thenReturn(true);
+        session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("s1");
+
+        queues = new OutboundSessionQueues(publisher, 3, 60_000);
+        queues.decorate(mock(WebSocketHandler.class)).afterConnectionEstablished(session);
+    }
+
+    private static Message<String> frame(String payload, boolean state) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId("s1");
+        accessor.setSubscriptionId(state ? "sub-state" : "sub-events");
+        accessor.setDestination(state ? "/topic/game/ABC123/state.delta" : "/topic/game/ABC123/events");
+        if (state) {
+            accessor.setHeader(OutboundSessionQueues.CONFLATE_HEADER, "ABC123");
+        }
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+
+    private List<Object> sentPayloads() {
+        ArgumentCaptor<Message<?>> sent = ArgumentCaptor.forClass(Message.class);
+        verify(channel, atLeast(0)).send(sent.capture());
+        return sent.getAllValues().stream().map(m -> (Object) m.getPayload()).toList();
+    }
+
+    private void completeLastSent() {
+        ArgumentCaptor<Message<?>> sent = ArgumentCaptor.forClass(Message.class);
+        verify(channel, atLeastOnce()).send(sent.capture());
+        queues.afterMessageHandled(sent.getValue(), channel, null, null);
+    }
+
+    // ------------------------------
+    // TEST: con un frame en vuelo, el estado encolado se sustituye y los eventos se conservan
+    // ------------------------------
+    @Test
+    void testQueuedStateIsReplacedButEventsAreKept() {
+        assertNull(queues.preSend(frame("state-1", true), channel));
+        assertNull(queues.preSend(frame("state-2", true), channel));
+        assertNull(queues.preSend(frame("event-1", false), channel));
+        assertNull(queues.preSend(frame("state-3", true), channel));
+
+        // Solo el primero salió; el resto espera a que termine
+        assertEquals(List.of("state-1"), sentPayloads());
+
+        completeLastSent();
+        completeLastSent();
+        completeLastSent();
+
+        assertEquals(List.of("state-1", "event-1", "state-3"), sentPayloads());
+        verify(publisher).publishEvent(argThat((Object e) ->
+                e instanceof StateFrameDroppedEvent ev && ev.getRoomCode().equals("ABC123") && ev.getSessionId().equals("s1")
+                        && ev.getDestination().equals("/topic/game/ABC123/state.delta")));
+
+        Map<?, ?> s1 = (Map<?, ?>) ((Map<?, ?>) queues.getStats().get("perSession")).get("s1");
+        assertEquals(1L, s1.get("droppedStateFrames"));
+        assertEquals(0, s1.get("depth"));
+    }
+
+    // ------------------------------
+    // TEST: los frames ya liberados y los de sesiones desconocidas pasan sin encolar
+    // ------------------------------
+    @Test
+    void testUnknownSessionPassesThrough() {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId("other");
+        Message<String> msg = MessageBuilder.createMessage("x", accessor.getMessageHeaders());
+
+        assertSame(msg, queues.preSend(msg, channel));
+        verifyNoInteractions(channel);
+    }
+
+    // ------------------------------
+    // TEST: una sesión que acumula demasiados eventos se cierra
+    // ------------------------------
+    @Test
+    void testSlowSessionIsClosed() throws Exception {
+        // El cierre tarda (socket lento): mientras tanto la sesión no debe recibir nada
+        CountDownLatch releaseClose = new CountDownLatch(1);
+        CompletableFuture<Thread> closeThread = new CompletableFuture<>();
+        doAnswer(inv -> {
+            closeThread.complete(Thread.currentThread());
+            releaseClose.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+
+        for (int i = 0; i < 5; i++) {
+            queues.preSend(frame("event-" + i, false), channel);
+        }
+        assertTrue(closeThread.get(5, TimeUnit.SECONDS).getName().startsWith("ws-slow-close-"));
+        assertEquals(1L, queues.getStats().get("slowDisconnects"));
+
+        // Frames posteriores al cierre y confirmaciones del que estaba en vuelo: descartados
+        assertNull(queues.preSend(frame("event-late", false), channel));
+        completeLastSent();
+        assertEquals(List.of("event-0"), sentPayloads());
+        assertEquals(1L, queues.getStats().get("droppedWhileClosing"));
+
+        releaseClose.countDown();
+        queues.decorate(mock(WebSocketHandler.class)).afterConnectionClosed(session, CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(0, queues.getStats().get("sessions"));
+        queues.shutdown();
+    }
+}
@@ -1,5 +1,6 @@
 package com.dinosurio_G.Back;
 import com.dinosurio_G.Back.controller.PlayerController;
+import com.dinosurio_G.Back.dto.GameRoomDTO;
 import com.dinosurio_G.Back.model.GameRoom;
 import com.dinosurio_G.Back.model.NPC;
 import com.dinosurio_G.Back.model.Player;
@@ -78,14 +79,32 @@ public class PlayerControllerTest {
 
     @Test
     void testMovePlayer() {
-        GameRoom room = new GameRoom();
-        when(gameRoomService.getRoomByCode("ROOM1")).thenReturn(room);
+        GameRoomDTO room = new GameRoomDTO(1L, "ROOM1", "Sala", true, 4);
+        when(gameRoomService.getRoomDTO("ROOM1")).thenReturn(room);
 
-        var dto = playerController.movePlayer("ROOM1", "PlayerX", true, false, false, true, null);
+        var response = playerController.movePlayer("ROOM1", "PlayerX", true, false, false, true, 3, "full", null);
 
         verify(gamePlayServices, times(1))
-                .updatePlayerInput("ROOM1", "PlayerX", true, false, false, true);
-        assertNotNull(dto);
+                .updatePlayerInput("ROOM1", "PlayerX", Player.INPUT_ARRIBA | Player.INPUT_DERECHA, 3);
+        assertNotNull(response.getBody());
+    }
+
+    // ------------------------------
+    // TEST: el modo por defecto responde un ack sin leer la sala de la BD
+    // ------------------------------
+    @Test
+    void testMovePlayerFastPath() {
+        when(gamePlayServices.postInput("ROOM1", "PlayerX", Player.INPUT_ARRIBA | Player.INPUT_DERECHA, 0)).thenReturn(42L);
+
+        var response = playerController.movePlayer("ROOM1", "PlayerX", true, false, false, true, 0, "ack", null);
+
+        Map<?, ?> ack = (Map<?, ?>) response.getBody();
+        assertEquals(true, ack.get("accepted"));
+        assertEquals(42L, ack.get("tick"));
+        verify(gameRoomService, never()).getRoomDTO(any());
+
+        var empty = playerController.movePlayer("ROOM1", "PlayerX", true, false, false, true, 0, "none", null);
+        assertEquals(204, empty.getStatusCode().value());
     }
 
     @Test
@@ -0,0 +1,70 @@
+package com.dinosurio_G.Back;
+
+import com.dinosurio_G.Back.model.GameRoom;
+import com.dinosurio_G.Back.model.Player;
+import com.dinosurio_G.Back.service.core.PlayerIndex;
+import com.dinosurio_G.Back.service.core.RoomRuntime;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlayerIndexTest {
+
+    private static Player player(long id, String name, double x) {
+        Player p = new Player(name, false, x, 100);
+        p.setId(id);
+        return p;
+    }
+
+    // ------------------------------
+    // TEST: búsqueda por nombre, id y slot
+    // ------------------------------
+    @Test
+    void testLookupByNameIdAndSlot() {
+        Player alice = player(7L, "Alice", 100);
+        Player bob = player(9L, "Bob", 200);
+        PlayerIndex index = PlayerIndex.of(List.of(alice, bob));
+
+        assertEquals(2, index.size());
+        assertSame(bob, index.byName("Bob"));
+        assertSame(alice, index.byId(7L));
+        assertEquals(1, index.slotOf("Bob"));
+        assertSame(bob, index.get(1));
+
+        assertNull(index.byName("Carol"));
+        assertNull(index.byId(99L));
+        assertEquals(-1, index.slotOf(null));
+    }
+
+    // ------------------------------
+    // TEST: la sala reconstruye el índice cuando cambia el roster
+    // ------------------------------
+    @Test
+    void testRuntimeRebuildsIndexOnRosterChange() {
+        GameRoom room = new GameRoom();
+        room.setRoomCode("IDX001");
+        Player alice = player(1L, "Alice", 100);
+        Player bob = player(2L, "Bob", 200);
+        room.setPlayers(new ArrayList<>(List.of(alice, bob)));
+
+        RoomRuntime runtime = new RoomRuntime(room);
+        PlayerIndex before = runtime.getPlayerIndex();
+
+        // Sin cambios en el roster el índice se conserva
+        runtime.syncPlayerGrid();
+        assertSame(before, runtime.getPlayerIndex());
+
+        room.getPlayers().remove(alice);
+        runtime.syncPlayerGrid();
+
+        assertNull(runtime.getPlayer("Alice"));
+        assertSame(bob, runtime.getPlayer(0));
+        assertSame(bob, runtime.getPlayerById(2L));
+        // El grid usa los slots nuevos
+        assertEquals(1, runtime.getPlayerGrid().size());
+        assertEquals(200, runtime.getPlayerGrid().getX(0));
+    }
+}
@@ -0,0 +1,85 @@
+package com.dinosurio_G.Back;
+
+import com.dinosurio_G.Back.model.Player;
+import com.dinosurio_G.Back.service.core.PlayerStateWriteBehind;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class PlayerStateWriteBehindTest {
+
+    private JdbcTemplate jdbc;
+    private PlayerStateWriteBehind writeBehind;
+    private Player p;
+
+    @BeforeEach
+    void setup() {
+        jdbc = mock(JdbcTemplate.class);
+        writeBehind = new PlayerStateWriteBehind(jdbc, mock(PlatformTransactionManager.class), 1000);
+
+        p = new Player();
+        ReflectionTestUtils.setField(p, "id", 1L);
+        p.setX(10);
+        p.setY(20);
+        p.setHealth(100);
+    }
+
+    // ------------------------------
+    // TEST: varios cambios del mismo jugador se escriben en una sola fila
+    // ------------------------------
+    @Test
+    @SuppressWarnings("unchecked")
+    void testChangesAreCoalescedPerPlayer() {
+        writeBehind.markDirty(p);
+        p.setX(15);
+        writeBehind.markDirty(p);
+        p.setHealth(90);
+        writeBehind.markDirty(p);
+
+        assertEquals(1, writeBehind.getPendingCount());
+        assertEquals(1, writeBehind.flush());
+
+        verify(jdbc).batchUpdate(anyString(), argThat((List<Object[]> rows) ->
+                rows.size() == 1 && (double) rows.get(0)[0] == 15 && (int) rows.get(0)[2] == 90));
+        assertEquals(0, writeBehind.getPendingCount());
+    }
+
+    // ------------------------------
+    // TEST: si la BD falla, los cambios se reintentan en el siguiente flush
+    // ------------------------------
+    @Test
+    void testFailedFlushIsRetried() {
+        when(jdbc.batchUpdate(anyString(), anyList()))
+                .thenThrow(new RuntimeException("BD caída"))
+                .thenReturn(new int[]{1});
+
+        writeBehind.markDirty(p);
+
+        assertEquals(0, writeBehind.flush());
+        assertEquals(1, writeBehind.getPendingCount());
+
+        assertEquals(1, writeBehind.flush());
+        assertEquals(0, writeBehind.getPendingCount());
+        assertEquals(1L, writeBehind.getStats().get("failures"));
+    }
+
+    // ------------------------------
+    // TEST: descartar evita escribir sobre un guardado completo
+    // ------------------------------
+    @Test
+    void testDiscardDropsPendingChanges() {
+        writeBehind.markDirty(p);
+        writeBehind.discard(List.of(p));
+
+        assertEquals(0, writeBehind.flush());
+        verifyNoInteractions(jdbc);
+    }
+}
@@ -64,6 +64,22 @@ public class PlayerTest {
         assertTrue(player.getY() >= 0);
     }
 
+    // -------------------- Input --------------------
+    @Test
+    void testSubmitInput_SeAplicaAlTomarloEnElTick() {
+        player.submitInput(Player.INPUT_DERECHA, 7);
+        player.actualizar();
+        assertEquals(50, player.getX()); // aún no tomado
+
+        assertTrue(player.latchInput());
+        assertEquals(7, player.getLastInputSeq());
+        player.actualizar();
+        assertTrue(player.getX() > 50);
+
+        // Sin input nuevo no hay cambios
+        assertFalse(player.latchInput());
+    }
+
     // -------------------- Ataque --------------------
     @Test
     void testCanAttack_Cooldown() {
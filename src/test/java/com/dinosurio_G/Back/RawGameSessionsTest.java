@@ -0,0 +1,185 @@
+package com.dinosurio_G.Back;
+
+import com.dinosurio_G.Back.websocket.RawGameSession;
+import com.dinosurio_G.Back.websocket.RawGameSessions;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class RawGameSessionsTest {
+
+    // ------------------------------
+    // TEST: con varios hilos de envío, los frames de una sesión llegan en orden
+    // ------------------------------
+    @Test
+    void testFramesOfOneSessionKeepTheirOrder() throws Exception {
+        int frames = 500;
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(frames);
+        WebSocketSession socket = mock(WebSocketSession.class);
+        when(socket.getId()).thenReturn("s1");
+        when(socket.isOpen()).thenReturn(true);
+        doAnswer(inv -> {
+            WebSocketMessage<?> message = inv.getArgument(0);
+            received.add(((ByteBuffer) message.getPayload()).getInt(0));
+            done.countDown();
+            return null;
+        }).when(socket).sendMessage(any());
+
+        RawGameSessions sessions = new RawGameSessions(new ObjectMapper(), 5000, 1 << 20, 4);
+        try {
+            RawGameSession raw = sessions.register(socket, "RAW001", "Alice", true);
+            for (int i = 0; i < frames; i++) {
+                sessions.sendBinaryState(raw, ByteBuffer.allocate(4).putInt(i).array());
+            }
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < frames; i++) {
+                assertEquals(i, received.get(i));
+            }
+        } finally {
+            sessions.shutdown();
+        }
+    }
+
+    // ------------------------------
+    // TEST: los frames encolados que aún no se enviaron cuentan como atraso
+    // ------------------------------
+    @Test
+    void testQueuedFramesCountAsBehind() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        WebSocketSession socket = mock(WebSocketSession.class);
+        when(socket.getId()).thenReturn("s2");
+        when(socket.isOpen()).thenReturn(true);
+        doAnswer(inv -> {
+            firstStarted.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(socket).sendMessage(any(BinaryMessage.class));
+
+        RawGameSessions sessions = new RawGameSessions(new ObjectMapper(), 5000, 1 << 20, 2);
+        try {
+            RawGameSession raw = sessions.register(socket, "RAW002", "Bob", true);
+            sessions.sendBinaryState(raw, new byte[]{1});
+            assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+            sessions.sendBinaryState(raw, new byte[]{2});
+
+            // El segundo frame espera en la cola de la sesión, no en el buffer del decorador
+            assertTrue(raw.isBehind(60_000));
+            release.countDown();
+        } finally {
+            sessions.shutdown();
+        }
+    }
+
+    // ------------------------------
+    // TEST: una escritura bloqueada más allá del límite cierra la sesión y libera el hilo de envío
+    // ------------------------------
+    @Test
+    void testStalledWriteClosesSessionAndFreesSender() throws Exception {
+        CountDownLatch writeStarted = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        WebSocketSession stalled = blockingSocket("s3", writeStarted, closed);
+
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        CountDownLatch otherSent = new CountDownLatch(1);
+        WebSocketSession other = mock(WebSocketSession.class);
+        when(other.getId()).thenReturn("s4");
+        when(other.isOpen()).thenReturn(true);
+        doAnswer(inv -> {
+            received.add(1);
+            otherSent.countDown();
+            return null;
+        }).when(other).sendMessage(any());
+
+        // Un solo hilo de envío: si la sesión parada lo retuviera, la otra no recibiría nada
+        RawGameSessions sessions = new RawGameSessions(new ObjectMapper(), 50, 1 << 20, 1);
+        try {
+            RawGameSession raw = sessions.register(stalled, "RAW003", "Carl", true);
+            sessions.register(other, "RAW003", "Dana", true);
+            sessions.sendBinaryState(raw, new byte[]{1});
+            assertTrue(writeStarted.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100); // más que el límite de 50 ms
+
+            // El siguiente envío detecta la escritura parada
+            sessions.broadcastJson("RAW003", "events", "{}".getBytes());
+
+            assertTrue(closed.await(5, TimeUnit.SECONDS));
+            verify(stalled).close(CloseStatus.SESSION_NOT_RELIABLE);
+            assertTrue(otherSent.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of(1), received);
+            assertEquals(1L, sessions.getStats().get("slowSessionsClosed"));
+
+            // Lo que se envíe después a la sesión cerrada se descarta sin encolar
+            sessions.sendBinaryState(raw, new byte[]{2});
+            Map<?, ?> perSession = (Map<?, ?>) sessions.getStats().get("perSession");
+            assertEquals(0, ((Map<?, ?>) perSession.get("s3")).get("queuedFrames"));
+        } finally {
+            sessions.shutdown();
+        }
+    }
+
+    // ------------------------------
+    // TEST: una cola que supera el límite de bytes cierra la sesión y se vacía
+    // ------------------------------
+    @Test
+    void testQueueOverByteLimitClosesSession() throws Exception {
+        CountDownLatch writeStarted = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        WebSocketSession stalled = blockingSocket("s5", writeStarted, closed);
+
+        RawGameSessions sessions = new RawGameSessions(new ObjectMapper(), 60_000, 100, 1);
+        try {
+            RawGameSession raw = sessions.register(stalled, "RAW004", "Eve", true);
+            sessions.sendBinaryState(raw, new byte[20]);
+            assertTrue(writeStarted.await(5, TimeUnit.SECONDS));
+
+            // Eventos que no se saltan: se acumulan hasta superar 100 bytes
+            for (int i = 0; i < 10; i++) {
+                sessions.broadcastJson("RAW004", "events", "{}".getBytes());
+            }
+
+            assertTrue(closed.await(5, TimeUnit.SECONDS));
+            Map<?, ?> perSession = (Map<?, ?>) sessions.getStats().get("perSession");
+            assertEquals(0, ((Map<?, ?>) perSession.get("s5")).get("queuedFrames"));
+            assertEquals(0L, ((Map<?, ?>) perSession.get("s5")).get("queuedBytes"));
+            assertEquals(1L, sessions.getStats().get("slowSessionsClosed"));
+        } finally {
+            sessions.shutdown();
+        }
+    }
+
+    // Socket cuya escritura se queda bloqueada hasta que se cierra la sesión
+    private static WebSocketSession blockingSocket(String id, CountDownLatch writeStarted, CountDownLatch closed)
+            throws Exception {
+        WebSocketSession socket = mock(WebSocketSession.class);
+        when(socket.getId()).thenReturn(id);
+        when(socket.isOpen()).thenReturn(true);
+        doAnswer(inv -> {
+            writeStarted.countDown();
+            closed.await(5, TimeUnit.SECONDS);
+            throw new IOException("cerrada");
+        }).when(socket).sendMessage(any());
+        doAnswer(inv -> {
+            closed.countDown();
+            return null;
+        }).when(socket).close(any(CloseStatus.class));
+        return socket;
+    }
+}
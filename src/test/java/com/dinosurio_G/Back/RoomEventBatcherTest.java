@@ -0,0 +1,80 @@
+package com.dinosurio_G.Back;
+
+import com.dinosurio_G.Back.model.GameRoom;
+import com.dinosurio_G.Back.service.broadcast.RoomEventBatcher;
+import com.dinosurio_G.Back.service.core.ActiveRoomRegistry;
+import com.dinosurio_G.Back.websocket.RawGameSessions;
+import com.dinosurio_G.Back.websocket.StateSubscriptionRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class RoomEventBatcherTest {
+
+    private SimpMessagingTemplate ws;
+    private StateSubscriptionRegistry subs;
+    private ActiveRoomRegistry activeRooms;
+    private RoomEventBatcher batcher;
+
+    @BeforeEach
+    void setup() {
+        ws = mock(SimpMessagingTemplate.class);
+        subs = new StateSubscriptionRegistry();
+        activeRooms = new ActiveRoomRegistry();
+        batcher = new RoomEventBatcher(ws, subs, mock(RawGameSessions.class), activeRooms);
+
+        GameRoom room = new GameRoom();
+        room.setRoomCode("EVT001");
+        activeRooms.activate(room);
+    }
+
+    // ------------------------------
+    // TEST: los eventos del tick salen en un único lote ordenado con el id del tick
+    // ------------------------------
+    @Test
+    void testEventsOfATickAreFlushedAsOneBatch() {
+        subs.subscribe("s1", "sub-0", "/topic/game/EVT001/events");
+
+        batcher.publish("EVT001", Map.of("type", "NPC_KILLED", "npcId", 1));
+        batcher.publish("EVT001", Map.of("type", "NPC_KILLED", "npcId", 2));
+        batcher.publish("EVT001", Map.of("type", "CHEST_OPENED", "chestId", 7));
+
+        // El formato suelto se mantiene
+        verify(ws, times(3)).convertAndSend(eq("/topic/game/EVT001/event"), any(Object.class));
+        verify(ws, never()).convertAndSend(eq("/topic/game/EVT001/events"), any(Object.class));
+
+        batcher.flush("EVT001", 42L);
+
+        ArgumentCaptor<Object> batch = ArgumentCaptor.forClass(Object.class);
+        verify(ws).convertAndSend(eq("/topic/game/EVT001/events"), batch.capture());
+        Map<?, ?> frame = (Map<?, ?>) batch.getValue();
+        assertEquals("EVENT_BATCH", frame.get("type"));
+        assertEquals(42L, frame.get("tick"));
+        List<?> events = (List<?>) frame.get("events");
+        assertEquals(3, events.size());
+        assertEquals(2, ((Map<?, ?>) events.get(1)).get("npcId"));
+
+        // Un tick sin eventos no envía nada
+        batcher.flush("EVT001", 43L);
+        verify(ws, times(1)).convertAndSend(eq("/topic/game/EVT001/events"), any(Object.class));
+    }
+
+    // ------------------------------
+    // TEST: sin nadie suscrito a los lotes no se acumula nada
+    // ------------------------------
+    @Test
+    void testNoBatchWithoutOptIn() {
+        batcher.publish("EVT001", Map.of("type", "CHEST_SPAWNED"));
+        batcher.flush("EVT001", 1L);
+
+        verify(ws).convertAndSend(eq("/topic/game/EVT001/event"), any(Object.class));
+        verify(ws, never()).convertAndSend(eq("/topic/game/EVT001/events"), any(Object.class));
+    }
+}
@@ -0,0 +1,108 @@
+package com.dinosurio_G.Back;
+
+import com.dinosurio_G.Back.service.core.RoomTickEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoomTickEngineTest {
+
+    private RoomTickEngine engine;
+
+    @BeforeEach
+    void setup() {
+        engine = new RoomTickEngine(10, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    // ------------------------------
+    // TEST: una sala lenta no bloquea a otra
+    // ------------------------------
+    @Test
+    void testSlowRoomDoesNotBlockOtherRoom() throws Exception {
+        CountDownLatch fastTicks = new CountDownLatch(10);
+
+        engine.register("SLOW01", () -> sleep(200));
+        engine.register("FAST01", fastTicks::countDown);
+
+        // Con un solo hilo global esto tardaría más de 2 segundos
+        assertTrue(fastTicks.await(1, TimeUnit.SECONDS));
+    }
+
+    // ------------------------------
+    // TEST: sobrecargas reportadas por sala
+    // ------------------------------
+    @Test
+    @SuppressWarnings("unchecked")
+    void testOverrunsReportedPerRoom() throws Exception {
+        CountDownLatch slowTicks = new CountDownLatch(2);
+        engine.register("SLOW01", () -> {
+            sleep(30);
+            slowTicks.countDown();
+        });
+        engine.register("FAST01", () -> { });
+
+        assertTrue(slowTicks.await(1, TimeUnit.SECONDS));
+        sleep(20);
+
+        Map<String, Object> rooms = (Map<String, Object>) engine.getStats().get("rooms");
+        Map<String, Object> slow = (Map<String, Object>) rooms.get("SLOW01");
+        Map<String, Object> fast = (Map<String, Object>) rooms.get("FAST01");
+
+        assertTrue((long) slow.get("overruns") >= 1);
+        assertEquals(0L, fast.get("overruns"));
+    }
+
+    // ------------------------------
+    // TEST: registro único y baja de salas
+    // ------------------------------
+    @Test
+    void testRegisterAndUnregister() throws Exception {
+        AtomicInteger ticks = new AtomicInteger();
+
+        assertTrue(engine.register("ROOM01", ticks::incrementAndGet));
+        assertFalse(engine.register("ROOM01", ticks::incrementAndGet));
+        assertTrue(engine.isRegistered("ROOM01"));
+
+        engine.unregister("ROOM01");
+        assertFalse(engine.isRegistered("ROOM01"));
+
+        sleep(30);
+        int afterUnregister = ticks.get();
+        sleep(50);
+        assertEquals(afterUnregister, ticks.get());
+    }
+
+    // ------------------------------
+    // TEST: una excepción no cancela el slot
+    // ------------------------------
+    @Test
+    void testFailingTickKeepsRunning() throws Exception {
+        CountDownLatch ticks = new CountDownLatch(3);
+        engine.register("FAIL01", () -> {
+            ticks.countDown();
+            throw new RuntimeException("fallo simulado");
+        });
+
+        assertTrue(ticks.await(1, TimeUnit.SECONDS));
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.dinosurio_G.Back;
+
+import com.dinosurio_G.Back.model.GameRoom;
+import com.dinosurio_G.Back.service.core.ActiveRoomRegistry;
+import com.dinosurio_G.Back.service.core.RoomTickEngine;
+import com.dinosurio_G.Back.service.pipeline.RoomTickPipeline;
+import com.dinosurio_G.Back.service.pipeline.TickContext;
+import com.dinosurio_G.Back.service.pipeline.TickStage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class RoomTickPipelineTest {
+
+    private ActiveRoomRegistry activeRooms;
+    private RoomTickEngine engine;
+    private final List<String> executed = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        activeRooms = new ActiveRoomRegistry();
+        engine = mock(RoomTickEngine.class);
+        when(engine.getTickPeriodMs()).thenReturn(1L);
+
+        GameRoom room = new GameRoom();
+        room.setRoomCode("ABC123");
+        activeRooms.activate(room);
+    }
+
+    private TickStage stage(String name, Consumer<TickContext> action) {
+        return new TickStage() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public void execute(TickContext ctx) {
+                executed.add(name);
+                action.accept(ctx);
+            }
+        };
+    }
+
+    // ------------------------------
+    // TEST: las etapas se ejecutan en orden y se miden
+    // ------------------------------
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStagesRunInOrder() {
+        RoomTickPipeline pipeline = new RoomTickPipeline(List.of(
+                stage("inputs", ctx -> { }),
+                stage("movement", ctx -> { }),
+                stage("broadcast", ctx -> assertEquals("ABC123", ctx.getRoomCode()))
+        ), activeRooms, engine, 5);
+
+        pipeline.tick("ABC123");
+
+        assertEquals(List.of("inputs", "movement", "broadcast"), executed);
+
+        Map<String, Object> stages = (Map<String, Object>) pipeline.getStats().get("stages");
+        assertEquals(1L, ((Map<String, Object>) stages.get("movement")).get("runs"));
+    }
+
+    // ------------------------------
+    // TEST: un tick tardío recupera pasos de simulación pero difunde una sola vez
+    // ------------------------------
+    @Test
+    void testLateTickCatchesUpAndBroadcastsOnce() {
+        AtomicLong now = new AtomicLong(1_000_000_000L);
+        List<Long> broadcastTicks = new ArrayList<>();
+        RoomTickPipeline pipeline = new RoomTickPipeline(List.of(
+                stage("movement", ctx -> { }),
+                new TickStage() {
+                    @Override
+                    public String getName() {
+                        return "broadcast";
+                    }
+
+                    @Override
+                    public void execute(TickContext ctx) {
+                        broadcastTicks.add(ctx.getTickId());
+                    }
+
+                    @Override
+                    public boolean runsEveryStep() {
+                        return false;
+                    }
+                }
+        ), activeRooms, engine, 3, now::get);
+
+        pipeline.tick("ABC123");
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(20)); // 20 periodos de retraso: se recupera como máximo 3 pasos
+
+        pipeline.tick("ABC123");
+
+        assertEquals(4, executed.size());
+        assertEquals(List.of(1L, 4L), broadcastTicks);
+    }
+
+    // ------------------------------
+    // TEST: si una etapa termina la partida, el resto no se ejecuta
+    // ------------------------------
+    @Test
+    void testPipelineStopsWhenRoomEnds() {
+        RoomTickPipeline pipeline = new RoomTickPipeline(List.of(
+                stage("gameEnd", ctx -> activeRooms.deactivate(ctx.getRoomCode())),
+                stage("broadcast", ctx -> { })
+        ), activeRooms, engine, 5);
+
+        pipeline.tick("ABC123");
+
+        assertEquals(List.of("gameEnd"), executed);
+    }
+
+    // ------------------------------
+    // TEST: una sala que ya no está activa se retira del motor
+    // ------------------------------
+    @Test
+    void testInactiveRoomIsUnregistered() {
+        RoomTickPipeline pipeline = new RoomTickPipeline(List.of(stage("inputs", ctx -> { })), activeRooms, engine, 5);
+
+        pipeline.tick("GONE01");
+
+        assertTrue(executed.isEmpty());
+        verify(engine).unregister("GONE01");
+    }
+}
@@ -0,0 +1,101 @@
+package com.dinosurio_G.Back;
+
+import com.dinosurio_G.Back.service.core.SpatialHashGrid;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpatialHashGridTest {
+
+    // ------------------------------
+    // TEST: consulta por rectángulo y por radio
+    // ------------------------------
+    @Test
+    void testRectAndRadiusQueries() {
+        SpatialHashGrid grid = new SpatialHashGrid(100);
+        grid.update(0, 10, 10);
+        grid.update(1, 150, 40);
+        grid.update(2, 500, 500);
+
+        List<Integer> inRect = new ArrayList<>();
+        grid.queryRect(0, 0, 200, 100, inRect::add);
+        assertEquals(Set.of(0, 1), new HashSet<>(inRect));
+
+        List<Integer> inRadius = new ArrayList<>();
+        grid.queryRadius(0, 0, 50, inRadius::add);
+        assertEquals(List.of(0), inRadius);
+
+        assertTrue(grid.anyWithin(480, 480, 30));
+        assertFalse(grid.anyWithin(300, 300, 100));
+    }
+
+    // ------------------------------
+    // TEST: mover entre celdas y borrar
+    // ------------------------------
+    @Test
+    void testMoveAcrossCellsAndRemove() {
+        SpatialHashGrid grid = new SpatialHashGrid(100);
+        grid.update(3, 10, 10);
+        grid.update(3, 950, 950);
+
+        assertFalse(grid.anyWithin(10, 10, 20));
+        assertTrue(grid.anyWithin(950, 950, 1));
+        assertEquals(1, grid.size());
+
+        grid.remove(3);
+        assertEquals(0, grid.size());
+        assertEquals(-1, grid.nearest(950, 950, Double.POSITIVE_INFINITY, h -> true));
+    }
+
+    // ------------------------------
+    // TEST: el más cercano coincide con una búsqueda exhaustiva
+    // ------------------------------
+    @Test
+    void testNearestMatchesBruteForce() {
+        Random random = new Random(42);
+        SpatialHashGrid grid = new SpatialHashGrid(64);
+        double[] xs = new double[300];
+        double[] ys = new double[300];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = random.nextDouble() * 2000;
+            ys[i] = random.nextDouble() * 1500;
+            grid.update(i, xs[i], ys[i]);
+        }
+
+        for (int q = 0; q < 200; q++) {
+            double x = random.nextDouble() * 2400 - 200;
+            double y = random.nextDouble() * 1900 - 200;
+
+            int expected = -1;
+            double best = Double.MAX_VALUE;
+            for (int i = 0; i < xs.length; i++) {
+                if (i % 3 == 0) continue; // filtro
+                double d = (xs[i] - x) * (xs[i] - x) + (ys[i] - y) * (ys[i] - y);
+                if (d < best) {
+                    best = d;
+                    expected = i;
+                }
+            }
+
+            assertEquals(expected, grid.nearest(x, y, Double.POSITIVE_INFINITY, h -> h % 3 != 0));
+        }
+    }
+
+    // ------------------------------
+    // TEST: el más cercano respeta el radio máximo
+    // ------------------------------
+    @Test
+    void testNearestWithinMaxRadius() {
+        SpatialHashGrid grid = new SpatialHashGrid(100);
+        grid.update(0, 300, 0);
+
+        assertEquals(-1, grid.nearest(0, 0, 250, h -> true));
+        assertEquals(0, grid.nearest(0, 0, 300, h -> true));
+    }
+}
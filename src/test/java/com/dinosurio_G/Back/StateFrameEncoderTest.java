@@ -0,0 +1,311 @@
+package com.dinosurio_G.Back;
+
+import com.dinosurio_G.Back.model.GameMap;
+import com.dinosurio_G.Back.model.GameRoom;
+import com.dinosurio_G.Back.model.Player;
+import com.dinosurio_G.Back.service.broadcast.DeltaTracker;
+import com.dinosurio_G.Back.service.broadcast.RoomSnapshot;
+import com.dinosurio_G.Back.service.broadcast.RoomStateBroadcaster;
+import com.dinosurio_G.Back.service.broadcast.StateDelta;
+import com.dinosurio_G.Back.service.broadcast.StateFrameEncoder;
+import com.dinosurio_G.Back.service.core.NpcStore;
+import com.dinosurio_G.Back.websocket.RawGameSessions;
+import com.dinosurio_G.Back.websocket.StateFrameDroppedEvent;
+import com.dinosurio_G.Back.websocket.StateSubscriptionRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class StateFrameEncoderTest {
+
+    private Player p;
+    private NpcStore npcs;
+    private int aliveNpc;
+
+    @BeforeEach
+    void setup() {
+        p = new Player("Rex", false, 100.3, 250.5);
+        p.setHealth(80);
+
+        npcs = new NpcStore(2.0, 800, 128);
+        aliveNpc = npcs.spawn(10, 20, 50);
+        int dead = npcs.spawn(30, 40, 50);
+        npcs.damage(npcs.indexOf(dead), 50, "Rex");
+    }
+
+    private RoomSnapshot snapshot(long tick) {
+        GameMap map = new GameMap();
+        map.setWidth(1000);
+        map.setHeight(800);
+        GameRoom room = new GameRoom();
+        room.setRoomCode("ABC123");
+        room.setMap(map);
+        room.setPlayers(List.of(p));
+        return RoomSnapshot.capture(room, tick, npcs);
+    }
+
+    // ------------------------------
+    // TEST: el keyframe binario sigue el layout fijo y omite NPCs muertos
+    // ------------------------------
+    @Test
+    void testBinaryKeyframeLayout() {
+        p.submitInput(Player.INPUT_DERECHA, 70_000);
+        p.latchInput();
+        RoomSnapshot s = snapshot(42L);
+        ByteBuffer buf = ByteBuffer.wrap(StateFrameEncoder.encodeBinary(s, new DeltaTracker().diff(s, false)));
+
+        assertEquals(StateFrameEncoder.VERSION, buf.get());
+        assertEquals(StateFrameEncoder.KEYFRAME, buf.get());
+        assertEquals(42, buf.getInt());
+
+        // Roster
+        assertEquals(1, buf.get());
+        assertEquals(0, buf.get());
+        byte[] name = new byte[buf.get()];
+        buf.get(name);
+        assertEquals("Rex", new String(name, StandardCharsets.UTF_8));
+
+        // Jugador: coordenadas a 1/4 de píxel
+        assertEquals(1, buf.get());
+        assertEquals(0, buf.get());
+        assertEquals(401, Short.toUnsignedInt(buf.getShort()));
+        assertEquals(1002, Short.toUnsignedInt(buf.getShort()));
+        assertEquals(80, buf.get());
+        assertEquals(1, buf.get() & 1);
+        // Último input procesado: 16 bits bajos de la secuencia
+        assertEquals(70_000 & 0xFFFF, Short.toUnsignedInt(buf.getShort()));
+
+        // Solo el NPC vivo
+        assertEquals(1, buf.getShort());
+        assertEquals(aliveNpc, buf.getShort());
+        assertEquals(40, Short.toUnsignedInt(buf.getShort()));
+        assertEquals(80, Short.toUnsignedInt(buf.getShort()));
+        assertEquals(50, buf.get());
+        assertFalse(buf.hasRemaining());
+    }
+
+    // ------------------------------
+    // TEST: el delta solo lleva lo que cambió y los NPCs eliminados
+    // ------------------------------
+    @Test
+    void testDeltaOnlyCarriesChanges() {
+        DeltaTracker tracker = new DeltaTracker();
+        assertTrue(tracker.diff(snapshot(1L), false).isKeyframe());
+
+        // Nada cambia: delta vacío
+        StateDelta idle = tracker.diff(snapshot(2L), false);
+        assertFalse(idle.isKeyframe());
+        assertEquals(0, idle.getChangedPlayerCount());
+        assertEquals(0, idle.getChangedNpcCount());
+
+        // Movimiento menor que la resolución: no se envía
+        p.setX(100.35);
+        assertEquals(0, tracker.diff(snapshot(3L), false).getChangedPlayerCount());
+
+        // El jugador se mueve, aparece un NPC y desaparece otro
+        p.setX(120);
+        npcs.removeAt(npcs.indexOf(aliveNpc));
+        npcs.spawn(300, 300, 50);
+        RoomSnapshot s = snapshot(4L);
+        StateDelta d = tracker.diff(s, false);
+        assertEquals(1, d.getChangedPlayerCount());
+        assertEquals(1, d.getChangedNpcCount());
+
+        Map<String, Object> json = StateFrameEncoder.toJson(s, d);
+        assertEquals(false, json.get("keyframe"));
+        assertEquals(1, ((List<?>) json.get("players")).size());
+        Map<?, ?> spawned = (Map<?, ?>) ((List<?>) json.get("npcs")).get(0);
+        assertEquals(300.0, spawned.get("x"));
+
+        // Un delta es mucho menor que el keyframe equivalente
+        assertTrue(StateFrameEncoder.encodeBinary(s, d).length <= StateFrameEncoder.keyframeSize(s));
+        assertTrue(StateFrameEncoder.encodeBinary(s, idle).length < StateFrameEncoder.keyframeSize(s));
+    }
+
+    // ------------------------------
+    // TEST: el NPC eliminado aparece en removedNpcs
+    // ------------------------------
+    @Test
+    void testRemovedNpcIsReported() {
+        DeltaTracker tracker = new DeltaTracker();
+        tracker.diff(snapshot(1L), false);
+
+        npcs.removeAt(npcs.indexOf(aliveNpc));
+        RoomSnapshot s = snapshot(2L);
+        Map<String, Object> json = StateFrameEncoder.toJson(s, tracker.diff(s, false));
+
+        assertEquals(List.of(aliveNpc), json.get("removedNpcs"));
+    }
+
+    // ------------------------------
+    // TEST: solo se codifican los formatos con suscriptores; keyframe periódico y bajo demanda
+    // ------------------------------
+    @Test
+    void testBroadcasterFormatsAndKeyframes() {
+        SimpMessagingTemplate ws = mock(SimpMessagingTemplate.class);
+        StateSubscriptionRegistry subs = new StateSubscriptionRegistry();
+        RoomStateBroadcaster broadcaster = new RoomStateBroadcaster(ws, subs, mock(RawGameSessions.class), 3, 450, 100);
+
+        broadcaster.publish(snapshot(1L));
+        verifyNoInteractions(ws);
+
+        subs.subscribe("s1", "sub-0", "/topic/game/ABC123/state.delta");
+        for (long tick = 1; tick <= 4; tick++) {
+            broadcaster.publish(snapshot(tick));
+        }
+        broadcaster.requestKeyframe("ABC123");
+        broadcaster.publish(snapshot(5L));
+
+        ArgumentCaptor<Object> frames = ArgumentCaptor.forClass(Object.class);
+        verify(ws, times(5)).convertAndSend(eq("/topic/game/ABC123/state.delta"), frames.capture(), anyMap());
+        List<Object> keyflags = frames.getAllValues().stream().map(f -> (Object) ((Map<?, ?>) f).get("keyframe")).toList();
+        assertEquals(List.of(true, false, false, true, true), keyflags);
+        verify(ws, never()).convertAndSend(eq("/topic/game/ABC123/state"), any(Object.class), anyMap());
+        verify(ws, never()).convertAndSend(eq("/topic/game/ABC123/state.bin"), any(Object.class), anyMap());
+
+        subs.removeSession("s1");
+        assertFalse(subs.hasSubscribers("/topic/game/ABC123/state.delta"));
+    }
+
+    // ------------------------------
+    // TEST: el topic JSON de siempre recibe el estado completo en cada frame
+    // ------------------------------
+    @Test
+    void testLegacyTopicAlwaysCarriesFullState() {
+        SimpMessagingTemplate ws = mock(SimpMessagingTemplate.class);
+        StateSubscriptionRegistry subs = new StateSubscriptionRegistry();
+        RoomStateBroadcaster broadcaster = new RoomStateBroadcaster(ws, subs, mock(RawGameSessions.class), 20, 450, 100);
+        subs.subscribe("s1", "sub-0", "/topic/game/ABC123/state");
+        subs.subscribe("s2", "sub-0", "/topic/game/ABC123/state.delta");
+
+        // Nada cambia entre frames: el canal con deltas va vacío, el de siempre completo
+        broadcaster.publish(snapshot(1L));
+        broadcaster.publish(snapshot(2L));
+
+        ArgumentCaptor<Object> full = ArgumentCaptor.forClass(Object.class);
+        verify(ws, times(2)).convertAndSend(eq("/topic/game/ABC123/state"), full.capture(), anyMap());
+        for (Object frame : full.getAllValues()) {
+            Map<?, ?> state = (Map<?, ?>) frame;
+            assertEquals(true, state.get("keyframe"));
+            assertEquals(1, ((List<?>) state.get("players")).size());
+            assertEquals(List.of(aliveNpc), npcIds(state));
+            assertFalse(state.containsKey("removedNpcs"));
+        }
+
+        ArgumentCaptor<Object> deltas = ArgumentCaptor.forClass(Object.class);
+        verify(ws, times(2)).convertAndSend(eq("/topic/game/ABC123/state.delta"), deltas.capture(), anyMap());
+        Map<?, ?> idle = (Map<?, ?>) deltas.getAllValues().get(1);
+        assertEquals(false, idle.get("keyframe"));
+        assertEquals(List.of(), idle.get("players"));
+    }
+
+    // ------------------------------
+    // TEST: un frame descartado en la cola de una sesión solo fuerza keyframe a esa sesión
+    // ------------------------------
+    @Test
+    void testDroppedSessionFrameOnlyKeyframesThatSession() {
+        SimpMessagingTemplate ws = mock(SimpMessagingTemplate.class);
+        StateSubscriptionRegistry subs = new StateSubscriptionRegistry();
+        RoomStateBroadcaster broadcaster = new RoomStateBroadcaster(ws, subs, mock(RawGameSessions.class), 20, 450, 100);
+        subs.subscribe("s1", "sub-0", "/user/queue/game/ABC123/state");
+        subs.subscribe("s2", "sub-0", "/user/queue/game/ABC123/state");
+        subs.subscribe("s3", "sub-0", "/topic/game/ABC123/state.delta");
+
+        broadcaster.publish(snapshot(1L));
+        broadcaster.publish(snapshot(2L));
+        broadcaster.onStateFrameDropped(new StateFrameDroppedEvent("ABC123", "s1", "/queue/game/ABC123/state-users1"));
+        broadcaster.publish(snapshot(3L));
+
+        assertEquals(List.of(true, false, true), sessionKeyflags(ws, "s1"));
+        assertEquals(List.of(true, false, false), sessionKeyflags(ws, "s2"));
+        ArgumentCaptor<Object> shared = ArgumentCaptor.forClass(Object.class);
+        verify(ws, times(3)).convertAndSend(eq("/topic/game/ABC123/state.delta"), shared.capture(), anyMap());
+        assertEquals(List.of(true, false, false), keyflags(shared.getAllValues()));
+    }
+
+    // ------------------------------
+    // TEST: un keyframe pedido mientras se publica no se pierde
+    // ------------------------------
+    @Test
+    void testKeyframeRequestedDuringPublishIsKept() {
+        SimpMessagingTemplate ws = mock(SimpMessagingTemplate.class);
+        StateSubscriptionRegistry subs = new StateSubscriptionRegistry();
+        RoomStateBroadcaster broadcaster = new RoomStateBroadcaster(ws, subs, mock(RawGameSessions.class), 20, 450, 100);
+        subs.subscribe("s1", "sub-0", "/topic/game/ABC123/state.delta");
+
+        broadcaster.publish(snapshot(1L));
+        // Un cliente pide resincronizar justo mientras sale el frame 2
+        doAnswer(inv -> {
+            broadcaster.requestKeyframe("ABC123");
+            return null;
+        }).doNothing().when(ws).convertAndSend(eq("/topic/game/ABC123/state.delta"), any(Object.class), anyMap());
+        broadcaster.publish(snapshot(2L));
+        broadcaster.publish(snapshot(3L));
+
+        ArgumentCaptor<Object> frames = ArgumentCaptor.forClass(Object.class);
+        verify(ws, times(3)).convertAndSend(eq("/topic/game/ABC123/state.delta"), frames.capture(), anyMap());
+        assertEquals(List.of(true, false, true), keyflags(frames.getAllValues()));
+    }
+
+    private static List<Object> sessionKeyflags(SimpMessagingTemplate ws, String sessionId) {
+        ArgumentCaptor<Object> frames = ArgumentCaptor.forClass(Object.class);
+        verify(ws, atLeastOnce()).convertAndSendToUser(eq(sessionId), eq("/queue/game/ABC123/state"), frames.capture(), anyMap());
+        return keyflags(frames.getAllValues());
+    }
+
+    private static List<Object> keyflags(List<Object> frames) {
+        return frames.stream().map(f -> (Object) ((Map<?, ?>) f).get("keyframe")).toList();
+    }
+
+    // ------------------------------
+    // TEST: el canal por sesión solo lleva NPCs del área de interés, con histéresis
+    // ------------------------------
+    @Test
+    void testSessionChannelFiltersByAreaOfInterest() {
+        SimpMessagingTemplate ws = mock(SimpMessagingTemplate.class);
+        StateSubscriptionRegistry subs = new StateSubscriptionRegistry();
+        RoomStateBroadcaster broadcaster = new RoomStateBroadcaster(ws, subs, mock(RawGameSessions.class), 100, 450, 100);
+        subs.subscribe("s1", "sub-0", "/user/queue/game/ABC123/state");
+        subs.bindPlayer("s1", "Rex");
+
+        // Rex en (100, 250): el NPC de (10, 20) está cerca, este otro lejos
+        int far = npcs.spawn(900, 700, 50);
+        broadcaster.publish(snapshot(1L));
+
+        // Se aleja a ~517 px (entre radio de entrada y de salida): sigue visible por histéresis
+        p.setX(360);
+        p.setY(400);
+        broadcaster.publish(snapshot(2L));
+
+        // Rex se va a la esquina opuesta: el NPC cercano sale y el lejano entra
+        p.setX(900);
+        p.setY(700);
+        broadcaster.publish(snapshot(3L));
+
+        ArgumentCaptor<Object> frames = ArgumentCaptor.forClass(Object.class);
+        verify(ws, times(3)).convertAndSendToUser(eq("s1"), eq("/queue/game/ABC123/state"), frames.capture(), anyMap());
+        Map<?, ?> first = (Map<?, ?>) frames.getAllValues().get(0);
+        Map<?, ?> middle = (Map<?, ?>) frames.getAllValues().get(1);
+        Map<?, ?> last = (Map<?, ?>) frames.getAllValues().get(2);
+
+        assertEquals(List.of(aliveNpc), npcIds(first));
+        assertEquals(List.of(), middle.get("removedNpcs"));
+        assertEquals(List.of(far), npcIds(last));
+        assertEquals(List.of(aliveNpc), last.get("removedNpcs"));
+        verify(ws, never()).convertAndSend(eq("/topic/game/ABC123/state"), any(Object.class), anyMap());
+    }
+
+    private static List<Object> npcIds(Map<?, ?> frame) {
+        return ((List<?>) frame.get("npcs")).stream().map(n -> (Object) ((Map<?, ?>) n).get("id")).toList();
+    }
+}